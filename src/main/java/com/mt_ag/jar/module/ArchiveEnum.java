@@ -0,0 +1,40 @@
+package com.mt_ag.jar.module;
+
+/**
+ * Enum of the archive format of the attached artifacts.
+ */
+public enum ArchiveEnum {
+  /**
+   * A zip, the entries are compressed in parallel.
+   */
+  Zip("zip"),
+  /**
+   * An uncompressed tar, it can be extracted while it is streamed.
+   */
+  Tar("tar"),
+  /**
+   * A gzip compressed tar, it can be extracted while it is streamed.
+   */
+  TarGz("tar.gz");
+
+  /**
+   * The extension of the file and the type of the artifact.
+   */
+  private final String extension;
+
+  /**
+   * The constructor with the extension.
+   * @param pExtension the extension.
+   */
+  ArchiveEnum(String pExtension) {
+    extension = pExtension;
+  }
+
+  /**
+   * The getter of extension.
+   * @return the extension.
+   */
+  public String getExtension() {
+    return extension;
+  }
+}
@@ -0,0 +1,58 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a dir as archive. The entries are streamed to the file, the posix permissions and symbolic links are kept.
+ */
+@FunctionalInterface
+public interface ArchiveWriter {
+
+  /**
+   * Writes the files of the dir to the archive.
+   *
+   * @param dir  the dir.
+   * @param file the archive to create.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  void write(Path dir, Path file) throws MojoExecutionException;
+
+  /**
+   * Gets the writer of the format.
+   *
+   * @param format   the format, null is Zip.
+   * @param pipeline the pipeline to compress the entries of a zip.
+   * @param log      the logger.
+   * @return the writer.
+   */
+  static ArchiveWriter of(ArchiveEnum format, ModulePipeline pipeline, Log log) {
+    if (format == ArchiveEnum.Tar || format == ArchiveEnum.TarGz) {
+      return (dir, file) -> writeTar(dir, file, format == ArchiveEnum.TarGz);
+    }
+    return (dir, file) -> DirZipper.zip(pipeline, dir, file, log);
+  }
+
+  /**
+   * Writes the files of the dir to a tar.
+   *
+   * @param dir  the dir.
+   * @param file the tar to create.
+   * @param gzip true to compress the tar with gzip.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  static void writeTar(Path dir, Path file, boolean gzip) throws MojoExecutionException {
+    try (TarWriter tar = new TarWriter(gzip ? new GZIPOutputStream(Files.newOutputStream(file), Tools.BUFFER_SIZE)
+        : new BufferedOutputStream(Files.newOutputStream(file), Tools.BUFFER_SIZE))) {
+      tar.addTree("", dir);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Error writing tar: " + file, e);
+    }
+  }
+}
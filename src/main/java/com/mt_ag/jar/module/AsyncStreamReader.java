@@ -4,12 +4,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 
 /**
- * A StreamReader to read the input stream as Reader.
+ * A StreamReader to read the input stream as Reader and to write it to the output as it arrives.
  */
 public class AsyncStreamReader implements Runnable {
 
@@ -19,18 +18,19 @@ public class AsyncStreamReader implements Runnable {
   private final Reader reader;
 
   /**
-   * The writer to hold the String.
+   * The writer of the read chars.
    */
-  private final StringWriter writer;
+  private final Writer writer;
 
   /**
-   * The constructor with the reader as parameter.
+   * The constructor with the stream and the output as parameter.
    *
-   * @param in the stream to read.
+   * @param in  the stream to read.
+   * @param out the output of the read chars.
    */
-  public AsyncStreamReader(InputStream in) {
+  public AsyncStreamReader(InputStream in, Writer out) {
     reader = new InputStreamReader(in, StandardCharsets.UTF_8);
-    writer = new StringWriter();
+    writer = out;
   }
 
   /**
@@ -44,13 +44,4 @@ public class AsyncStreamReader implements Runnable {
       //
     }
   }
-
-  /**
-   * Gets the result.
-   *
-   * @return the data as List of lines.
-   */
-  public List<String> getOutput() {
-    return List.of(writer.toString().split("\\v+"));
-  }
 }
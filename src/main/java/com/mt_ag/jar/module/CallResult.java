@@ -4,7 +4,7 @@ import java.util.List;
 
 /**
  * The result of the call.
- * The exit value and the written lines.
+ * The exit value, the last written lines and the count of all lines.
  */
 public class CallResult {
 
@@ -19,13 +19,29 @@ public class CallResult {
   private final List<String> outLines;
 
   /**
-   * The constructor with all fields.
+   * The count of all out lines.
+   */
+  private final long lineCount;
+
+  /**
+   * The constructor with all lines.
    * @param exitValue the exit val.
    * @param lines the lines.
    */
   public CallResult(int exitValue, List<String> lines) {
+    this(exitValue, lines, lines.size());
+  }
+
+  /**
+   * The constructor with all fields.
+   * @param exitValue the exit val.
+   * @param lines the last lines.
+   * @param count the count of all lines.
+   */
+  public CallResult(int exitValue, List<String> lines, long count) {
     exitVal = exitValue;
     outLines = lines;
+    lineCount = count;
   }
 
   /**
@@ -37,10 +53,18 @@ public class CallResult {
   }
 
   /**
-   * Gets the out lines.
+   * Gets the out lines, the last ones if there are more.
    * @return the out lines.
    */
   public List<String> getOutLines() {
     return outLines;
   }
+
+  /**
+   * Gets the count of all out lines.
+   * @return the count of lines.
+   */
+  public long getLineCount() {
+    return lineCount;
+  }
 }
@@ -0,0 +1,132 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+
+/**
+ * Reads the load order of the classes and sorts the entries of a jar in this order. The order is read from a class
+ * list written by -XX:DumpLoadedClassList or from the output of -Xlog:class+load. Entries read in the order of the
+ * start are read sequentially from the jar.
+ */
+public final class ClassOrder {
+
+  /**
+   * The marker of the source in the output of -Xlog:class+load.
+   */
+  private static final String SOURCE = " source:";
+
+  /**
+   * The prefix of the versioned entries of a multi release jar.
+   */
+  private static final String VERSIONS = "META-INF/versions/";
+
+  /**
+   * The extension of a class entry.
+   */
+  private static final String CLASS_EXTENSION = ".class";
+
+  /**
+   * Private constructor of static class.
+   */
+  private ClassOrder() {
+  }
+
+  /**
+   * Reads the class list or the class load log. Comments and the lines of lambda proxies are skipped. The classes of
+   * the jdk are kept, they match no entry of the jar.
+   *
+   * @param file the class list or the class load log.
+   * @return the names of the class entries in the order of the first load.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  public static List<String> read(Path file) throws MojoExecutionException {
+    Set<String> names = new LinkedHashSet<>();
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line = reader.readLine();
+      while (line != null) {
+        String name = className(line);
+        if (name != null) {
+          names.add(name.replace('.', '/') + CLASS_EXTENSION);
+        }
+        line = reader.readLine();
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to read class order: " + file, e);
+    }
+    return new ArrayList<>(names);
+  }
+
+  /**
+   * Gets the class name of a line of the class list or the class load log.
+   *
+   * @param line the line.
+   * @return the class name or null if the line has no class of an application.
+   */
+  static String className(String line) {
+    String text = line.trim();
+    int source = text.indexOf(SOURCE);
+    if (source >= 0) {
+      text = text.substring(text.lastIndexOf(']', source) + 1, source).trim();
+    } else if (text.isEmpty() || text.startsWith("#") || text.startsWith("@") || text.startsWith("[")) {
+      return null;
+    } else {
+      int space = text.indexOf(' ');
+      text = (space > 0) ? text.substring(0, space) : text;
+    }
+    return text.isEmpty() ? null : text;
+  }
+
+  /**
+   * Sorts the entries in the load order. The manifest and the META-INF dir stay at the start, so the jar can be read
+   * as stream. The versioned entries of a class follow the class. The entries not loaded follow in their order.
+   *
+   * @param entries the entries of the jar.
+   * @param order   the names of the class entries in load order.
+   * @return the sorted entries.
+   */
+  public static List<ZipIndex.Entry> sort(List<ZipIndex.Entry> entries, List<String> order) {
+    Map<String, List<ZipIndex.Entry>> byClass = new HashMap<>();
+    for (ZipIndex.Entry entry : entries) {
+      byClass.computeIfAbsent(unversioned(entry.getName()), name -> new ArrayList<>()).add(entry);
+    }
+    Set<ZipIndex.Entry> sorted = new LinkedHashSet<>();
+    for (ZipIndex.Entry entry : entries) {
+      if ("META-INF/".equals(entry.getName()) || JarFile.MANIFEST_NAME.equals(entry.getName())) {
+        sorted.add(entry);
+      }
+    }
+    for (String name : order) {
+      sorted.addAll(byClass.getOrDefault(name, List.of()));
+    }
+    sorted.addAll(entries);
+    return new ArrayList<>(sorted);
+  }
+
+  /**
+   * Gets the name of a versioned class entry without the version prefix.
+   *
+   * @param name the name of the entry.
+   * @return the name without the version prefix.
+   */
+  static String unversioned(String name) {
+    if (name.startsWith(VERSIONS) && name.endsWith(CLASS_EXTENSION)) {
+      int slash = name.indexOf('/', VERSIONS.length());
+      if (slash > 0) {
+        return name.substring(slash + 1);
+      }
+    }
+    return name;
+  }
+}
@@ -0,0 +1,393 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ResolvedModule;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Shrinks the application modules of an image to the classes reachable from the root classes. The root classes are
+ * the main classes, the providers of the module descriptors and of META-INF/services and the classes matching a keep
+ * rule. A class references all classes named in the utf8 constants of its constant pool: as class name, in a
+ * descriptor or signature and as string with the binary name, like a string given to Class.forName. The other
+ * reflection must be covered by keep rules. Resources and the jdk modules are not shrunk.
+ */
+final class ClassShrinker {
+
+  /**
+   * The extension of a class entry.
+   */
+  private static final String CLASS_EXTENSION = ".class";
+
+  /**
+   * The name of the module-info class.
+   */
+  private static final String MODULE_INFO = "module-info";
+
+  /**
+   * The name of the package-info class.
+   */
+  private static final String PACKAGE_INFO = "/package-info";
+
+  /**
+   * The prefix of the service files.
+   */
+  private static final String SERVICES = "META-INF/services/";
+
+  /**
+   * The class types in a descriptor or signature.
+   */
+  private static final Pattern TYPE_PATTERN = Pattern.compile("L([^;<>\\[()]+)[;<]");
+
+  /**
+   * The jars of the application modules by module name.
+   */
+  private final Map<String, Path> jars = new TreeMap<>();
+
+  /**
+   * The module of the classes by internal name.
+   */
+  private final Map<String, String> classModules = new HashMap<>();
+
+  /**
+   * The utf8 constants of the classes by internal name.
+   */
+  private final Map<String, Set<String>> constants = new HashMap<>();
+
+  /**
+   * The entry names of the jars by module name.
+   */
+  private final Map<String, List<String>> entries = new HashMap<>();
+
+  /**
+   * The packages of the modules by module name.
+   */
+  private final Map<String, Set<String>> packages = new HashMap<>();
+
+  /**
+   * The root classes by internal name.
+   */
+  private final Set<String> roots = new TreeSet<>();
+
+  /**
+   * The constructor is private, the shrinker is used by shrink.
+   */
+  private ClassShrinker() {
+  }
+
+  /**
+   * Shrinks the application modules of the module set. The shrunk jars are written to the target dir with the names
+   * of the jars, the report lists the removed classes of every module. A package of a module descriptor keeps one
+   * class if it would be empty, jlink requires all packages of a module.
+   *
+   * @param moduleSet   the resolved modules of the image.
+   * @param rootClasses the binary names of the root classes, the main classes.
+   * @param keepRules   the keep rules: binary class names, * matches a name in a package, ** matches the names in a
+   *                    package and its sub packages.
+   * @param targetDir   the dir of the shrunk jars, deleted if it exists.
+   * @param report      the report file.
+   * @param log         the logger.
+   * @return the binary names of the removed classes.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  static Set<String> shrink(ModuleSet moduleSet, Collection<String> rootClasses, List<String> keepRules,
+                            Path targetDir, Path report, Log log) throws MojoExecutionException {
+    ClassShrinker shrinker = new ClassShrinker();
+    for (ResolvedModule module : moduleSet.getConfiguration().modules()) {
+      if (ModuleSet.isApplication(module)) {
+        shrinker.read(module.name(), Paths.get(module.reference().location().orElseThrow()),
+            module.reference().descriptor());
+      }
+    }
+    rootClasses.forEach(name -> shrinker.roots.add(name.replace('.', '/')));
+    Predicate<String> keep = keepRule(keepRules);
+    shrinker.classModules.keySet().stream().filter(name -> keep.test(name.replace('/', '.')))
+        .forEach(shrinker.roots::add);
+
+    Set<String> reachable = shrinker.reachable();
+    Set<String> removed = shrinker.classModules.keySet().stream().filter(name -> !reachable.contains(name))
+        .collect(Collectors.toCollection(TreeSet::new));
+    shrinker.keepPackages(removed);
+    Tools.deleteDir(targetDir);
+    List<String> lines = new ArrayList<>();
+    long removedSize = 0;
+    try {
+      Files.createDirectories(targetDir);
+      for (Map.Entry<String, Path> jar : shrinker.jars.entrySet()) {
+        List<String> moduleRemoved = removed.stream().filter(name -> jar.getKey().equals(
+            shrinker.classModules.get(name))).map(name -> name.replace('/', '.')).collect(Collectors.toList());
+        long size = write(jar.getValue(), targetDir.resolve(jar.getValue().getFileName()), removed);
+        removedSize += size;
+        lines.add("module: " + jar.getKey() + " removed: " + moduleRemoved.size() + " size: " + size);
+        moduleRemoved.forEach(name -> lines.add("  " + name));
+      }
+      Files.write(report, lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to write shrunk modules: " + targetDir, e);
+    }
+    log.info("Removed classes: " + removed.size() + " of " + shrinker.classModules.size() + " size: "
+        + removedSize + " report: " + report);
+    return removed.stream().map(name -> name.replace('/', '.')).collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /**
+   * Reads the classes and the service providers of a module.
+   *
+   * @param moduleName the name of the module.
+   * @param jar        the jar of the module.
+   * @param descriptor the descriptor of the module.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private void read(String moduleName, Path jar, ModuleDescriptor descriptor) throws MojoExecutionException {
+    jars.put(moduleName, jar);
+    packages.put(moduleName, descriptor.packages());
+    List<String> names = new ArrayList<>();
+    entries.put(moduleName, names);
+    descriptor.provides().forEach(provides -> provides.providers()
+        .forEach(provider -> roots.add(provider.replace('.', '/'))));
+    try (ZipIndex zip = ZipIndex.open(jar)) {
+      for (ZipIndex.Entry entry : zip.getEntries()) {
+        names.add(entry.getName());
+        String className = className(entry.getName());
+        if (className != null) {
+          classModules.put(className, moduleName);
+          try (InputStream in = zip.open(entry)) {
+            constants.computeIfAbsent(className, name -> new HashSet<>()).addAll(utf8Constants(in.readAllBytes()));
+          }
+        } else if (entry.getName().startsWith(SERVICES) && !entry.isDirectory()) {
+          try (InputStream in = zip.open(entry)) {
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+              String provider = line.replaceAll("#.*", "").trim();
+              if (!provider.isEmpty()) {
+                roots.add(provider.replace('.', '/'));
+              }
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to read jar: " + jar, e);
+    }
+  }
+
+  /**
+   * Keeps one removed class of every package, that has no other entry. The package-info is preferred.
+   *
+   * @param removed the internal names of the removed classes, changed.
+   */
+  private void keepPackages(Set<String> removed) {
+    for (Map.Entry<String, List<String>> module : entries.entrySet()) {
+      Set<String> present = new HashSet<>();
+      Map<String, String> candidates = new TreeMap<>();
+      for (String name : module.getValue()) {
+        String path = ClassOrder.unversioned(name);
+        int slash = path.lastIndexOf('/');
+        if (slash < 0 || path.startsWith("META-INF/") || path.endsWith("/")) {
+          continue;
+        }
+        String packageName = path.substring(0, slash).replace('/', '.');
+        String className = className(name);
+        if (className == null || !removed.contains(className)) {
+          present.add(packageName);
+        } else {
+          candidates.merge(packageName, className, ClassShrinker::preferred);
+        }
+      }
+      for (String packageName : packages.get(module.getKey())) {
+        if (!present.contains(packageName) && candidates.containsKey(packageName)) {
+          removed.remove(candidates.get(packageName));
+        }
+      }
+    }
+  }
+
+  /**
+   * Selects the class kept for a package: the package-info or the first class by name.
+   *
+   * @param first  the internal name of a class.
+   * @param second the internal name of another class.
+   * @return the preferred class.
+   */
+  private static String preferred(String first, String second) {
+    if (first.endsWith(PACKAGE_INFO) || second.endsWith(PACKAGE_INFO)) {
+      return first.endsWith(PACKAGE_INFO) ? first : second;
+    }
+    return (first.compareTo(second) <= 0) ? first : second;
+  }
+
+  /**
+   * Finds the classes reachable from the root classes.
+   *
+   * @return the internal names of the reachable classes.
+   */
+  private Set<String> reachable() {
+    Set<String> reachable = new HashSet<>();
+    Deque<String> queue = new ArrayDeque<>();
+    roots.stream().filter(classModules::containsKey).forEach(queue::add);
+    while (!queue.isEmpty()) {
+      String className = queue.poll();
+      if (reachable.add(className)) {
+        for (String constant : constants.getOrDefault(className, Set.of())) {
+          references(constant).stream().filter(classModules::containsKey).filter(name -> !reachable.contains(name))
+              .forEach(queue::add);
+        }
+      }
+    }
+    return reachable;
+  }
+
+  /**
+   * Writes the jar without the removed classes. The other entries are copied with the raw compressed bytes.
+   *
+   * @param source  the source jar.
+   * @param target  the target jar.
+   * @param removed the internal names of the removed classes.
+   * @return the size of the removed entries.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static long write(Path source, Path target, Set<String> removed) throws IOException {
+    long size = 0;
+    try (ZipIndex zip = ZipIndex.open(source); JarRewriter out = new JarRewriter(target)) {
+      for (ZipIndex.Entry entry : zip.getEntries()) {
+        String className = className(entry.getName());
+        if (className != null && removed.contains(className)) {
+          size += entry.getSize();
+        } else {
+          out.copy(zip, entry, entry.getName());
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Gets the internal class name of a class entry. A versioned entry has the name of its class.
+   *
+   * @param entryName the name of the entry.
+   * @return the internal name or null if it is no class or the module-info.
+   */
+  static String className(String entryName) {
+    String name = ClassOrder.unversioned(entryName);
+    if (!name.endsWith(CLASS_EXTENSION) || name.startsWith("META-INF/")) {
+      return null;
+    }
+    String className = name.substring(0, name.length() - CLASS_EXTENSION.length());
+    return className.equals(MODULE_INFO) ? null : className;
+  }
+
+  /**
+   * Gets the class names referenced by an utf8 constant: the constant as internal name or as binary name and the
+   * class types of a descriptor or signature.
+   *
+   * @param constant the utf8 constant.
+   * @return the possible internal names.
+   */
+  static Set<String> references(String constant) {
+    Set<String> names = new HashSet<>();
+    names.add(constant);
+    names.add(constant.replace('.', '/'));
+    Matcher matcher = TYPE_PATTERN.matcher(constant);
+    while (matcher.find()) {
+      names.add(matcher.group(1));
+    }
+    return names;
+  }
+
+  /**
+   * Reads the utf8 constants of a class file.
+   *
+   * @param classFile the class file.
+   * @return the utf8 constants.
+   * @throws IOException is thrown if the class file is invalid.
+   */
+  static Set<String> utf8Constants(byte[] classFile) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+    if (in.readInt() != ModuleInfoWriter.MAGIC) {
+      throw new IOException("No class file");
+    }
+    in.readUnsignedShort();
+    in.readUnsignedShort();
+    int count = in.readUnsignedShort();
+    Set<String> values = new HashSet<>();
+    for (int index = 1; index < count; index++) {
+      int tag = in.readUnsignedByte();
+      if (tag == ModuleInfoWriter.CONSTANT_UTF8) {
+        values.add(in.readUTF());
+      } else {
+        Integer size = ModuleInfoWriter.CONSTANT_SIZES.get(tag);
+        if (size == null) {
+          throw new IOException("Unknown constant tag: " + tag);
+        }
+        in.skipBytes(size);
+        if (tag == ModuleInfoWriter.CONSTANT_LONG || tag == ModuleInfoWriter.CONSTANT_DOUBLE) {
+          index++;
+        }
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Creates the predicate of the keep rules. A rule is a binary class name, * matches a name in a package and **
+   * matches the names in a package and its sub packages.
+   *
+   * @param keepRules the keep rules, may be null.
+   * @return the predicate of the binary names.
+   */
+  static Predicate<String> keepRule(List<String> keepRules) {
+    if (keepRules == null || keepRules.isEmpty()) {
+      return name -> false;
+    }
+    Pattern pattern = Pattern.compile(keepRules.stream().map(String::trim).map(ClassShrinker::keepRegex)
+        .collect(Collectors.joining("|")));
+    return name -> pattern.matcher(name).matches();
+  }
+
+  /**
+   * Converts a keep rule to a regex.
+   *
+   * @param rule the keep rule.
+   * @return the regex.
+   */
+  private static String keepRegex(String rule) {
+    StringBuilder regex = new StringBuilder();
+    for (int i = 0; i < rule.length(); i++) {
+      char c = rule.charAt(i);
+      if (c == '*' && i + 1 < rule.length() && rule.charAt(i + 1) == '*') {
+        regex.append(".*");
+        i++;
+      } else if (c == '*') {
+        regex.append("[^.]*");
+      } else if (Character.isLetterOrDigit(c)) {
+        regex.append(c);
+      } else {
+        regex.append('\\').append(c);
+      }
+    }
+    return regex.toString();
+  }
+}
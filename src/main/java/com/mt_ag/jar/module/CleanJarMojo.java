@@ -10,15 +10,15 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.Collections;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
 
 /**
  * Plugin class for the goal jar. In this goal the jar is cleaned form unused folder entries and the size is set
@@ -27,12 +27,65 @@ import java.util.jar.JarOutputStream;
 @Mojo(name = "jar", defaultPhase = LifecyclePhase.PACKAGE)
 public class CleanJarMojo extends AbstractMojo {
 
+  /**
+   * The default alignment of the hot entries, the size of a page.
+   */
+  private static final int DEFAULT_ALIGNMENT = 4096;
+
   /**
    * Parameter repack. If true the jar is repacked.
    */
   @Parameter
   private boolean repack;
 
+  /**
+   * Parameter repackLevel. The deflate level 0 to 9 of the repacked entries. The default -1 copies the compressed
+   * entries without inflating them, if the strategy is Default.
+   */
+  @Parameter(property = "jarmodule.repackLevel", defaultValue = "-1")
+  private int repackLevel = JarRepacker.LEVEL_COPY;
+
+  /**
+   * Parameter repackStrategy. The deflate strategy of the repacked entries. Best tries all strategies with the best
+   * level and keeps the smallest result of each entry.
+   */
+  @Parameter(property = "jarmodule.repackStrategy", defaultValue = "Default")
+  private StrategyEnum repackStrategy = StrategyEnum.Default;
+
+  /**
+   * Parameter classOrder. A class list of -XX:DumpLoadedClassList, written by the goal trace, or a log of
+   * -Xlog:class+load. If set, the jar is repacked with the classes in the order of their first load, so the start
+   * reads the jar sequentially.
+   */
+  @Parameter(property = "jarmodule.classOrder")
+  private File classOrder;
+
+  /**
+   * Parameter alignHot. If true, the classes of the classOrder are hot. The hot entries are stored and their data is
+   * aligned like by zipalign, so they are mapped into memory without inflating them.
+   */
+  @Parameter(property = "jarmodule.alignHot")
+  private boolean alignHot;
+
+  /**
+   * Parameter hotSize. The entries of at least this size are hot too, 0 for none.
+   */
+  @Parameter(property = "jarmodule.hotSize", defaultValue = "0")
+  private long hotSize;
+
+  /**
+   * Parameter alignment. The alignment of the data of the hot entries, the size of a page. It must be a power of two
+   * up to 32768.
+   */
+  @Parameter(property = "jarmodule.alignment", defaultValue = "4096")
+  private int alignment = DEFAULT_ALIGNMENT;
+
+  /**
+   * Parameter threads. The count of threads to compress the entries, 0 or less uses the count of processors.
+   */
+  @Parameter(property = "jarmodule.threads", defaultValue = "0")
+  private int threads;
+
   /**
    * The ref to the maven project.
    */
@@ -68,6 +121,39 @@ public class CleanJarMojo extends AbstractMojo {
     repack = pRepack;
   }
 
+  /**
+   * Sets the compression of the repacked jar, for testing.
+   *
+   * @param pRepackLevel    the param repackLevel.
+   * @param pRepackStrategy the param repackStrategy.
+   */
+  void setRepackCompression(int pRepackLevel, StrategyEnum pRepackStrategy) {
+    repackLevel = pRepackLevel;
+    repackStrategy = pRepackStrategy;
+  }
+
+  /**
+   * Sets the load order of the classes, for testing.
+   *
+   * @param pClassOrder the param classOrder.
+   */
+  void setClassOrder(File pClassOrder) {
+    classOrder = pClassOrder;
+  }
+
+  /**
+   * Sets the hot entries, for testing.
+   *
+   * @param pAlignHot  the param alignHot.
+   * @param pHotSize   the param hotSize.
+   * @param pAlignment the param alignment.
+   */
+  void setHot(boolean pAlignHot, long pHotSize, int pAlignment) {
+    alignHot = pAlignHot;
+    hotSize = pHotSize;
+    alignment = pAlignment;
+  }
+
   /**
    * The implementation. Sets the main class if it is a module and the main class is not set but part of the manifest.
    *
@@ -88,6 +174,7 @@ public class CleanJarMojo extends AbstractMojo {
    * @throws MojoExecutionException is thrown if an IOException is thrown.
    */
   protected Path exec(Path jarPath) throws MojoExecutionException {
+    checkParameters();
     String name = jarPath.getFileName().toString();
     String tempName;
     if (name.endsWith(".jar")) {
@@ -105,7 +192,7 @@ public class CleanJarMojo extends AbstractMojo {
       throw new MojoExecutionException("Unable to copy target.jar", e);
     }
     Tools.setModuleMain(myLog, tempJar);
-    if (repack) {
+    if (repack || classOrder != null || hotSize > 0) {
       rePack(tempJar, name);
       try {
         Files.delete(tempJar);
@@ -123,7 +210,26 @@ public class CleanJarMojo extends AbstractMojo {
   }
 
   /**
-   * Repack cleans the jar from dir entries and set the size correct.
+   * Checks the values of the parameters.
+   *
+   * @throws MojoExecutionException is thrown if a value is not valid.
+   */
+  private void checkParameters() throws MojoExecutionException {
+    if (repackLevel < JarRepacker.LEVEL_COPY || repackLevel > Deflater.BEST_COMPRESSION) {
+      throw new MojoExecutionException("Invalid repackLevel: " + repackLevel + ", expected "
+          + JarRepacker.LEVEL_COPY + " to " + Deflater.BEST_COMPRESSION);
+    }
+    if (alignment < 1 || alignment > JarRewriter.MAX_ALIGNMENT || Integer.bitCount(alignment) != 1) {
+      throw new MojoExecutionException("Invalid alignment: " + alignment + ", expected a power of two from 1 to "
+          + JarRewriter.MAX_ALIGNMENT);
+    }
+  }
+
+  /**
+   * Repack cleans the jar from dir entries and set the size correct. The entries are copied without inflating and
+   * deflating them again, unless a repackLevel or repackStrategy is set. Then the entries are compressed again in
+   * parallel. With a classOrder the classes are written in the order of their first load. The hot entries are stored
+   * aligned.
    *
    * @param orgPath the original file as path.
    * @param name    the new filename.
@@ -131,42 +237,19 @@ public class CleanJarMojo extends AbstractMojo {
    */
   private void rePack(Path orgPath, String name) throws MojoExecutionException {
     Path cleanedPath = orgPath.resolveSibling(name);
-    if (!Files.exists(cleanedPath)) {
-      try {
-        Files.createFile(cleanedPath);
-      } catch (IOException e) {
-        myLog.error("unable to create File: " + name);
-      }
+    List<String> order = null;
+    if (classOrder != null) {
+      order = ClassOrder.read(classOrder.toPath());
+      myLog.info("Classes in load order: " + order.size());
     }
-    try (JarFile orgJar = new JarFile(orgPath.toFile());
-         JarOutputStream jarOut = new JarOutputStream(Files.newOutputStream(cleanedPath,
-             StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))) {
-      for (JarEntry jar : Collections.list(orgJar.entries())) {
-        myLog.info("Entry:" + jar.getName());
-        if (!jar.isDirectory()) {
-          copyCleanEntry(orgJar, jarOut, jar);
-        }
-      }
-    } catch (IOException e) {
-      throw new MojoExecutionException("Error reading artifact: " + orgPath.getFileName().toString(), e);
+    Predicate<ZipIndex.Entry> hot = null;
+    if ((alignHot && order != null) || hotSize > 0) {
+      Set<String> hotClasses = (alignHot && order != null) ? new HashSet<>(order) : Set.of();
+      hot = entry -> hotClasses.contains(ClassOrder.unversioned(entry.getName()))
+          || (hotSize > 0 && entry.getSize() >= hotSize);
     }
-  }
-
-  /**
-   * Copies an entry and cleans the entry.
-   *
-   * @param orgJar the org JarFile.
-   * @param jarOut the jar output stream.
-   * @param jar    the used entry.
-   * @throws IOException thrown, when an error in io occurs.
-   */
-  private static void copyCleanEntry(JarFile orgJar, JarOutputStream jarOut, JarEntry jar) throws IOException {
-    JarEntry newEntry = new JarEntry(jar);
-    try (InputStream jarIn = orgJar.getInputStream(jar)) {
-      byte[] data = jarIn.readAllBytes();
-      jarOut.putNextEntry(newEntry);
-      jarOut.write(data);
-      jarOut.closeEntry();
+    try (ModulePipeline pipeline = new ModulePipeline(threads)) {
+      JarRepacker.repack(pipeline, orgPath, cleanedPath, repackLevel, repackStrategy, order, hot, alignment, myLog);
     }
   }
 }
@@ -0,0 +1,487 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Zips a dir in one pass. The files are compressed in parallel by the threads of the pipeline and written in order.
+ * Only a window of files is compressed ahead of the writer and a compressed file bigger than a limit is buffered in
+ * a temp file, so the memory is bounded. Files with compressed content are stored without deflating, decided by the
+ * extension or by deflating samples of the content. The posix permissions are kept in the unix attributes of the
+ * entries and symbolic links are stored as links. If the zip exists, the compressed bytes of its entries are reused
+ * for the files with the same size, crc and mode, only the changed files are compressed.
+ */
+public final class DirZipper {
+
+  /**
+   * The max size of compressed data buffered in memory.
+   */
+  static final int MAX_BUFFERED = 4 * 1024 * 1024;
+
+  /**
+   * The size of a sample of the content.
+   */
+  private static final int SAMPLE_SIZE = 4 * 1024;
+
+  /**
+   * The count of samples of the content.
+   */
+  private static final int SAMPLE_COUNT = 3;
+
+  /**
+   * The percent of the sample size, a deflated sample must be smaller to deflate the file.
+   */
+  private static final int SAMPLE_RATIO = 95;
+
+  /**
+   * The percent base.
+   */
+  private static final int PERCENT = 100;
+
+  /**
+   * The count of files compressed ahead of the writer per thread.
+   */
+  private static final int WINDOW_PER_THREAD = 2;
+
+  /**
+   * The extensions of files with compressed content.
+   */
+  private static final Set<String> COMPRESSED_EXTENSIONS = Set.of("zip", "jar", "war", "ear", "jmod", "gz", "tgz",
+      "bz2", "xz", "7z", "zst", "png", "jpg", "jpeg", "gif", "webp", "ico", "mp3", "mp4", "ogg", "woff", "woff2");
+
+  /**
+   * A file compressed for the zip.
+   */
+  private static final class Packed {
+
+    /**
+     * The name of the entry.
+     */
+    private String name;
+
+    /**
+     * The source file.
+     */
+    private Path file;
+
+    /**
+     * The method.
+     */
+    private int method;
+
+    /**
+     * The crc.
+     */
+    private long crc;
+
+    /**
+     * The size.
+     */
+    private long size;
+
+    /**
+     * The compressed size.
+     */
+    private long compressedSize;
+
+    /**
+     * The dos time and date.
+     */
+    private long dosTime;
+
+    /**
+     * The unix file type and permissions.
+     */
+    private int unixMode;
+
+    /**
+     * The deflated data in memory or null.
+     */
+    private byte[] data;
+
+    /**
+     * The temp file of the deflated data or null.
+     */
+    private Path tempFile;
+
+    /**
+     * The unchanged entry of the previous zip or null.
+     */
+    private ZipIndex.Entry reused;
+  }
+
+  /**
+   * Private constructor of static class.
+   */
+  private DirZipper() {
+  }
+
+  /**
+   * Zips the files and symbolic links of the dir. Empty dirs are skipped. The unchanged entries of an existing zip
+   * are copied raw.
+   *
+   * @param pipeline the pipeline to compress the files.
+   * @param dir      the dir to zip.
+   * @param zipFile  the zip file to create or replace.
+   * @param log      the logger.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  public static void zip(ModulePipeline pipeline, Path dir, Path zipFile, Log log) throws MojoExecutionException {
+    List<Path> files;
+    try (Stream<Path> pathStream = Files.walk(dir)) {
+      files = pathStream.filter(path -> Files.isSymbolicLink(path) || Files.isRegularFile(path)).sorted()
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to read dir: " + dir, e);
+    }
+    Path tempDir = zipFile.toAbsolutePath().getParent();
+    Path newZip = zipFile.resolveSibling(zipFile.getFileName().toString() + ".tmp");
+    int window = pipeline.getThreadCount() * WINDOW_PER_THREAD;
+    Deque<CompletableFuture<Packed>> pending = new ArrayDeque<>();
+    int next = 0;
+    int reused = 0;
+    boolean written = false;
+    try (ZipIndex previous = openPrevious(zipFile, log);
+         JarRewriter out = new JarRewriter(newZip)) {
+      while (next < files.size() || !pending.isEmpty()) {
+        while (next < files.size() && pending.size() < window) {
+          Path file = files.get(next++);
+          pending.add(pipeline.submit(() -> pack(dir, file, tempDir, previous)));
+        }
+        Packed packed = ModulePipeline.awaitAll(List.of(pending.removeFirst())).get(0);
+        if (packed.reused != null) {
+          out.copy(previous, packed.reused, packed.name);
+          reused++;
+        } else {
+          write(out, packed);
+        }
+      }
+      written = true;
+    } catch (IOException e) {
+      throw new MojoExecutionException("Error writing zip: " + zipFile, e);
+    } finally {
+      for (CompletableFuture<Packed> future : pending) {
+        future.thenAccept(DirZipper::deleteTemp);
+      }
+      if (!written) {
+        deleteNewZip(newZip, log);
+      }
+    }
+    try {
+      Files.move(newZip, zipFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      deleteNewZip(newZip, log);
+      throw new MojoExecutionException("Unable to move zip: " + zipFile, e);
+    }
+    log.info("Reused entries of the previous zip: " + reused + " of " + files.size());
+  }
+
+  /**
+   * Deletes the new zip after a failure, so no temp file is left in the target dir.
+   *
+   * @param newZip the new zip.
+   * @param log    the logger.
+   */
+  private static void deleteNewZip(Path newZip, Log log) {
+    try {
+      Files.deleteIfExists(newZip);
+    } catch (IOException e) {
+      log.warn("Unable to delete the temp zip: " + newZip);
+    }
+  }
+
+  /**
+   * Opens the previous zip to reuse its entries.
+   *
+   * @param zipFile the zip.
+   * @param log     the logger.
+   * @return the index of the zip or null if it is missing or unreadable.
+   */
+  private static ZipIndex openPrevious(Path zipFile, Log log) {
+    if (!Files.isRegularFile(zipFile)) {
+      return null;
+    }
+    try {
+      return ZipIndex.open(zipFile);
+    } catch (IOException e) {
+      log.debug("Unable to reuse the previous zip: " + zipFile + " " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Writes the compressed file to the zip and deletes its temp file.
+   *
+   * @param out    the zip.
+   * @param packed the compressed file.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static void write(JarRewriter out, Packed packed) throws IOException {
+    try (InputStream in = (packed.data != null) ? new ByteArrayInputStream(packed.data)
+        : Files.newInputStream((packed.tempFile != null) ? packed.tempFile : packed.file)) {
+      out.writePrepared(packed.name, packed.method, packed.crc, packed.size, packed.compressedSize, packed.dosTime,
+          packed.unixMode, in);
+    } finally {
+      deleteTemp(packed);
+    }
+  }
+
+  /**
+   * Deletes the temp file of the compressed file.
+   *
+   * @param packed the compressed file.
+   */
+  private static void deleteTemp(Packed packed) {
+    if (packed.tempFile != null) {
+      try {
+        Files.deleteIfExists(packed.tempFile);
+      } catch (IOException e) {
+        // the temp file is in the target dir.
+      }
+    }
+  }
+
+  /**
+   * Compresses a file. The file is stored, if its content is compressed or deflating does not make it smaller.
+   *
+   * @param dir     the zipped dir.
+   * @param file    the file.
+   * @param tempDir  the dir of the temp files.
+   * @param previous the previous zip or null.
+   * @return the compressed file.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private static Packed pack(Path dir, Path file, Path tempDir, ZipIndex previous) throws MojoExecutionException {
+    Packed packed = new Packed();
+    List<String> names = new ArrayList<>();
+    dir.relativize(file).forEach(name -> names.add(name.toString()));
+    packed.name = String.join("/", names);
+    packed.file = file;
+    try {
+      packed.dosTime = JarRewriter.toDosTime(LocalDateTime.ofInstant(Files.getLastModifiedTime(file,
+          LinkOption.NOFOLLOW_LINKS).toInstant(), ZoneId.systemDefault()));
+      if (Files.isSymbolicLink(file)) {
+        link(packed);
+        return packed;
+      }
+      packed.size = Files.size(file);
+      packed.unixMode = JarRewriter.UNIX_FILE | TarWriter.mode(file);
+      ZipIndex.Entry old = (previous != null) ? previous.getEntry(packed.name) : null;
+      if (old != null && !old.isDirectory() && old.getSize() == packed.size
+          && (old.getExternalAttributes() >>> JarRewriter.UNIX_MODE_SHIFT) == packed.unixMode
+          && crc(file) == old.getCrc()) {
+        packed.reused = old;
+        return packed;
+      }
+      if (isCompressed(file, packed.size)) {
+        store(packed);
+      } else {
+        deflate(packed, tempDir);
+        if (packed.compressedSize >= packed.size) {
+          deleteTemp(packed);
+          packed.data = null;
+          packed.tempFile = null;
+          store(packed);
+        }
+      }
+      return packed;
+    } catch (IOException e) {
+      deleteTemp(packed);
+      throw new MojoExecutionException("Unable to compress file: " + file, e);
+    }
+  }
+
+  /**
+   * Prepares a symbolic link. The target of the link is stored as data.
+   *
+   * @param packed the link.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static void link(Packed packed) throws IOException {
+    packed.data = Files.readSymbolicLink(packed.file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8);
+    CRC32 crc = new CRC32();
+    crc.update(packed.data);
+    packed.method = ZipEntry.STORED;
+    packed.crc = crc.getValue();
+    packed.size = packed.data.length;
+    packed.compressedSize = packed.size;
+    packed.unixMode = JarRewriter.UNIX_LINK | TarWriter.MODE_LINK;
+  }
+
+  /**
+   * Tests if the content of the file is compressed. The extension is tested first, then samples of the content are
+   * deflated.
+   *
+   * @param file the file.
+   * @param size the size of the file.
+   * @return true if the content is compressed.
+   * @throws IOException is thrown if an error occurs.
+   */
+  static boolean isCompressed(Path file, long size) throws IOException {
+    String fileName = file.getFileName().toString();
+    int dot = fileName.lastIndexOf('.');
+    if (dot >= 0 && COMPRESSED_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+      return true;
+    }
+    if (size < SAMPLE_SIZE * SAMPLE_COUNT) {
+      return false;
+    }
+    byte[] sample = new byte[SAMPLE_SIZE];
+    byte[] compressed = new byte[SAMPLE_SIZE * 2];
+    long sampled = 0;
+    long deflated = 0;
+    try (FileChannel channel = FileChannel.open(file)) {
+      for (int i = 0; i < SAMPLE_COUNT; i++) {
+        long offset = (size - SAMPLE_SIZE) * i / (SAMPLE_COUNT - 1);
+        ByteBuffer buffer = ByteBuffer.wrap(sample);
+        int len = 0;
+        while (buffer.hasRemaining() && len >= 0) {
+          len = channel.read(buffer, offset + buffer.position());
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+          deflater.setInput(sample, 0, buffer.position());
+          deflater.finish();
+          while (!deflater.finished()) {
+            deflated += deflater.deflate(compressed);
+          }
+        } finally {
+          deflater.end();
+        }
+        sampled += buffer.position();
+      }
+    }
+    return deflated * PERCENT >= sampled * SAMPLE_RATIO;
+  }
+
+  /**
+   * Prepares the file to be stored. The data is read from the file by the writer.
+   *
+   * @param packed the file.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static void store(Packed packed) throws IOException {
+    packed.method = ZipEntry.STORED;
+    packed.crc = crc(packed.file);
+    packed.compressedSize = packed.size;
+  }
+
+  /**
+   * Calculates the crc of the file.
+   *
+   * @param file the file.
+   * @return the crc.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static long crc(Path file) throws IOException {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[Tools.BUFFER_SIZE];
+    try (InputStream in = Files.newInputStream(file)) {
+      int len = in.read(buffer);
+      while (len >= 0) {
+        crc.update(buffer, 0, len);
+        len = in.read(buffer);
+      }
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * Deflates the file. The deflated data is kept in memory up to the limit, a bigger one is written to a temp file.
+   *
+   * @param packed  the file.
+   * @param tempDir the dir of the temp files.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static void deflate(Packed packed, Path tempDir) throws IOException {
+    CRC32 crc = new CRC32();
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    byte[] buffer = new byte[Tools.BUFFER_SIZE];
+    byte[] compressed = new byte[Tools.BUFFER_SIZE];
+    ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    OutputStream out = memory;
+    long compressedSize = 0;
+    try (InputStream in = Files.newInputStream(packed.file)) {
+      int len = in.read(buffer);
+      while (len >= 0) {
+        crc.update(buffer, 0, len);
+        deflater.setInput(buffer, 0, len);
+        while (!deflater.needsInput()) {
+          int count = deflater.deflate(compressed);
+          out = spill(packed, out, memory, compressedSize + count, tempDir);
+          out.write(compressed, 0, count);
+          compressedSize += count;
+        }
+        len = in.read(buffer);
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        int count = deflater.deflate(compressed);
+        out = spill(packed, out, memory, compressedSize + count, tempDir);
+        out.write(compressed, 0, count);
+        compressedSize += count;
+      }
+    } finally {
+      deflater.end();
+      if (out != memory) {
+        out.close();
+      }
+    }
+    packed.method = ZipEntry.DEFLATED;
+    packed.crc = crc.getValue();
+    packed.compressedSize = compressedSize;
+    if (packed.tempFile == null) {
+      packed.data = memory.toByteArray();
+    }
+  }
+
+  /**
+   * Moves the deflated data from memory to a temp file, if it gets bigger than the limit.
+   *
+   * @param packed   the file.
+   * @param out      the current output.
+   * @param memory   the output in memory.
+   * @param newSize  the size of the deflated data after the next write.
+   * @param tempDir  the dir of the temp files.
+   * @return the output to use.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static OutputStream spill(Packed packed, OutputStream out, ByteArrayOutputStream memory, long newSize,
+                                    Path tempDir) throws IOException {
+    if (out != memory || newSize <= MAX_BUFFERED) {
+      return out;
+    }
+    packed.tempFile = Files.createTempFile(tempDir, "zip-", ".deflated");
+    OutputStream fileOut = Files.newOutputStream(packed.tempFile);
+    memory.writeTo(fileOut);
+    memory.reset();
+    return fileOut;
+  }
+}
@@ -0,0 +1,15 @@
+package com.mt_ag.jar.module;
+
+/**
+ * Enum of the execution of the jdk tools.
+ */
+public enum ExecutionEnum {
+  /**
+   * The tool runs in the maven process as ToolProvider. If no ToolProvider is found, the tool is forked.
+   */
+  InProcess,
+  /**
+   * The tool runs in a new process.
+   */
+  Fork
+}
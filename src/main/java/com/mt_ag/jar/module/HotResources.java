@@ -0,0 +1,154 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.IOException;
+import java.lang.module.Configuration;
+import java.lang.module.ModuleReader;
+import java.lang.module.ResolvedModule;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The hot and cold resources of a jlink image. The hot resources are the classes of a class list in the order of
+ * their first load, named like in the jimage: /module/path. All other resources of the modules are cold. The cold
+ * resources are given as glob patterns for the compress filter of jlink, which has no exclude. A package without a
+ * hot class is one pattern, in a package with hot classes every cold resource is a pattern.
+ */
+final class HotResources {
+
+  /**
+   * The extension of a class entry.
+   */
+  private static final String CLASS_EXTENSION = ".class";
+
+  /**
+   * The hot resources in load order.
+   */
+  private final List<String> hot;
+
+  /**
+   * The patterns of the cold resources.
+   */
+  private final List<String> coldPatterns;
+
+  /**
+   * The constructor with all fields.
+   *
+   * @param pHot          the hot resources in load order.
+   * @param pColdPatterns the patterns of the cold resources.
+   */
+  private HotResources(List<String> pHot, List<String> pColdPatterns) {
+    hot = pHot;
+    coldPatterns = pColdPatterns;
+  }
+
+  /**
+   * Gets the hot resources in load order.
+   *
+   * @return the resources.
+   */
+  List<String> getHot() {
+    return hot;
+  }
+
+  /**
+   * Gets the hot classes in load order for the plugin order-resources, which reads them like a class list: the name
+   * of the class entry without module and extension.
+   *
+   * @return the classes.
+   */
+  List<String> getOrderLines() {
+    return hot.stream().map(name -> name.substring(name.indexOf('/', 1) + 1,
+        name.length() - CLASS_EXTENSION.length())).collect(Collectors.toList());
+  }
+
+  /**
+   * Gets the patterns of the cold resources.
+   *
+   * @return the glob patterns.
+   */
+  List<String> getColdPatterns() {
+    return coldPatterns;
+  }
+
+  /**
+   * Resolves the modules of the image and splits their resources in hot and cold.
+   *
+   * @param modulesPath the module path of jlink.
+   * @param modules     the root modules of the image, separated by comma.
+   * @param classes     the class entries in load order.
+   * @return the hot and cold resources.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  static HotResources of(Path modulesPath, String modules, List<String> classes) throws MojoExecutionException {
+    Configuration configuration = ModuleSet.of(modulesPath, Arrays.asList(modules.split(",")), false)
+        .getConfiguration();
+    Map<String, String> packageModules = new HashMap<>();
+    for (ResolvedModule module : configuration.modules()) {
+      module.reference().descriptor().packages().forEach(pkg -> packageModules.put(pkg, module.name()));
+    }
+    List<String> hot = new ArrayList<>();
+    for (String entry : classes) {
+      int slash = entry.lastIndexOf('/');
+      String module = (slash > 0) ? packageModules.get(entry.substring(0, slash).replace('/', '.')) : null;
+      if (module != null) {
+        hot.add("/" + module + "/" + entry);
+      }
+    }
+    Set<String> hotSet = new HashSet<>(hot);
+    Set<String> hotDirs = hot.stream().map(name -> name.substring(0, name.lastIndexOf('/')))
+        .collect(Collectors.toSet());
+
+    Map<String, List<String>> dirs = new TreeMap<>();
+    for (ResolvedModule module : configuration.modules()) {
+      try (ModuleReader reader = module.reference().open();
+           Stream<String> resources = reader.list()) {
+        resources.filter(name -> !name.endsWith("/")).forEach(name -> {
+          String resource = "/" + module.name() + "/" + name;
+          dirs.computeIfAbsent(resource.substring(0, resource.lastIndexOf('/')), dir -> new ArrayList<>())
+              .add(resource);
+        });
+      } catch (IOException e) {
+        throw new MojoExecutionException("Unable to list resources of module: " + module.name(), e);
+      }
+    }
+    Set<String> coldPatterns = new TreeSet<>();
+    for (Map.Entry<String, List<String>> dir : dirs.entrySet()) {
+      if (hotDirs.contains(dir.getKey())) {
+        dir.getValue().stream().filter(name -> !hotSet.contains(name)).map(HotResources::escape)
+            .forEach(coldPatterns::add);
+      } else {
+        coldPatterns.add(escape(dir.getKey()) + "/*");
+      }
+    }
+    return new HotResources(hot, new ArrayList<>(coldPatterns));
+  }
+
+  /**
+   * Escapes the special chars of a glob.
+   *
+   * @param name the name.
+   * @return the glob matching the name.
+   */
+  static String escape(String name) {
+    StringBuilder glob = new StringBuilder(name.length());
+    for (char c : name.toCharArray()) {
+      if ("\\*?[]{}".indexOf(c) >= 0) {
+        glob.append('\\');
+      }
+      glob.append(c);
+    }
+    return glob.toString();
+  }
+}
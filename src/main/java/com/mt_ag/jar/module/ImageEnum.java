@@ -0,0 +1,19 @@
+package com.mt_ag.jar.module;
+
+/**
+ * Enum of the output of the jlink runtime.
+ */
+public enum ImageEnum {
+  /**
+   * The runtime is packed as run archive in the format of the parameter archive.
+   */
+  Zip,
+  /**
+   * The runtime is packed as OCI image layout with a layer for the jdk, the modules and the application.
+   */
+  Oci,
+  /**
+   * The runtime is packed as run archive and as OCI image layout.
+   */
+  ZipAndOci
+}
@@ -0,0 +1,413 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import javax.lang.model.SourceVersion;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.module.InvalidModuleDescriptorException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The metadata of a jar, read in one pass over its central directory. Only the manifest, the module-info and the
+ * service files are inflated. The index of a jar is kept as long as its size, time and file key are unchanged, so
+ * all mojos of a build share it. The module descriptor is the same as the one of a ModuleFinder.
+ */
+public final class JarIndex {
+
+  /**
+   * The dir of the versioned entries in a multi release jar.
+   */
+  static final String VERSIONS_DIR = "META-INF/versions/";
+
+  /**
+   * The dir of the service files.
+   */
+  private static final String SERVICES_DIR = "META-INF/services/";
+
+  /**
+   * The name of the module-info.
+   */
+  static final String MODULE_INFO = "module-info.class";
+
+  /**
+   * The extension of a class file.
+   */
+  private static final String CLASS_EXTENSION = ".class";
+
+  /**
+   * The manifest attribute of the automatic module name.
+   */
+  private static final String AUTOMATIC_MODULE_NAME = "Automatic-Module-Name";
+
+  /**
+   * The first version dash in a jar name.
+   */
+  private static final Pattern DASH_VERSION = Pattern.compile("-(\\d+(\\.|$))");
+
+  /**
+   * The non alphanumeric chars of a module name.
+   */
+  private static final Pattern NON_ALPHANUM = Pattern.compile("[^A-Za-z0-9]");
+
+  /**
+   * The repeating dots of a module name.
+   */
+  private static final Pattern REPEATING_DOTS = Pattern.compile("(\\.)(\\1)+");
+
+  /**
+   * The index of the read jars.
+   */
+  private static final Map<Path, JarIndex> INDEX = new ConcurrentHashMap<>();
+
+  /**
+   * The attributes of the jar, when it was read.
+   */
+  private final BasicFileAttributes attributes;
+
+  /**
+   * True if the jar is a multi release jar.
+   */
+  private final boolean multiRelease;
+
+  /**
+   * The module descriptor.
+   */
+  private final ModuleDescriptor descriptor;
+
+  /**
+   * The packages of all entries, as they are found for a module with module-info.
+   */
+  private final Set<String> jarPackages;
+
+  /**
+   * The main class of the manifest or null.
+   */
+  private final String mainClass;
+
+  /**
+   * The providers of the service files by service.
+   */
+  private final Map<String, List<String>> services;
+
+  /**
+   * The constructor reads the jar.
+   *
+   * @param jar         the jar.
+   * @param pAttributes the attributes of the jar.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private JarIndex(Path jar, BasicFileAttributes pAttributes) throws IOException {
+    attributes = pAttributes;
+    try (ZipIndex zip = ZipIndex.open(jar)) {
+      Manifest manifest = null;
+      ZipIndex.Entry manifestEntry = zip.getEntry(JarFile.MANIFEST_NAME);
+      if (manifestEntry != null) {
+        try (InputStream in = zip.open(manifestEntry)) {
+          manifest = new Manifest(in);
+        }
+      }
+      Attributes main = (manifest == null) ? new Attributes() : manifest.getMainAttributes();
+      multiRelease = "true".equalsIgnoreCase(main.getValue("Multi-Release"));
+      String mainValue = main.getValue(Attributes.Name.MAIN_CLASS);
+      mainClass = (mainValue == null) ? null : mainValue.replace('/', '.');
+
+      Map<String, ZipIndex.Entry> entries = versionedEntries(zip, multiRelease);
+      services = readServices(zip, entries);
+      jarPackages = Collections.unmodifiableSet(packages(entries.keySet(), false));
+      ZipIndex.Entry moduleInfo = entries.get(MODULE_INFO);
+      if (moduleInfo == null) {
+        descriptor = deriveDescriptor(jar, main, entries.keySet());
+      } else {
+        try (InputStream in = zip.open(moduleInfo)) {
+          descriptor = ModuleDescriptor.read(in, () -> jarPackages);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the index of the jar. The jar is read, if it is not in the index or changed since.
+   *
+   * @param jar the jar.
+   * @return the index of the jar.
+   * @throws MojoExecutionException is thrown if the jar can not be read.
+   */
+  public static JarIndex of(Path jar) throws MojoExecutionException {
+    Path key = jar.toAbsolutePath().normalize();
+    try {
+      BasicFileAttributes current = Files.readAttributes(key, BasicFileAttributes.class);
+      JarIndex index = INDEX.get(key);
+      if (index == null || !index.isSame(current)) {
+        index = new JarIndex(key, current);
+        INDEX.put(key, index);
+      }
+      return index;
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to read jar: " + jar, e);
+    } catch (IllegalArgumentException | InvalidModuleDescriptorException e) {
+      throw new MojoExecutionException("Unable to derive module of jar: " + jar, e);
+    }
+  }
+
+  /**
+   * Removes the jar from the index, after it is changed in place.
+   *
+   * @param jar the jar.
+   */
+  public static void invalidate(Path jar) {
+    INDEX.remove(jar.toAbsolutePath().normalize());
+  }
+
+  /**
+   * Tests if the jar is unchanged since it was read.
+   *
+   * @param current the current attributes of the jar.
+   * @return true if it is unchanged.
+   */
+  private boolean isSame(BasicFileAttributes current) {
+    return attributes.size() == current.size()
+        && attributes.lastModifiedTime().equals(current.lastModifiedTime())
+        && Objects.equals(attributes.fileKey(), current.fileKey());
+  }
+
+  /**
+   * Gets the entries as seen by the runtime. The entries of the highest version up to the runtime version replace
+   * the base entries of a multi release jar. Directories are skipped.
+   *
+   * @param zip          the jar.
+   * @param multiRelease true if the jar is a multi release jar.
+   * @return the entries by name.
+   */
+  static Map<String, ZipIndex.Entry> versionedEntries(ZipIndex zip, boolean multiRelease) {
+    int runtimeVersion = JarFile.runtimeVersion().feature();
+    Map<String, ZipIndex.Entry> selected = new LinkedHashMap<>();
+    Map<String, Integer> selectedVersion = new HashMap<>();
+    for (ZipIndex.Entry entry : zip.getEntries()) {
+      String name = entry.getName();
+      int version = 0;
+      if (multiRelease && name.startsWith(VERSIONS_DIR)) {
+        int slash = name.indexOf('/', VERSIONS_DIR.length());
+        try {
+          version = (slash < 0) ? -1 : Integer.parseInt(name.substring(VERSIONS_DIR.length(), slash));
+        } catch (NumberFormatException e) {
+          version = -1;
+        }
+        if (version < 1 || version > runtimeVersion) {
+          continue;
+        }
+        name = name.substring(slash + 1);
+      }
+      if (!entry.isDirectory() && !name.isEmpty() && selectedVersion.getOrDefault(name, -1) < version) {
+        selected.put(name, entry);
+        selectedVersion.put(name, version);
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Reads the service files.
+   *
+   * @param zip     the jar.
+   * @param entries the versioned entries.
+   * @return the providers by service.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static Map<String, List<String>> readServices(ZipIndex zip, Map<String, ZipIndex.Entry> entries)
+      throws IOException {
+    Map<String, List<String>> result = new LinkedHashMap<>();
+    for (Map.Entry<String, ZipIndex.Entry> entry : entries.entrySet()) {
+      String name = entry.getKey();
+      if (!name.startsWith(SERVICES_DIR) || name.indexOf('/', SERVICES_DIR.length()) >= 0) {
+        continue;
+      }
+      String service = name.substring(SERVICES_DIR.length());
+      if (!SourceVersion.isName(service)) {
+        continue;
+      }
+      List<String> providers = new ArrayList<>();
+      try (BufferedReader reader = new BufferedReader(
+          new InputStreamReader(zip.open(entry.getValue()), StandardCharsets.UTF_8))) {
+        String line = reader.readLine();
+        while (line != null) {
+          int comment = line.indexOf('#');
+          String provider = ((comment >= 0) ? line.substring(0, comment) : line).trim();
+          if (!provider.isEmpty()) {
+            providers.add(provider);
+          }
+          line = reader.readLine();
+        }
+      }
+      result.put(service, Collections.unmodifiableList(providers));
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * Gets the packages of the entries.
+   *
+   * @param names     the names of the entries.
+   * @param classOnly true if only the packages of class files count.
+   * @return the packages.
+   */
+  private static Set<String> packages(Set<String> names, boolean classOnly) {
+    Set<String> result = new HashSet<>();
+    for (String name : names) {
+      boolean classFile = name.endsWith(CLASS_EXTENSION);
+      if (classOnly && (!classFile || name.startsWith(SERVICES_DIR))) {
+        continue;
+      }
+      int index = name.lastIndexOf('/');
+      if (index < 0) {
+        if (classFile && !name.equals(MODULE_INFO)) {
+          throw new InvalidModuleDescriptorException(name + " found in top-level directory"
+              + " (unnamed package not allowed in module)");
+        }
+        continue;
+      }
+      String packageName = name.substring(0, index).replace('/', '.');
+      if (SourceVersion.isName(packageName)) {
+        result.add(packageName);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the package of a class.
+   *
+   * @param className the class name.
+   * @return the package, empty for the unnamed package.
+   */
+  private static String packageOf(String className) {
+    int index = className.lastIndexOf('.');
+    return (index < 0) ? "" : className.substring(0, index);
+  }
+
+  /**
+   * Derives the descriptor of an automatic module like the ModuleFinder. The name and the version are derived from
+   * the file name by the rules of ModuleFinder.of, the tests compare them with the ModuleFinder.
+   *
+   * @param jar   the jar.
+   * @param main  the main attributes of the manifest.
+   * @param names the names of the versioned entries.
+   * @return the descriptor.
+   */
+  private ModuleDescriptor deriveDescriptor(Path jar, Attributes main, Set<String> names) {
+    String fileName = jar.getFileName().toString();
+    String name = fileName.substring(0, fileName.length() - UpdateModules.EXTENSION_LENGTH);
+    String version = null;
+    Matcher matcher = DASH_VERSION.matcher(name);
+    if (matcher.find()) {
+      try {
+        String tail = name.substring(matcher.start() + 1);
+        ModuleDescriptor.Version.parse(tail);
+        version = tail;
+      } catch (IllegalArgumentException e) {
+        // no version, like the ModuleFinder.
+      }
+      name = name.substring(0, matcher.start());
+    }
+    String moduleName = main.getValue(AUTOMATIC_MODULE_NAME);
+    if (moduleName == null) {
+      moduleName = REPEATING_DOTS.matcher(NON_ALPHANUM.matcher(name).replaceAll(".")).replaceAll(".");
+      moduleName = moduleName.replaceAll("^\\.", "").replaceAll("\\.$", "");
+    }
+    ModuleDescriptor.Builder builder = ModuleDescriptor.newAutomaticModule(moduleName);
+    if (version != null) {
+      builder.version(version);
+    }
+    Set<String> packages = packages(names, true);
+    builder.packages(packages);
+    for (Map.Entry<String, List<String>> service : services.entrySet()) {
+      for (String provider : service.getValue()) {
+        if (!packages.contains(packageOf(provider))) {
+          throw new InvalidModuleDescriptorException("Provider class " + provider + " not in module");
+        }
+      }
+      if (!service.getValue().isEmpty()) {
+        builder.provides(service.getKey(), service.getValue());
+      }
+    }
+    if (mainClass != null && SourceVersion.isName(mainClass) && packages.contains(packageOf(mainClass))) {
+      builder.mainClass(mainClass);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Tests if the jar is a multi release jar.
+   *
+   * @return true if it is a multi release jar.
+   */
+  public boolean isMultiRelease() {
+    return multiRelease;
+  }
+
+  /**
+   * Gets the module descriptor, for a jar without module-info the one of the automatic module.
+   *
+   * @return the module descriptor.
+   */
+  public ModuleDescriptor getDescriptor() {
+    return descriptor;
+  }
+
+  /**
+   * Gets the packages of the module.
+   *
+   * @return the packages.
+   */
+  public Set<String> getPackages() {
+    return descriptor.packages();
+  }
+
+  /**
+   * Gets the packages of all entries, the packages of the jar with a module-info.
+   *
+   * @return the packages.
+   */
+  public Set<String> getJarPackages() {
+    return jarPackages;
+  }
+
+  /**
+   * Gets the main class of the manifest.
+   *
+   * @return the main class or null.
+   */
+  public String getMainClass() {
+    return mainClass;
+  }
+
+  /**
+   * Gets the providers of the service files.
+   *
+   * @return the providers by service.
+   */
+  public Map<String, List<String>> getServices() {
+    return services;
+  }
+}
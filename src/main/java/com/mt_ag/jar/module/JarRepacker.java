@@ -0,0 +1,386 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Repacks a jar without the dir entries. The entries are copied raw or compressed again with the level and strategy.
+ * Hot entries are stored with the data aligned, so they can be mapped into memory without inflating them. The
+ * entries are compressed in parallel by the threads of the pipeline and written in the order of the source or in the
+ * load order of the classes. Only a window of entries is compressed ahead of the writer. The entries are streamed and
+ * compressed data bigger than a limit is buffered in a temp file, so the memory is bounded regardless of the size of
+ * an entry. Stored entries are inflated from the source by the writer.
+ */
+public final class JarRepacker {
+
+  /**
+   * The level to copy the raw entries.
+   */
+  public static final int LEVEL_COPY = -1;
+
+  /**
+   * The count of entries compressed ahead of the writer per thread.
+   */
+  private static final int WINDOW_PER_THREAD = 4;
+
+  /**
+   * The strategies tried by Best.
+   */
+  private static final int[] BEST_STRATEGIES = {Deflater.DEFAULT_STRATEGY, Deflater.FILTERED,
+      Deflater.HUFFMAN_ONLY};
+
+  /**
+   * An entry compressed again.
+   */
+  private static final class Packed {
+
+    /**
+     * The entry of the source.
+     */
+    private ZipIndex.Entry entry;
+
+    /**
+     * The method.
+     */
+    private int method;
+
+    /**
+     * The size of the compressed data.
+     */
+    private long compressedSize;
+
+    /**
+     * The deflated data in memory or null.
+     */
+    private byte[] data;
+
+    /**
+     * The temp file of the deflated data or null.
+     */
+    private Path tempFile;
+
+    /**
+     * True if the entry is written again, false if it is copied raw or removed.
+     */
+    private boolean rewritten;
+
+    /**
+     * True if the entry is stored with the data aligned.
+     */
+    private boolean hot;
+  }
+
+  /**
+   * Private constructor of static class.
+   */
+  private JarRepacker() {
+  }
+
+  /**
+   * Repacks the jar. The dir entries are removed.
+   *
+   * @param pipeline  the pipeline to compress the entries.
+   * @param source    the source jar.
+   * @param target    the target jar.
+   * @param level     the deflate level or LEVEL_COPY to copy the raw entries if the strategy is Default.
+   * @param strategy  the deflate strategy, null is Default.
+   * @param order     the names of the class entries in load order, null keeps the order of the source.
+   * @param hot       the test of the hot entries, stored with the data aligned. Null for none.
+   * @param alignment the alignment of the data of the hot entries.
+   * @param log       the logger.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  public static void repack(ModulePipeline pipeline, Path source, Path target, int level, StrategyEnum strategy,
+                            List<String> order, Predicate<ZipIndex.Entry> hot, int alignment, Log log)
+      throws MojoExecutionException {
+    StrategyEnum used = (strategy != null) ? strategy : StrategyEnum.Default;
+    boolean copy = level == LEVEL_COPY && used == StrategyEnum.Default;
+    int window = pipeline.getThreadCount() * WINDOW_PER_THREAD;
+    Path tempDir = target.toAbsolutePath().getParent();
+    Deque<CompletableFuture<Packed>> pending = new ArrayDeque<>();
+    long size = 0;
+    int aligned = 0;
+    try (ZipIndex jar = ZipIndex.open(source);
+         JarRewriter jarOut = new JarRewriter(target)) {
+      List<ZipIndex.Entry> entries = (order != null) ? ClassOrder.sort(jar.getEntries(), order) : jar.getEntries();
+      int next = 0;
+      while (next < entries.size() || !pending.isEmpty()) {
+        while (next < entries.size() && pending.size() < window) {
+          ZipIndex.Entry entry = entries.get(next++);
+          boolean isHot = hot != null && !entry.isDirectory() && hot.test(entry);
+          if (isHot) {
+            pending.add(CompletableFuture.completedFuture(store(entry)));
+          } else if (copy || entry.isDirectory()) {
+            Packed skipped = new Packed();
+            skipped.entry = entry;
+            pending.add(CompletableFuture.completedFuture(skipped));
+          } else {
+            pending.add(pipeline.submit(() -> compress(jar, entry, level, used, tempDir)));
+          }
+        }
+        if (!pending.isEmpty()) {
+          Packed packed = ModulePipeline.awaitAll(List.of(pending.removeFirst())).get(0);
+          log.info("Entry:" + packed.entry.getName());
+          if (packed.rewritten) {
+            write(jar, jarOut, packed, alignment);
+            size += packed.compressedSize;
+            aligned += packed.hot ? 1 : 0;
+          } else if (!packed.entry.isDirectory()) {
+            jarOut.copy(jar, packed.entry, packed.entry.getName());
+            size += packed.entry.getCompressedSize();
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Error reading artifact: " + source.getFileName().toString(), e);
+    } finally {
+      for (CompletableFuture<Packed> future : pending) {
+        future.thenAccept(JarRepacker::deleteTemp);
+      }
+    }
+    log.info("Compressed size of the entries: " + size);
+    if (hot != null) {
+      log.info("Stored and aligned entries: " + aligned);
+    }
+  }
+
+  /**
+   * Writes the entry compressed again and deletes its temp file. A stored entry is inflated from the source.
+   *
+   * @param jar       the source jar.
+   * @param jarOut    the target jar.
+   * @param packed    the entry.
+   * @param alignment the alignment of the data of a hot entry.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static void write(ZipIndex jar, JarRewriter jarOut, Packed packed, int alignment) throws IOException {
+    try (InputStream in = (packed.data != null) ? new ByteArrayInputStream(packed.data)
+        : (packed.tempFile != null) ? Files.newInputStream(packed.tempFile) : jar.open(packed.entry)) {
+      jarOut.writeRecompressed(packed.entry, packed.method, packed.compressedSize, packed.hot ? alignment : 0, in);
+    } finally {
+      deleteTemp(packed);
+    }
+  }
+
+  /**
+   * Deletes the temp file of the entry.
+   *
+   * @param packed the entry.
+   */
+  private static void deleteTemp(Packed packed) {
+    if (packed.tempFile != null) {
+      try {
+        Files.deleteIfExists(packed.tempFile);
+      } catch (IOException e) {
+        // the temp file is in the target dir.
+      }
+    }
+  }
+
+  /**
+   * Prepares an entry to store it with the data aligned. The data is inflated from the source by the writer.
+   *
+   * @param entry the entry.
+   * @return the stored entry.
+   */
+  private static Packed store(ZipIndex.Entry entry) {
+    Packed packed = new Packed();
+    packed.entry = entry;
+    packed.rewritten = true;
+    packed.method = ZipEntry.STORED;
+    packed.compressedSize = entry.getSize();
+    packed.hot = true;
+    return packed;
+  }
+
+  /**
+   * Compresses an entry again. The entry is stored if the compressed data is not smaller. Best measures the
+   * strategies in one pass without keeping the data and deflates the entry again with the smallest one.
+   *
+   * @param jar      the source jar.
+   * @param entry    the entry.
+   * @param level    the deflate level or LEVEL_COPY for the default level.
+   * @param strategy the strategy.
+   * @param tempDir  the dir of the temp files.
+   * @return the compressed entry.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private static Packed compress(ZipIndex jar, ZipIndex.Entry entry, int level, StrategyEnum strategy, Path tempDir)
+      throws MojoExecutionException {
+    Packed packed = new Packed();
+    packed.entry = entry;
+    packed.rewritten = true;
+    try {
+      if (strategy == StrategyEnum.Best) {
+        deflate(jar, packed, Deflater.BEST_COMPRESSION, bestStrategy(jar, entry), tempDir);
+      } else {
+        int deflateLevel = (level == LEVEL_COPY) ? Deflater.DEFAULT_COMPRESSION : level;
+        deflate(jar, packed, deflateLevel, deflateStrategy(strategy), tempDir);
+      }
+    } catch (IOException e) {
+      deleteTemp(packed);
+      throw new MojoExecutionException("Unable to compress entry: " + entry.getName(), e);
+    }
+    if (packed.compressedSize >= entry.getSize()) {
+      deleteTemp(packed);
+      packed.data = null;
+      packed.tempFile = null;
+      packed.method = ZipEntry.STORED;
+      packed.compressedSize = entry.getSize();
+    }
+    return packed;
+  }
+
+  /**
+   * Gets the strategy of the deflater.
+   *
+   * @param strategy the strategy.
+   * @return the strategy of the deflater.
+   */
+  private static int deflateStrategy(StrategyEnum strategy) {
+    switch (strategy) {
+      case Filtered:
+        return Deflater.FILTERED;
+      case HuffmanOnly:
+        return Deflater.HUFFMAN_ONLY;
+      default:
+        return Deflater.DEFAULT_STRATEGY;
+    }
+  }
+
+  /**
+   * Finds the strategy of the deflater with the smallest output for the entry. The entry is inflated once and fed to
+   * a deflater per strategy, only the sizes of the outputs are counted.
+   *
+   * @param jar   the source jar.
+   * @param entry the entry.
+   * @return the strategy of the deflater.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static int bestStrategy(ZipIndex jar, ZipIndex.Entry entry) throws IOException {
+    Deflater[] deflaters = new Deflater[BEST_STRATEGIES.length];
+    long[] sizes = new long[BEST_STRATEGIES.length];
+    byte[] buffer = new byte[Tools.BUFFER_SIZE];
+    byte[] compressed = new byte[Tools.BUFFER_SIZE];
+    try (InputStream in = jar.open(entry)) {
+      for (int i = 0; i < deflaters.length; i++) {
+        deflaters[i] = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflaters[i].setStrategy(BEST_STRATEGIES[i]);
+      }
+      int len = in.read(buffer);
+      while (len >= 0) {
+        for (int i = 0; i < deflaters.length; i++) {
+          deflaters[i].setInput(buffer, 0, len);
+          while (!deflaters[i].needsInput()) {
+            sizes[i] += deflaters[i].deflate(compressed);
+          }
+        }
+        len = in.read(buffer);
+      }
+      int best = 0;
+      for (int i = 0; i < deflaters.length; i++) {
+        deflaters[i].finish();
+        while (!deflaters[i].finished()) {
+          sizes[i] += deflaters[i].deflate(compressed);
+        }
+        best = (sizes[i] < sizes[best]) ? i : best;
+      }
+      return BEST_STRATEGIES[best];
+    } finally {
+      for (Deflater deflater : deflaters) {
+        if (deflater != null) {
+          deflater.end();
+        }
+      }
+    }
+  }
+
+  /**
+   * Deflates the entry. The deflated data is kept in memory up to the limit, a bigger one is written to a temp file.
+   *
+   * @param jar      the source jar.
+   * @param packed   the entry.
+   * @param level    the level.
+   * @param strategy the strategy of the deflater.
+   * @param tempDir  the dir of the temp files.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static void deflate(ZipIndex jar, Packed packed, int level, int strategy, Path tempDir)
+      throws IOException {
+    Deflater deflater = new Deflater(level, true);
+    byte[] buffer = new byte[Tools.BUFFER_SIZE];
+    byte[] compressed = new byte[Tools.BUFFER_SIZE];
+    ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    OutputStream out = memory;
+    long compressedSize = 0;
+    try (InputStream in = jar.open(packed.entry)) {
+      deflater.setStrategy(strategy);
+      int len = in.read(buffer);
+      while (len >= 0) {
+        deflater.setInput(buffer, 0, len);
+        while (!deflater.needsInput()) {
+          int count = deflater.deflate(compressed);
+          out = spill(packed, out, memory, compressedSize + count, tempDir);
+          out.write(compressed, 0, count);
+          compressedSize += count;
+        }
+        len = in.read(buffer);
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        int count = deflater.deflate(compressed);
+        out = spill(packed, out, memory, compressedSize + count, tempDir);
+        out.write(compressed, 0, count);
+        compressedSize += count;
+      }
+    } finally {
+      deflater.end();
+      if (out != memory) {
+        out.close();
+      }
+    }
+    packed.method = ZipEntry.DEFLATED;
+    packed.compressedSize = compressedSize;
+    if (packed.tempFile == null) {
+      packed.data = memory.toByteArray();
+    }
+  }
+
+  /**
+   * Moves the deflated data from memory to a temp file, if it gets bigger than the limit.
+   *
+   * @param packed  the entry.
+   * @param out     the current output.
+   * @param memory  the output in memory.
+   * @param newSize the size of the deflated data after the next write.
+   * @param tempDir the dir of the temp files.
+   * @return the output to use.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private static OutputStream spill(Packed packed, OutputStream out, ByteArrayOutputStream memory, long newSize,
+                                    Path tempDir) throws IOException {
+    if (out != memory || newSize <= DirZipper.MAX_BUFFERED) {
+      return out;
+    }
+    packed.tempFile = Files.createTempFile(tempDir, "repack-", ".deflated");
+    OutputStream fileOut = Files.newOutputStream(packed.tempFile);
+    memory.writeTo(fileOut);
+    memory.reset();
+    return fileOut;
+  }
+}
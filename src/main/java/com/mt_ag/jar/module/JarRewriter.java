@@ -0,0 +1,716 @@
+package com.mt_ag.jar.module;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a jar or zip file. Unchanged entries are copied as raw compressed bytes with the crc and sizes of the
+ * source, only new or changed entries are compressed. The data is streamed, so the memory is bounded regardless of
+ * the size of an entry. The zip64 fields are written only if an entry, the count of entries or the size of the zip
+ * needs them.
+ */
+public class JarRewriter implements Closeable {
+
+  /**
+   * The version needed to extract a deflated entry.
+   */
+  private static final int VERSION_DEFLATED = 20;
+
+  /**
+   * The version needed to extract a stored entry.
+   */
+  private static final int VERSION_STORED = 10;
+
+  /**
+   * The version needed to extract an entry with zip64 fields.
+   */
+  private static final int VERSION_ZIP64 = 45;
+
+  /**
+   * The version made by of an entry with unix attributes, the host 3 is unix.
+   */
+  private static final int VERSION_MADE_BY_UNIX = 0x0314;
+
+  /**
+   * The id of the extra field padding the data of an entry to the alignment, as written by zipalign.
+   */
+  static final int ALIGN_EXTRA_ID = 0xD935;
+
+  /**
+   * The size of the extra field of the alignment without padding: id, size and alignment.
+   */
+  private static final int ALIGN_EXTRA_SIZE = 6;
+
+  /**
+   * The maximal alignment of the data of an entry.
+   */
+  static final int MAX_ALIGNMENT = 0x8000;
+
+  /**
+   * The shift of the unix mode in the external attributes.
+   */
+  static final int UNIX_MODE_SHIFT = 16;
+
+  /**
+   * The unix file type of a regular file.
+   */
+  static final int UNIX_FILE = 0100000;
+
+  /**
+   * The unix file type of a symbolic link.
+   */
+  static final int UNIX_LINK = 0120000;
+
+  /**
+   * The size of the data descriptor with signature.
+   */
+  private static final int DATA_DESC_SIZE = 16;
+
+  /**
+   * The size of the data descriptor with signature and zip64 sizes.
+   */
+  private static final int DATA_DESC64_SIZE = 24;
+
+  /**
+   * The first year of the dos time.
+   */
+  private static final int DOS_YEAR = 1980;
+
+  /**
+   * The shift of the year in the dos date.
+   */
+  private static final int DOS_YEAR_SHIFT = 9;
+
+  /**
+   * The shift of the month in the dos date.
+   */
+  private static final int DOS_MONTH_SHIFT = 5;
+
+  /**
+   * The shift of the hour in the dos time.
+   */
+  private static final int DOS_HOUR_SHIFT = 11;
+
+  /**
+   * The shift of the minute in the dos time.
+   */
+  private static final int DOS_MINUTE_SHIFT = 5;
+
+  /**
+   * The shift of the date in the dos time.
+   */
+  private static final int DOS_DATE_SHIFT = 16;
+
+  /**
+   * A header of a written entry, used for the central directory.
+   */
+  private static final class Header {
+
+    /**
+     * The name as bytes.
+     */
+    private byte[] name;
+
+    /**
+     * The version made by.
+     */
+    private int versionMadeBy = VERSION_DEFLATED;
+
+    /**
+     * The version needed to extract.
+     */
+    private int versionNeeded;
+
+    /**
+     * The flags.
+     */
+    private int flags;
+
+    /**
+     * The method.
+     */
+    private int method;
+
+    /**
+     * The dos time and date.
+     */
+    private long dosTime;
+
+    /**
+     * The crc.
+     */
+    private long crc;
+
+    /**
+     * The compressed size.
+     */
+    private long compressedSize;
+
+    /**
+     * The size.
+     */
+    private long size;
+
+    /**
+     * The extra of the central directory.
+     */
+    private byte[] extra = new byte[0];
+
+    /**
+     * The comment.
+     */
+    private byte[] comment = new byte[0];
+
+    /**
+     * The external attributes.
+     */
+    private long externalAttributes;
+
+    /**
+     * The offset of the local header.
+     */
+    private long offset;
+  }
+
+  /**
+   * The output stream.
+   */
+  private final OutputStream out;
+
+  /**
+   * The channel of a zip opened for append or null.
+   */
+  private final FileChannel channel;
+
+  /**
+   * The offset of the central directory of a zip opened for append.
+   */
+  private final long appendOffset;
+
+  /**
+   * The central directory and end record of a zip opened for append or null. They are written back, if the append
+   * failed.
+   */
+  private final byte[] appendTail;
+
+  /**
+   * False while an entry is written, it stays false if writing an entry failed.
+   */
+  private boolean complete = true;
+
+  /**
+   * The written headers.
+   */
+  private final List<Header> headers = new ArrayList<>();
+
+  /**
+   * The copy buffer.
+   */
+  private final byte[] buffer = new byte[Tools.BUFFER_SIZE];
+
+  /**
+   * The count of written bytes.
+   */
+  private long position;
+
+  /**
+   * The constructor creates or truncates the target file.
+   *
+   * @param pTarget the target file.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public JarRewriter(Path pTarget) throws IOException {
+    out = new BufferedOutputStream(Files.newOutputStream(pTarget, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), Tools.BUFFER_SIZE);
+    channel = null;
+    appendOffset = 0;
+    appendTail = null;
+  }
+
+  /**
+   * The constructor of a zip opened for append.
+   *
+   * @param pChannel the channel of the zip positioned at the start of the central directory.
+   * @param pTail    the central directory and end record of the zip.
+   * @param existing the headers of the kept entries.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private JarRewriter(FileChannel pChannel, byte[] pTail, List<Header> existing) throws IOException {
+    channel = pChannel;
+    appendOffset = pChannel.position();
+    appendTail = pTail;
+    out = new BufferedOutputStream(Channels.newOutputStream(pChannel), Tools.BUFFER_SIZE);
+    position = pChannel.position();
+    headers.addAll(existing);
+  }
+
+  /**
+   * Opens a zip to append entries in place. The existing entries are not written again, the new entries are written
+   * over the central directory and the central directory is written new on close. A replaced entry is removed from
+   * the central directory, its data stays unused in the file. The old central directory is kept in memory, if writing
+   * failed it is written back and the zip is truncated to its old length. The zip must not share its data with
+   * another file, so a staged jar must be a reflink or a copy.
+   *
+   * @param target   the zip to update.
+   * @param replaced the names of the entries to replace.
+   * @return the writer to append the entries.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public static JarRewriter append(Path target, String... replaced) throws IOException {
+    Set<String> replacedNames = Set.of(replaced);
+    List<Header> existing = new ArrayList<>();
+    long centralOffset;
+    try (ZipIndex index = ZipIndex.open(target)) {
+      for (ZipIndex.Entry entry : index.getEntries()) {
+        if (!replacedNames.contains(entry.getName())) {
+          Header header = header(entry, entry.getName());
+          header.flags = entry.getFlags();
+          header.offset = entry.getLocalHeaderOffset();
+          existing.add(header);
+        }
+      }
+      centralOffset = index.getCentralOffset();
+    }
+    FileChannel fileChannel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long tailSize = fileChannel.size() - centralOffset;
+      if (tailSize < 0 || tailSize > Integer.MAX_VALUE) {
+        throw new IOException("Invalid central directory of zip: " + target);
+      }
+      ByteBuffer tail = ByteBuffer.allocate((int) tailSize);
+      while (tail.hasRemaining()) {
+        if (fileChannel.read(tail, centralOffset + tail.position()) < 0) {
+          throw new IOException("Unexpected end of zip: " + target);
+        }
+      }
+      fileChannel.position(centralOffset);
+      return new JarRewriter(fileChannel, tail.array(), existing);
+    } catch (IOException e) {
+      fileChannel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Creates the header of an entry of a source.
+   *
+   * @param entry the entry of the source.
+   * @param name  the name of the new entry.
+   * @return the header.
+   */
+  private static Header header(ZipIndex.Entry entry, String name) {
+    Header header = new Header();
+    header.name = name.getBytes(StandardCharsets.UTF_8);
+    header.versionMadeBy = entry.getVersionMadeBy();
+    header.versionNeeded = (entry.getMethod() == ZipEntry.STORED) ? VERSION_STORED : VERSION_DEFLATED;
+    header.flags = (entry.getFlags() & ~ZipIndex.FLAG_DATA_DESCRIPTOR) | ZipIndex.FLAG_UTF8;
+    header.method = entry.getMethod();
+    header.dosTime = entry.getDosTime();
+    header.crc = entry.getCrc();
+    header.compressedSize = entry.getCompressedSize();
+    header.size = entry.getSize();
+    header.extra = entry.getExtra();
+    header.comment = entry.getComment();
+    header.externalAttributes = entry.getExternalAttributes();
+    return header;
+  }
+
+  /**
+   * Converts the time to the dos time and date.
+   *
+   * @param time the time.
+   * @return the dos time in the low and the date in the high 16 bits.
+   */
+  public static long toDosTime(LocalDateTime time) {
+    if (time.getYear() < DOS_YEAR) {
+      return toDosTime(LocalDateTime.of(DOS_YEAR, 1, 1, 0, 0));
+    }
+    long date = ((time.getYear() - DOS_YEAR) << DOS_YEAR_SHIFT) | (time.getMonthValue() << DOS_MONTH_SHIFT)
+        | time.getDayOfMonth();
+    long dosTime = (time.getHour() << DOS_HOUR_SHIFT) | (time.getMinute() << DOS_MINUTE_SHIFT)
+        | (time.getSecond() / 2);
+    return (date << DOS_DATE_SHIFT) | dosTime;
+  }
+
+  /**
+   * Copies the entry of the source with the raw compressed bytes.
+   *
+   * @param source the source zip.
+   * @param entry  the entry of the source.
+   * @param name   the name of the new entry.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public void copy(ZipIndex source, ZipIndex.Entry entry, String name) throws IOException {
+    complete = false;
+    Header header = header(entry, name);
+    writeLocalHeader(header, source.getLocalExtra(entry));
+    try (InputStream in = source.openRaw(entry)) {
+      transfer(in);
+    }
+    complete = true;
+  }
+
+  /**
+   * Writes a new entry deflated with the default level. The sizes and the crc follow the data in a data descriptor.
+   *
+   * @param name    the name of the entry.
+   * @param in      the data.
+   * @param dosTime the dos time and date.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public void writeDeflated(String name, InputStream in, long dosTime) throws IOException {
+    complete = false;
+    Header header = new Header();
+    header.name = name.getBytes(StandardCharsets.UTF_8);
+    header.versionNeeded = VERSION_DEFLATED;
+    header.flags = ZipIndex.FLAG_DATA_DESCRIPTOR | ZipIndex.FLAG_UTF8;
+    header.method = ZipEntry.DEFLATED;
+    header.dosTime = dosTime;
+    writeLocalHeader(header, header.extra);
+
+    CRC32 crc = new CRC32();
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    byte[] compressed = new byte[Tools.BUFFER_SIZE];
+    long size = 0;
+    long compressedSize = 0;
+    try {
+      int len = in.read(buffer);
+      while (len >= 0) {
+        crc.update(buffer, 0, len);
+        size += len;
+        deflater.setInput(buffer, 0, len);
+        while (!deflater.needsInput()) {
+          compressedSize += writeDeflated(deflater, compressed);
+        }
+        len = in.read(buffer);
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        compressedSize += writeDeflated(deflater, compressed);
+      }
+    } finally {
+      deflater.end();
+    }
+    header.crc = crc.getValue();
+    header.size = size;
+    header.compressedSize = compressedSize;
+    boolean zip64 = size >= ZipIndex.MAX_INT || compressedSize >= ZipIndex.MAX_INT;
+    ByteBuffer desc = ByteBuffer.allocate(zip64 ? DATA_DESC64_SIZE : DATA_DESC_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    desc.putInt(ZipIndex.DATA_DESC_SIG).putInt((int) header.crc);
+    if (zip64) {
+      desc.putLong(compressedSize).putLong(size);
+    } else {
+      desc.putInt((int) compressedSize).putInt((int) size);
+    }
+    write(desc.array());
+    complete = true;
+  }
+
+  /**
+   * Writes a new entry with data already compressed with the method. The crc and the sizes are known, so they are
+   * written in the local header.
+   *
+   * @param name           the name of the entry.
+   * @param method         the method, STORED or DEFLATED.
+   * @param crc            the crc of the uncompressed data.
+   * @param size           the size of the uncompressed data.
+   * @param compressedSize the size of the compressed data.
+   * @param dosTime        the dos time and date.
+   * @param unixMode       the unix file type and permissions or 0 for none.
+   * @param data           the compressed data.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public void writePrepared(String name, int method, long crc, long size, long compressedSize, long dosTime,
+                            int unixMode, InputStream data) throws IOException {
+    complete = false;
+    Header header = new Header();
+    header.name = name.getBytes(StandardCharsets.UTF_8);
+    if (unixMode != 0) {
+      header.versionMadeBy = VERSION_MADE_BY_UNIX;
+      header.externalAttributes = ((long) unixMode) << UNIX_MODE_SHIFT;
+    }
+    header.versionNeeded = (method == ZipEntry.STORED) ? VERSION_STORED : VERSION_DEFLATED;
+    header.flags = ZipIndex.FLAG_UTF8;
+    header.method = method;
+    header.dosTime = dosTime;
+    header.crc = crc;
+    header.size = size;
+    header.compressedSize = compressedSize;
+    writeLocalHeader(header, header.extra);
+    long start = position;
+    transfer(data);
+    if (position - start != compressedSize) {
+      throw new IOException("Size of entry changed while writing: " + name);
+    }
+    complete = true;
+  }
+
+  /**
+   * Writes an entry of a source compressed again. The name, time, crc, size and attributes of the source entry are
+   * kept. With an alignment the local header is padded, so the data starts at a multiple of the alignment and a
+   * stored entry can be mapped into memory.
+   *
+   * @param entry          the entry of the source.
+   * @param method         the new method, STORED or DEFLATED.
+   * @param compressedSize the size of the compressed data.
+   * @param alignment      the alignment of the data, 0 for none.
+   * @param data           the compressed data.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public void writeRecompressed(ZipIndex.Entry entry, int method, long compressedSize, int alignment,
+                                InputStream data) throws IOException {
+    complete = false;
+    Header header = header(entry, entry.getName());
+    header.versionNeeded = (method == ZipEntry.STORED) ? VERSION_STORED : VERSION_DEFLATED;
+    header.method = method;
+    header.compressedSize = compressedSize;
+    writeLocalHeader(header, (alignment > 0) ? alignedExtra(header, alignment) : header.extra);
+    long start = position;
+    transfer(data);
+    if (position - start != compressedSize) {
+      throw new IOException("Size of entry changed while writing: " + entry.getName());
+    }
+    complete = true;
+  }
+
+  /**
+   * Creates the extra of the local header with the padding to the alignment of the data. The central directory keeps
+   * the extra without padding.
+   *
+   * @param header    the header written at the current position.
+   * @param alignment the alignment of the data.
+   * @return the extra of the local header.
+   * @throws IOException is thrown if the alignment is not supported.
+   */
+  private byte[] alignedExtra(Header header, int alignment) throws IOException {
+    if (alignment > MAX_ALIGNMENT) {
+      throw new IOException("Alignment is too big: " + alignment);
+    }
+    long dataStart = position + ZipIndex.LOC_HEADER_SIZE + header.name.length + localZip64(header).length
+        + header.extra.length + ALIGN_EXTRA_SIZE;
+    int padding = (int) ((alignment - dataStart % alignment) % alignment);
+    ByteBuffer extra = ByteBuffer.allocate(header.extra.length + ALIGN_EXTRA_SIZE + padding)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    extra.put(header.extra).putShort((short) ALIGN_EXTRA_ID).putShort((short) (Short.BYTES + padding))
+        .putShort((short) alignment);
+    return extra.array();
+  }
+
+  /**
+   * Writes the output of the deflater.
+   *
+   * @param deflater   the deflater.
+   * @param compressed the buffer.
+   * @return the count of written bytes.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private int writeDeflated(Deflater deflater, byte[] compressed) throws IOException {
+    int count = deflater.deflate(compressed);
+    out.write(compressed, 0, count);
+    position += count;
+    return count;
+  }
+
+  /**
+   * Creates the zip64 extra field of the local header. It has both sizes, if one of them does not fit in 32 bits.
+   * The sizes of an entry with a data descriptor are unknown, the descriptor has the zip64 sizes then.
+   *
+   * @param header the header.
+   * @return the extra field or an empty array.
+   */
+  private static byte[] localZip64(Header header) {
+    if (header.size < ZipIndex.MAX_INT && header.compressedSize < ZipIndex.MAX_INT) {
+      return new byte[0];
+    }
+    ByteBuffer extra = ByteBuffer.allocate(2 * Short.BYTES + 2 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    extra.putShort((short) ZipIndex.ZIP64_EXTRA_ID).putShort((short) (2 * Long.BYTES)).putLong(header.size)
+        .putLong(header.compressedSize);
+    return extra.array();
+  }
+
+  /**
+   * Creates the zip64 extra field of the central directory. It has the size, the compressed size and the offset,
+   * that do not fit in 32 bits, in this order.
+   *
+   * @param header the header.
+   * @return the extra field or an empty array.
+   */
+  private static byte[] centralZip64(Header header) {
+    long[] values = {header.size, header.compressedSize, header.offset};
+    ByteBuffer fields = ByteBuffer.allocate(values.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    for (long value : values) {
+      if (value >= ZipIndex.MAX_INT) {
+        fields.putLong(value);
+      }
+    }
+    if (fields.position() == 0) {
+      return new byte[0];
+    }
+    ByteBuffer extra = ByteBuffer.allocate(2 * Short.BYTES + fields.position()).order(ByteOrder.LITTLE_ENDIAN);
+    extra.putShort((short) ZipIndex.ZIP64_EXTRA_ID).putShort((short) fields.position())
+        .put(fields.array(), 0, fields.position());
+    return extra.array();
+  }
+
+  /**
+   * Writes the local header and remembers the header for the central directory.
+   *
+   * @param header the header.
+   * @param extra  the extra of the local header.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private void writeLocalHeader(Header header, byte[] extra) throws IOException {
+    header.offset = position;
+    byte[] zip64 = localZip64(header);
+    ByteBuffer local = ByteBuffer.allocate(ZipIndex.LOC_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    local.putInt(ZipIndex.LOC_SIG).putShort((short) ((zip64.length > 0) ? VERSION_ZIP64 : header.versionNeeded))
+        .putShort((short) header.flags).putShort((short) header.method).putInt((int) header.dosTime)
+        .putInt((int) header.crc).putInt((int) Math.min(header.compressedSize, ZipIndex.MAX_INT))
+        .putInt((int) Math.min(header.size, ZipIndex.MAX_INT)).putShort((short) header.name.length)
+        .putShort((short) (zip64.length + extra.length));
+    write(local.array());
+    write(header.name);
+    write(zip64);
+    write(extra);
+    headers.add(header);
+  }
+
+  /**
+   * Copies the stream to the output.
+   *
+   * @param in the stream.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private void transfer(InputStream in) throws IOException {
+    int len = in.read(buffer);
+    while (len >= 0) {
+      out.write(buffer, 0, len);
+      position += len;
+      len = in.read(buffer);
+    }
+  }
+
+  /**
+   * Writes bytes to the output.
+   *
+   * @param data the bytes.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private void write(byte[] data) throws IOException {
+    out.write(data);
+    position += data.length;
+  }
+
+  /**
+   * Writes the central directory and closes the file. The copy of a zip opened for append is truncated after the
+   * central directory and moved over the zip. If writing an entry failed, the central directory is not written and
+   * the copy is deleted.
+   *
+   * @throws IOException is thrown if an error occurs.
+   */
+  @Override
+  public void close() throws IOException {
+    boolean written = false;
+    try {
+      if (!complete) {
+        return;
+      }
+      long centralOffset = position;
+      for (Header header : headers) {
+        byte[] zip64 = centralZip64(header);
+        ByteBuffer cen = ByteBuffer.allocate(ZipIndex.CEN_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        cen.putInt(ZipIndex.CEN_SIG).putShort((short) header.versionMadeBy)
+            .putShort((short) ((zip64.length > 0) ? VERSION_ZIP64 : header.versionNeeded))
+            .putShort((short) header.flags).putShort((short) header.method).putInt((int) header.dosTime)
+            .putInt((int) header.crc).putInt((int) Math.min(header.compressedSize, ZipIndex.MAX_INT))
+            .putInt((int) Math.min(header.size, ZipIndex.MAX_INT)).putShort((short) header.name.length)
+            .putShort((short) (zip64.length + header.extra.length)).putShort((short) header.comment.length)
+            .putShort((short) 0).putShort((short) 0).putInt((int) header.externalAttributes)
+            .putInt((int) Math.min(header.offset, ZipIndex.MAX_INT));
+        write(cen.array());
+        write(header.name);
+        write(zip64);
+        write(header.extra);
+        write(header.comment);
+      }
+      long centralSize = position - centralOffset;
+      if (headers.size() >= ZipIndex.MAX_SHORT || centralSize >= ZipIndex.MAX_INT
+          || centralOffset >= ZipIndex.MAX_INT) {
+        writeZip64End(centralOffset, centralSize);
+      }
+      int count = Math.min(headers.size(), ZipIndex.MAX_SHORT);
+      ByteBuffer end = ByteBuffer.allocate(ZipIndex.END_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      end.putInt(ZipIndex.END_SIG).putShort((short) 0).putShort((short) 0).putShort((short) count)
+          .putShort((short) count).putInt((int) Math.min(centralSize, ZipIndex.MAX_INT))
+          .putInt((int) Math.min(centralOffset, ZipIndex.MAX_INT)).putShort((short) 0);
+      write(end.array());
+      out.flush();
+      if (channel != null) {
+        channel.truncate(position);
+      }
+      written = true;
+    } finally {
+      if (appendTail != null && !written) {
+        restore();
+      } else {
+        out.close();
+      }
+    }
+  }
+
+  /**
+   * Writes the zip64 end of the central directory and its locator. They are needed for more than 65534 entries or a
+   * central directory beyond 4 GB.
+   *
+   * @param centralOffset the offset of the central directory.
+   * @param centralSize   the size of the central directory.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private void writeZip64End(long centralOffset, long centralSize) throws IOException {
+    long endOffset = position;
+    ByteBuffer end = ByteBuffer.allocate(ZipIndex.ZIP64_END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    end.putInt(ZipIndex.ZIP64_END_SIG).putLong(ZipIndex.ZIP64_END_SIZE - Integer.BYTES - Long.BYTES)
+        .putShort((short) VERSION_ZIP64).putShort((short) VERSION_ZIP64).putInt(0).putInt(0)
+        .putLong(headers.size()).putLong(headers.size()).putLong(centralSize).putLong(centralOffset);
+    write(end.array());
+    ByteBuffer locator = ByteBuffer.allocate(ZipIndex.ZIP64_LOC_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    locator.putInt(ZipIndex.ZIP64_LOC_SIG).putInt(0).putLong(endOffset).putInt(1);
+    write(locator.array());
+  }
+
+  /**
+   * Restores a zip opened for append after a failure. The old central directory is written back with the channel
+   * and the zip is truncated to its old length. The buffered bytes of the stream are dropped.
+   *
+   * @throws IOException is thrown if an error occurs.
+   */
+  private void restore() throws IOException {
+    try {
+      ByteBuffer tail = ByteBuffer.wrap(appendTail);
+      while (tail.hasRemaining()) {
+        channel.write(tail, appendOffset + tail.position());
+      }
+      channel.truncate(appendOffset + appendTail.length);
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stages the jars in the modules dir. It tries a reflink first, then a hard link and copies only as last resort.
+ * A hard linked jar shares its data with the source, so it must never be written in place. Jars are rewritten to a new
+ * file and moved over the staged one, a jar that is appended in place is staged as reflink or copy. A reflink needs a
+ * process, so it is used for large jars only and only if a probe on the file system of the target succeeded. The
+ * result of the probe is kept for the file system.
+ */
+public class JarStaging {
+
+  /**
+   * The timeout of the reflink call in seconds.
+   */
+  private static final long REFLINK_TIMEOUT = 30;
+
+  /**
+   * The minimum size of a jar to reflink. A smaller jar is linked or copied faster than a process is started.
+   */
+  static final long REFLINK_MIN_SIZE = 1024 * 1024;
+
+  /**
+   * The results of the reflink probes by file system.
+   */
+  private static final Map<FileStore, Boolean> REFLINK_STORES = new ConcurrentHashMap<>();
+
+  /**
+   * The logger.
+   */
+  private final Log log;
+
+  /**
+   * True while reflinks are tried.
+   */
+  private final AtomicBoolean reflink;
+
+  /**
+   * True while hard links are tried.
+   */
+  private final AtomicBoolean link;
+
+  /**
+   * The constructor with the first strategy.
+   *
+   * @param first the first strategy to try, null is Reflink.
+   * @param pLog  the logger.
+   */
+  public JarStaging(StagingEnum first, Log pLog) {
+    StagingEnum strategy = (first == null) ? StagingEnum.Reflink : first;
+    reflink = new AtomicBoolean(strategy == StagingEnum.Reflink && reflinkCommand() != null);
+    link = new AtomicBoolean(strategy != StagingEnum.Copy);
+    log = pLog;
+  }
+
+  /**
+   * Gets the command to clone a file on this os, without the file names.
+   *
+   * @return the command or null, if the os has none.
+   */
+  private static List<String> reflinkCommand() {
+    String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+    if (os.contains("linux")) {
+      return List.of("cp", "--reflink=always");
+    } else if (os.contains("mac")) {
+      return List.of("cp", "-c");
+    }
+    return null;
+  }
+
+  /**
+   * Stages the source jar as target jar.
+   *
+   * @param source the source jar.
+   * @param target the target jar, that must not exist.
+   * @throws MojoExecutionException is thrown if the copy fails.
+   */
+  public void stage(Path source, Path target) throws MojoExecutionException {
+    stage(source, target, false);
+  }
+
+  /**
+   * Stages the source jar as target jar. A target that is written in place is never hard linked.
+   *
+   * @param source   the source jar.
+   * @param target   the target jar, that must not exist.
+   * @param writable true if the target is written in place.
+   * @throws MojoExecutionException is thrown if the copy fails.
+   */
+  public void stage(Path source, Path target, boolean writable) throws MojoExecutionException {
+    if (reflink.get() && isReflinkUseful(source, target)) {
+      if (tryReflink(source, target)) {
+        return;
+      }
+      if (reflink.compareAndSet(true, false)) {
+        log.info("Reflink is not supported, use hard links for the modules dir.");
+      }
+    }
+    if (link.get() && !writable) {
+      try {
+        Files.createLink(target, source.toAbsolutePath());
+        return;
+      } catch (IOException | UnsupportedOperationException e) {
+        if (link.compareAndSet(true, false)) {
+          log.info("Hard link is not supported, copy the jars to the modules dir.");
+        }
+      }
+    }
+    try {
+      Files.copy(source, target);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to copy jar!", e);
+    }
+  }
+
+  /**
+   * Tests if the source is large enough for a reflink and the source and the target are on a file system supporting
+   * it. The file system is probed once with a small file.
+   *
+   * @param source the source file.
+   * @param target the target file.
+   * @return true if a reflink should be tried.
+   */
+  private boolean isReflinkUseful(Path source, Path target) {
+    try {
+      Path dir = target.toAbsolutePath().getParent();
+      if (Files.size(source) < REFLINK_MIN_SIZE) {
+        return false;
+      }
+      FileStore store = Files.getFileStore(dir);
+      if (!store.equals(Files.getFileStore(source))) {
+        return false;
+      }
+      return REFLINK_STORES.computeIfAbsent(store, key -> probe(dir));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Probes the reflink with a small file in the dir.
+   *
+   * @param dir the dir.
+   * @return true if the reflink is supported.
+   */
+  private boolean probe(Path dir) {
+    Path probe = null;
+    try {
+      probe = Files.createTempFile(dir, "reflink", ".probe");
+      Files.write(probe, new byte[]{1});
+      Path clone = probe.resolveSibling(probe.getFileName() + ".clone");
+      boolean supported = tryReflink(probe, clone);
+      Files.deleteIfExists(clone);
+      if (!supported) {
+        log.info("Reflink is not supported in: " + dir);
+      }
+      return supported;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      if (probe != null) {
+        try {
+          Files.deleteIfExists(probe);
+        } catch (IOException e) {
+          log.debug("Unable to delete probe: " + probe);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tries to clone the source.
+   *
+   * @param source the source file.
+   * @param target the target file.
+   * @return true if the clone is done.
+   */
+  private static boolean tryReflink(Path source, Path target) {
+    try {
+      List<String> command = new ArrayList<>(reflinkCommand());
+      command.add(source.toAbsolutePath().toString());
+      command.add(target.toAbsolutePath().toString());
+      Process proc = new ProcessBuilder(command).redirectErrorStream(true)
+          .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+      if (proc.waitFor(REFLINK_TIMEOUT, TimeUnit.SECONDS) && proc.exitValue() == 0) {
+        return true;
+      }
+      proc.destroyForcibly();
+    } catch (IOException e) {
+      // no cp found, same as not supported.
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      Files.deleteIfExists(target);
+    } catch (IOException e) {
+      // the copy fails later with an error.
+    }
+    return false;
+  }
+}
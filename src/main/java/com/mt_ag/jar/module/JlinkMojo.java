@@ -11,11 +11,18 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 
+import java.io.IOException;
 import java.lang.module.ModuleFinder;
+import java.lang.module.ResolvedModule;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Implements the goal jlink. Jlink calls the jlink command. Before it is done, it copies all needed jar to the module
@@ -65,6 +72,63 @@ public class JlinkMojo extends UpdateModules {
   @Parameter(property = "launcher")
   private List<String> launcherList;
 
+  /**
+   * The output of the runtime: Zip, Oci or ZipAndOci. Oci writes an OCI image layout as tar with the classifier oci.
+   * It has a layer for the jdk modules, one for the other modules and one for the application module.
+   */
+  @Parameter(property = "jarmodule.image", defaultValue = "Zip")
+  private ImageEnum image;
+
+  /**
+   * The startup options of the image. A preset FastStart sets the options for a fast start of a command line tool.
+   * The jli classes are generated from the class list of the goal trace.
+   */
+  @Parameter
+  private JlinkStartup startup;
+
+  /**
+   * The training run of the image. The run image is started with the launcher and the archive of the loaded classes
+   * is installed in the image and used by the launchers. The OCI image is not trained.
+   */
+  @Parameter
+  private JlinkTraining training;
+
+  /**
+   * Compares the requires of the application module with the modules used by its classes as found by jdeps and logs
+   * the unused modules as warning. The image contains every required module, so only removing an unused requires
+   * makes it smaller.
+   */
+  @Parameter(property = "jarmodule.checkRequires")
+  private boolean checkRequires;
+
+  /**
+   * Binds the providers of the services used by the application modules. The services used by the jdk modules are
+   * not bound, jlink with bind-services would add all their providers.
+   */
+  @Parameter(property = "jarmodule.bindServices")
+  private boolean bindServices;
+
+  /**
+   * More root modules of the image, for example the modules loaded by reflection only.
+   */
+  @Parameter(property = "jarmodule.addModules")
+  private List<String> addModules;
+
+  /**
+   * Shrinks the application modules before jlink to the classes reachable from the main classes, the service
+   * providers and the keep rules. The shrunk jars are written to target/modules/shrunk, the removed classes are listed
+   * in the artifact name ending with <code>.shrink.txt</code>.
+   */
+  @Parameter(property = "jarmodule.shrink")
+  private boolean shrink;
+
+  /**
+   * The keep rules of the shrinking, for the classes used by reflection only. A rule is a binary class name, * matches
+   * a name in a package and ** matches the names in a package and its sub packages.
+   */
+  @Parameter(property = "jarmodule.shrinkKeep")
+  private List<String> shrinkKeep;
+
   /**
    * The maven project. Used for dependencies and the own artifact.
    */
@@ -104,6 +168,7 @@ public class JlinkMojo extends UpdateModules {
                       boolean minData, boolean openmodule, String... launcherArray) {
     super(openmodule);
     myLog = pLog;
+    setLog(pLog);
     project = pProject;
     projectHelper = helper;
     compress = pCompress;
@@ -112,6 +177,72 @@ public class JlinkMojo extends UpdateModules {
     noHeaderFiles = minData;
     stripDebug = minData;
     launcherList = List.of(launcherArray);
+    image = ImageEnum.Zip;
+  }
+
+  /**
+   * Sets the output of the runtime, for testing.
+   *
+   * @param pImage the output of the runtime.
+   */
+  void setImage(ImageEnum pImage) {
+    image = pImage;
+  }
+
+  /**
+   * Sets the startup options, for testing.
+   *
+   * @param pStartup the startup options.
+   */
+  void setStartup(JlinkStartup pStartup) {
+    startup = pStartup;
+  }
+
+  /**
+   * Sets the training run, for testing.
+   *
+   * @param pTraining the training run.
+   */
+  void setTraining(JlinkTraining pTraining) {
+    training = pTraining;
+  }
+
+  /**
+   * Sets the check of the requires, for testing.
+   *
+   * @param pCheckRequires true to log the unused requires of the application module.
+   */
+  void setCheckRequires(boolean pCheckRequires) {
+    checkRequires = pCheckRequires;
+  }
+
+  /**
+   * Sets the binding of the services, for testing.
+   *
+   * @param pBindServices true to bind the providers of the services used by the application modules.
+   */
+  void setBindServices(boolean pBindServices) {
+    bindServices = pBindServices;
+  }
+
+  /**
+   * Sets the additional root modules, for testing.
+   *
+   * @param pAddModules more root modules.
+   */
+  void setAddModules(List<String> pAddModules) {
+    addModules = pAddModules;
+  }
+
+  /**
+   * Sets the shrinking, for testing.
+   *
+   * @param pShrink     true to shrink the application modules.
+   * @param pShrinkKeep the keep rules of the shrinking.
+   */
+  void setShrink(boolean pShrink, List<String> pShrinkKeep) {
+    shrink = pShrink;
+    shrinkKeep = pShrinkKeep;
   }
 
   /**
@@ -122,6 +253,11 @@ public class JlinkMojo extends UpdateModules {
   @Override
   public void execute() throws MojoExecutionException {
     myLog = (myLog != null) ? myLog : getLog();
+    String osName = System.getProperty("os.name");
+    if ((image == ImageEnum.Oci || image == ImageEnum.ZipAndOci) && !osName.startsWith("Linux")) {
+      throw new MojoExecutionException("Unable to create the OCI image on " + osName
+          + ", the image is run on linux and contains the jdk of the build.");
+    }
     Path dir = project.getBasedir().toPath().resolve("target");
     myLog.info("Project:" + project.getId());
     myLog.info("own artifact:" + project.getArtifact().getFile().getAbsolutePath());
@@ -133,8 +269,58 @@ public class JlinkMojo extends UpdateModules {
     Path modulesPath = createModules(project);
 
     Path targetJar = project.getArtifact().getFile().toPath();
-    String moduleName = ModuleFinder.of(targetJar).findAll().stream().findFirst().get().descriptor().name();
+    String moduleName = JarIndex.of(targetJar).getDescriptor().name();
     myLog.info("Found module:" + moduleName);
+    Set<String> roots = new TreeSet<>(Set.of(moduleName));
+    if (addModules != null) {
+      roots.addAll(addModules);
+    }
+    ModuleSet moduleSet = ModuleSet.of(modulesPath, roots, bindServices);
+    myLog.info("Module set: " + String.join(",", moduleSet.getModules()));
+    if (checkRequires) {
+      logUnusedRequires(modulesPath, moduleName);
+    }
+    Path linkPath = modulesPath;
+    if (shrink) {
+      linkPath = modulesPath.resolve("shrunk");
+      String targetFileName = targetJar.getFileName().toString();
+      ClassShrinker.shrink(moduleSet, mainClasses(modulesPath.resolve(targetFileName)), shrinkKeep, linkPath,
+          targetJar.resolveSibling(targetFileName.substring(0, targetFileName.length()
+              - UpdateModules.EXTENSION_LENGTH) + ".shrink.txt"), myLog);
+    }
+    if (image != ImageEnum.Oci) {
+      String modules = String.join(",", moduleSet.getRoots());
+      List<String> params = jlinkParams(linkPath, targetJar, modules, modulesPath.resolve("run"), true);
+      Tools.deleteDir(modulesPath.resolve("run"));
+      CallResult result = callInDir(modulesPath, params.toArray(new String[0]));
+      if (result.getExitVal() < 0) {
+        throw new MojoExecutionException("Error in calling jlink!");
+      }
+      if (training != null) {
+        training.train(modulesPath.resolve("run"), modulesPath.resolve("training"), moduleName, launcherList, myLog);
+      }
+      Path runPath = archiveDir(modulesPath.resolve("run"), targetJar, "run");
+      projectHelper.attachArtifact(project, getArchive().getExtension(), "run", runPath.toFile());
+    }
+    if (image == ImageEnum.Oci || image == ImageEnum.ZipAndOci) {
+      Path ociPath = createOciImage(modulesPath, linkPath, targetJar, moduleName, moduleSet);
+      projectHelper.attachArtifact(project, "tar", "oci", ociPath.toFile());
+    }
+  }
+
+  /**
+   * Creates the parameters of jlink.
+   *
+   * @param modulesPath the module path.
+   * @param targetJar   the jar of the application, next to its class list.
+   * @param modules     the modules to add, separated by comma.
+   * @param output      the output dir.
+   * @param launchers   true to add the launchers.
+   * @return the parameters with the command.
+   * @throws MojoExecutionException is thrown if a startup option is not valid.
+   */
+  private List<String> jlinkParams(Path modulesPath, Path targetJar, String modules, Path output, boolean launchers)
+      throws MojoExecutionException {
     List<String> params = new ArrayList<>();
     params.add("jlink");
     if (ignoreSigning) {
@@ -149,18 +335,137 @@ public class JlinkMojo extends UpdateModules {
     if (noManPages) {
       params.add("--no-man-pages");
     }
+    if (startup != null) {
+      params.addAll(startup.params(TraceMojo.classList(targetJar), modulesPath, modules, compress.getRate(), myLog));
+    } else {
+      params.add("--compress=" + compress.getRate());
+    }
+    if (launchers) {
+      for (String launcher : launcherList) {
+        params.add("--launcher");
+        params.add(launcher);
+      }
+    }
+    Collections.addAll(params, "--module-path", modulesPath.toString(), "--add-modules", modules);
+    Collections.addAll(params, "--output", output.toString());
+    return params;
+  }
+
+  /**
+   * Gets the main classes of the image: the main class of the application module and of the launchers.
+   *
+   * @param appJar the jar of the application module.
+   * @return the binary names of the main classes.
+   * @throws MojoExecutionException is thrown if no main class is found.
+   */
+  private Set<String> mainClasses(Path appJar) throws MojoExecutionException {
+    Set<String> mainClasses = new TreeSet<>();
+    JarIndex.of(appJar).getDescriptor().mainClass().ifPresent(mainClasses::add);
     for (String launcher : launcherList) {
-      params.add("--launcher");
-      params.add(launcher);
+      int slash = launcher.indexOf('/');
+      if (slash > 0) {
+        mainClasses.add(launcher.substring(slash + 1));
+      }
+    }
+    if (mainClasses.isEmpty() && (shrinkKeep == null || shrinkKeep.isEmpty())) {
+      throw new MojoExecutionException("Unable to shrink without main class or keep rule: " + appJar);
+    }
+    return mainClasses;
+  }
+
+  /**
+   * Logs the modules required by the application module but not used by its classes. The used modules are listed by
+   * jdeps with list-deps. A required module is linked even if it is not used, so an unused require enlarges the image.
+   *
+   * @param modulesPath the modules dir.
+   * @param moduleName  the name of the application module.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private void logUnusedRequires(Path modulesPath, String moduleName) throws MojoExecutionException {
+    CallResult result = callInDir(modulesPath, "jdeps", "--list-deps", "--ignore-missing-deps", "--module-path",
+        modulesPath.toString(), "--module", moduleName);
+    if (result.getExitVal() != 0) {
+      myLog.warn("Unable to find the used modules of: " + moduleName);
+      return;
+    }
+    Set<String> unused = ModuleSet.unusedRequires(ModuleFinder.of(modulesPath).find(moduleName)
+        .orElseThrow(() -> new MojoExecutionException("Missing module: " + moduleName)).descriptor(),
+        result.getOutLines());
+    if (!unused.isEmpty()) {
+      myLog.warn("Required modules not used by the classes of " + moduleName + ": " + String.join(",", unused));
+    }
+  }
+
+  /**
+   * Creates the OCI image. The jdk modules needed by the application are linked to a runtime in the first layer,
+   * the other modules are the second layer and the application module is the last layer. So a change of the
+   * application changes the last layer only. The runtime is linked again only if its parameters, the version or the
+   * home of the jdk are changed.
+   *
+   * @param modulesPath the modules dir.
+   * @param linkPath    the dir of the linked modules, the modules dir or the dir of the shrunk modules.
+   * @param targetJar   the jar of the application.
+   * @param moduleName  the name of the application module.
+   * @param moduleSet   the resolved modules of the image.
+   * @return the tar of the image layout.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private Path createOciImage(Path modulesPath, Path linkPath, Path targetJar, String moduleName,
+                              ModuleSet moduleSet) throws MojoExecutionException {
+    List<Path> moduleJars = new ArrayList<>();
+    Path appJar = null;
+    for (ResolvedModule module : moduleSet.getConfiguration().modules()) {
+      if (!ModuleSet.isApplication(module)) {
+        continue;
+      }
+      Path location = linkPath.resolve(Paths.get(module.reference().location().orElseThrow()).getFileName());
+      if (module.name().equals(moduleName)) {
+        appJar = location;
+      } else {
+        moduleJars.add(location);
+      }
+    }
+
+    Path jdkPath = modulesPath.resolve("jdk");
+    List<String> params = jlinkParams(linkPath, targetJar, String.join(",", moduleSet.getJdkModules()), jdkPath,
+        false);
+    Path paramsFile = modulesPath.resolve("jdk.params");
+    String paramsKey = "jdk: " + Runtime.version() + " " + System.getProperty("java.home") + "\n"
+        + String.join("\n", params);
+    try {
+      String linked = Files.exists(paramsFile) ? Files.readString(paramsFile, StandardCharsets.UTF_8) : null;
+      if (!paramsKey.equals(linked) || !Files.isDirectory(jdkPath)) {
+        Files.deleteIfExists(paramsFile);
+        Tools.deleteDir(jdkPath);
+        CallResult result = callInDir(modulesPath, params.toArray(new String[0]));
+        if (result.getExitVal() != 0) {
+          throw new MojoExecutionException("Error in calling jlink!");
+        }
+        Files.writeString(paramsFile, paramsKey, StandardCharsets.UTF_8);
+      } else {
+        myLog.info("Jdk of the image is up to date.");
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to read jdk params: " + paramsFile, e);
     }
-    Collections.addAll(params, "--compress=" + compress.getRate(), "--module-path", ".", "--add-modules",
-        moduleName, "--output", "run");
 
-    CallResult result = callInDir(modulesPath, params.toArray(new String[0]));
-    if (result.getExitVal() < 0) {
-      throw new MojoExecutionException("Error in calling jlink!");
+    OciImage ociImage = new OciImage(modulesPath.resolve("oci"));
+    ociImage.addLayer("jdk", "app", List.of(jdkPath));
+    ociImage.addLayer("modules", "app/modules", moduleJars);
+    ociImage.addLayer("application", "app/main", List.of(appJar));
+    List<String> entrypoint = new ArrayList<>(List.of("/app/jdk/bin/java", "--module-path",
+        "/app/modules:/app/main"));
+    if (JarIndex.of(appJar).getDescriptor().mainClass().isPresent()) {
+      Collections.addAll(entrypoint, "--module", moduleName);
+    } else {
+      Collections.addAll(entrypoint, "--add-modules", moduleName);
     }
-    Path zipPath = zipDir(modulesPath.resolve("run"), targetJar, "run");
-    projectHelper.attachArtifact(project, "zip", "run", zipPath.toFile());
+    String targetFileName = targetJar.getFileName().toString();
+    Path ociPath = targetJar.resolveSibling(targetFileName.substring(0,
+        targetFileName.length() - UpdateModules.EXTENSION_LENGTH) + ".oci.tar");
+    String version = project.getVersion();
+    ociImage.write(ociPath, entrypoint, (version != null) ? version : "latest");
+    myLog.info("OCI image: " + ociPath + " layers: " + String.join(" ", ociImage.getLayerDigests()));
+    return ociPath;
   }
 }
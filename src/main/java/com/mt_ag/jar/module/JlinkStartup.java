@@ -0,0 +1,292 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.spi.ToolProvider;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The startup options of the jlink image, set as configuration block startup of the goal jlink. The options not set
+ * are taken from the preset. Every option is checked against the plugins listed by jlink --list-plugins, an option
+ * missing in the used jdk is skipped with a warning.
+ */
+public class JlinkStartup {
+
+  /**
+   * The vm options of the preset FastStart: only the C1 compiler, the serial gc and the class data sharing.
+   */
+  static final String FAST_START_OPTIONS = "-XX:TieredStopAtLevel=1 -XX:+UseSerialGC -Xshare:auto";
+
+  /**
+   * The valid values of vm.
+   */
+  private static final Set<String> VMS = Set.of("client", "server", "minimal", "all");
+
+  /**
+   * The prefix of the lines of the lambda forms in a class list.
+   */
+  private static final String LAMBDA_FORM_INVOKER = "@lambda-form-invoker ";
+
+  /**
+   * The length of the hash in the name of the jli trace.
+   */
+  private static final int HASH_LENGTH = 16;
+
+  /**
+   * The pattern of a plugin in the output of jlink --list-plugins.
+   */
+  private static final Pattern PLUGIN = Pattern.compile("^ {2}(--[a-z][a-z-]*)");
+
+  /**
+   * The preset of the options.
+   */
+  private PresetEnum preset;
+
+  /**
+   * Generates the java.lang.invoke classes used by the training run of the goal trace.
+   */
+  private Boolean generateJliClasses;
+
+  /**
+   * Strips the java debug attributes of the classes, but keeps the native debug symbols.
+   */
+  private Boolean stripJavaDebugAttributes;
+
+  /**
+   * De-duplicates the legal notices. Notices of the same name with a different content are an error.
+   */
+  private Boolean dedupLegalNotices;
+
+  /**
+   * Orders the hot classes of the class list at the front of the jimage.
+   */
+  private Boolean orderResources;
+
+  /**
+   * Stores the hot classes of the class list uncompressed, only the cold resources are compressed.
+   */
+  private Boolean uncompressedHotSet;
+
+  /**
+   * The class list of the hot classes, a class list of -XX:DumpLoadedClassList or a log of -Xlog:class+load. The
+   * default is the class list of the goal trace.
+   */
+  private File classList;
+
+  /**
+   * The locales to include, separated by comma. Needs the module jdk.localedata.
+   */
+  private String includeLocales;
+
+  /**
+   * The vm to include: client, server, minimal or all.
+   */
+  private String vm;
+
+  /**
+   * The options of the vm added to every start of the image.
+   */
+  private String addOptions;
+
+  /**
+   * The default constructor used by maven.
+   */
+  public JlinkStartup() {
+    super();
+  }
+
+  /**
+   * The constructor for testing.
+   *
+   * @param pPreset the preset.
+   */
+  protected JlinkStartup(PresetEnum pPreset) {
+    preset = pPreset;
+  }
+
+  /**
+   * Tests if the preset FastStart is used.
+   *
+   * @return true if it is FastStart.
+   */
+  private boolean isFastStart() {
+    return preset == PresetEnum.FastStart;
+  }
+
+  /**
+   * Gets the value of a flag or the preset.
+   *
+   * @param flag the flag, null if not set.
+   * @return the value.
+   */
+  private boolean flag(Boolean flag) {
+    return (flag != null) ? flag : isFastStart();
+  }
+
+  /**
+   * Creates the jlink parameters of the startup options with the compression. The options are checked against the
+   * plugins of jlink. The generated lists are written to the modules dir, their names contain their hash, so a
+   * changed list changes the parameters.
+   *
+   * @param traceList   the class list of the goal trace, used if no class list is set. It may be missing.
+   * @param modulesPath the module path of jlink and the dir of the generated lists.
+   * @param modules     the root modules of the image, separated by comma.
+   * @param rate        the rate of the compression.
+   * @param log         the logger.
+   * @return the parameters.
+   * @throws MojoExecutionException is thrown if an error occurs or an option is not valid.
+   */
+  public List<String> params(Path traceList, Path modulesPath, String modules, int rate, Log log)
+      throws MojoExecutionException {
+    Set<String> plugins = listPlugins();
+    List<String> params = new ArrayList<>();
+    Path usedList = (classList != null) ? classList.toPath() : traceList;
+    if (flag(generateJliClasses)) {
+      Path jliClasses = jliClasses(usedList, modulesPath);
+      if (jliClasses != null) {
+        addParam(params, plugins, "--generate-jli-classes", "@" + jliClasses, log);
+      } else {
+        log.info("No lambda forms in class list: " + usedList);
+      }
+    }
+    String compress = "--compress=" + rate;
+    boolean order = flag(orderResources);
+    boolean uncompressed = flag(uncompressedHotSet) && rate > 0;
+    if ((order || uncompressed) && usedList != null && Files.exists(usedList)) {
+      HotResources resources = HotResources.of(modulesPath, modules, ClassOrder.read(usedList));
+      log.info("Hot resources: " + resources.getHot().size());
+      if (order) {
+        addParam(params, plugins, "--order-resources", "@" + writeList(modulesPath, "order-resources",
+            resources.getOrderLines()), log);
+      }
+      if (uncompressed) {
+        compress += ":filter=@" + writeList(modulesPath, "compress-filter", resources.getColdPatterns());
+      }
+    } else if (order || uncompressed) {
+      log.info("No class list of the hot resources: " + usedList);
+    }
+    params.add(compress);
+    if (flag(stripJavaDebugAttributes)) {
+      addParam(params, plugins, "--strip-java-debug-attributes", null, log);
+    }
+    if (flag(dedupLegalNotices)) {
+      addParam(params, plugins, "--dedup-legal-notices", "error-if-not-same-content", log);
+    }
+    if (includeLocales != null && !includeLocales.isBlank()) {
+      addParam(params, plugins, "--include-locales", includeLocales.trim(), log);
+    }
+    if (vm != null && !vm.isBlank()) {
+      if (!VMS.contains(vm.trim())) {
+        throw new MojoExecutionException("Unknown vm: " + vm + " expected one of: " + new TreeSet<>(VMS));
+      }
+      addParam(params, plugins, "--vm", vm.trim(), log);
+    }
+    String options = (addOptions != null) ? addOptions.trim() : (isFastStart() ? FAST_START_OPTIONS : "");
+    if (!options.isEmpty()) {
+      addParam(params, plugins, "--add-options", options, log);
+    }
+    return params;
+  }
+
+  /**
+   * Adds a plugin parameter, if jlink has the plugin.
+   *
+   * @param params  the parameters.
+   * @param plugins the plugins of jlink, empty if unknown.
+   * @param plugin  the plugin.
+   * @param value   the value of the plugin, null for none.
+   * @param log     the logger.
+   */
+  private static void addParam(List<String> params, Set<String> plugins, String plugin, String value, Log log) {
+    if (!plugins.isEmpty() && !plugins.contains(plugin)) {
+      log.warn("Plugin is not supported by jlink of this jdk: " + plugin);
+    } else {
+      params.add((value != null) ? plugin + "=" + value : plugin);
+    }
+  }
+
+  /**
+   * Writes the lambda forms of the class list as trace for the plugin generate-jli-classes.
+   *
+   * @param classList the class list, it may be missing.
+   * @param workDir   the dir of the trace.
+   * @return the trace or null if the class list has no lambda forms.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  static Path jliClasses(Path classList, Path workDir) throws MojoExecutionException {
+    if (classList == null || !Files.exists(classList)) {
+      return null;
+    }
+    try (Stream<String> lines = Files.lines(classList, StandardCharsets.UTF_8)) {
+      List<String> forms = lines.filter(line -> line.startsWith(LAMBDA_FORM_INVOKER))
+          .map(line -> line.substring(LAMBDA_FORM_INVOKER.length())).collect(Collectors.toList());
+      return forms.isEmpty() ? null : writeList(workDir, "jli-classes", forms);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to read class list: " + classList, e);
+    }
+  }
+
+  /**
+   * Writes a list for a plugin of jlink. The name of the list contains its hash.
+   *
+   * @param workDir the dir of the list.
+   * @param name    the name of the list.
+   * @param lines   the lines.
+   * @return the list.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private static Path writeList(Path workDir, String name, List<String> lines) throws MojoExecutionException {
+    Path temp = workDir.resolve(name + ".tmp");
+    try {
+      Files.write(temp, lines, StandardCharsets.UTF_8);
+      Path list = workDir.resolve(name + "-" + Tools.sha256(temp).substring(0, HASH_LENGTH) + ".txt");
+      Files.move(temp, list, StandardCopyOption.REPLACE_EXISTING);
+      return list;
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to write list: " + temp, e);
+    }
+  }
+
+  /**
+   * Lists the plugins of jlink of this jdk.
+   *
+   * @return the plugins with leading --, empty if jlink is not found as ToolProvider.
+   * @throws MojoExecutionException is thrown if jlink fails.
+   */
+  static Set<String> listPlugins() throws MojoExecutionException {
+    ToolProvider jlink = ToolProvider.findFirst("jlink").orElse(null);
+    Set<String> plugins = new TreeSet<>();
+    if (jlink == null) {
+      return plugins;
+    }
+    StringWriter output = new StringWriter();
+    try (PrintWriter out = new PrintWriter(output)) {
+      if (jlink.run(out, out, "--list-plugins") != 0) {
+        throw new MojoExecutionException("Error in calling jlink --list-plugins: " + output);
+      }
+    }
+    for (String line : output.toString().split("\\R")) {
+      Matcher matcher = PLUGIN.matcher(line);
+      if (matcher.find()) {
+        plugins.add(matcher.group(1));
+      }
+    }
+    return plugins;
+  }
+}
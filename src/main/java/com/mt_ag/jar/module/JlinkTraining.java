@@ -0,0 +1,253 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The training run of the jlink image, set as configuration block training of the goal jlink. The image is started
+ * with the launcher and writes an archive of the loaded classes at its end: an AOT cache on a jdk with AOT cache,
+ * otherwise a dynamic CDS archive. The archive is installed in the lib dir of the image and set in the launchers, so
+ * every start of a launcher uses it.
+ */
+public class JlinkTraining {
+
+  /**
+   * The default timeout of the training run in seconds.
+   */
+  private static final long DEFAULT_TIMEOUT = 300;
+
+  /**
+   * The first feature release of the jdk with dynamic CDS archives.
+   */
+  private static final int DYNAMIC_CDS_RELEASE = 13;
+
+  /**
+   * The first feature release of the jdk writing the AOT cache in one training run.
+   */
+  private static final int AOT_CACHE_RELEASE = 25;
+
+  /**
+   * The name of the vm options in the launchers.
+   */
+  private static final String VM_OPTIONS = "JLINK_VM_OPTIONS=";
+
+  /**
+   * The arguments of the training run.
+   */
+  private List<String> args;
+
+  /**
+   * The timeout of the training run in seconds. 0 waits without timeout.
+   */
+  private long timeout = DEFAULT_TIMEOUT;
+
+  /**
+   * The class signaling the end of the training. The run is terminated when the class is loaded, null waits for the
+   * end of the run.
+   */
+  private String exitClass;
+
+  /**
+   * The name of the launcher to train, null uses the first launcher or the main class of the module.
+   */
+  private String launcher;
+
+  /**
+   * The default constructor used by maven.
+   */
+  public JlinkTraining() {
+    super();
+  }
+
+  /**
+   * The constructor for testing.
+   *
+   * @param pExitClass the class signaling the end of the training, null waits for the end of the run.
+   * @param pArgs      the arguments of the training run.
+   */
+  protected JlinkTraining(String pExitClass, String... pArgs) {
+    exitClass = pExitClass;
+    args = List.of(pArgs);
+  }
+
+  /**
+   * Runs the training and installs the archive in the image. A jdk older than 13 has no dynamic archive, then no
+   * archive is created. The run is started in an empty working dir, so the files it writes are not packed with the
+   * image.
+   *
+   * @param runPath      the dir of the image.
+   * @param workPath     the working dir of the run, it is created new.
+   * @param moduleName   the name of the application module.
+   * @param launcherList the launchers of the image, name=module(/main-class).
+   * @param log          the logger.
+   * @return the archive or null if no archive is created.
+   * @throws MojoExecutionException is thrown if an error occurs or no archive is written.
+   */
+  public Path train(Path runPath, Path workPath, String moduleName, List<String> launcherList, Log log)
+      throws MojoExecutionException {
+    int release = Runtime.version().feature();
+    if (release < DYNAMIC_CDS_RELEASE) {
+      log.warn("The training run needs a jdk " + DYNAMIC_CDS_RELEASE + " or newer, no archive is created.");
+      return null;
+    }
+    boolean aot = release >= AOT_CACHE_RELEASE;
+    Path java = runPath.resolve("bin").resolve(isWindows() ? "java.exe" : "java");
+    Path archive = runPath.resolve("lib").resolve(aot ? "app.aot" : "app.jsa");
+    try {
+      Files.deleteIfExists(archive);
+      Tools.deleteDir(workPath);
+      Files.createDirectories(workPath);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to prepare the training run in: " + workPath, e);
+    }
+    if (!aot) {
+      createBaseArchive(java, runPath, workPath, log);
+    }
+
+    List<String> params = new ArrayList<>();
+    params.add(java.toString());
+    params.add((aot ? "-XX:AOTCacheOutput=" : "-XX:ArchiveClassesAtExit=") + archive);
+    Predicate<String> stop = null;
+    if (exitClass != null && !exitClass.isBlank()) {
+      String loaded = " " + exitClass.trim() + " source:";
+      stop = line -> line.contains(loaded);
+      params.add("-Xlog:class+load=info");
+    }
+    params.add("--module");
+    params.add(module(moduleName, launcherList));
+    if (args != null) {
+      params.addAll(args);
+    }
+    CallResult result = ProcessRunner.run(log, workPath, timeout, (stop != null) ? OutputEnum.Debug : OutputEnum.Info,
+        stop, params.toArray(new String[0]));
+    if (!Files.exists(archive)) {
+      throw new MojoExecutionException("No archive written by the training run, exit value: "
+          + result.getExitVal());
+    }
+    String option = aot ? "-XX:AOTCache=" : "-XX:SharedArchiveFile=";
+    for (String name : launcherNames(launcherList)) {
+      setVmOption(runPath.resolve("bin").resolve(name), option + "$(dirname \"$0\")/../lib/" + archive.getFileName(),
+          true);
+      setVmOption(runPath.resolve("bin").resolve(name + ".bat"), option + "%~dp0..\\lib\\" + archive.getFileName(),
+          false);
+    }
+    if (launcherNames(launcherList).isEmpty()) {
+      log.warn("No launcher uses the archive, start the image with: " + option + "lib/" + archive.getFileName());
+    }
+    try {
+      log.info("Training archive: " + archive + " size: " + Files.size(archive));
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to read archive: " + archive, e);
+    }
+    return archive;
+  }
+
+  /**
+   * Creates the default CDS archive of the jdk in the image, if it is missing. A dynamic archive needs it as base.
+   *
+   * @param java     the java of the image.
+   * @param runPath  the dir of the image.
+   * @param workPath the working dir.
+   * @param log      the logger.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private static void createBaseArchive(Path java, Path runPath, Path workPath, Log log)
+      throws MojoExecutionException {
+    try (Stream<Path> files = Files.walk(runPath.resolve("lib"))) {
+      if (files.anyMatch(file -> file.getFileName().toString().equals("classes.jsa"))) {
+        return;
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to read dir: " + runPath, e);
+    }
+    if (ProcessRunner.run(log, workPath, DEFAULT_TIMEOUT, java.toString(), "-Xshare:dump").getExitVal() != 0) {
+      throw new MojoExecutionException("Unable to create the default CDS archive of the image!");
+    }
+  }
+
+  /**
+   * Gets the module with the main class to train.
+   *
+   * @param moduleName   the name of the application module.
+   * @param launcherList the launchers of the image.
+   * @return the module with the optional main class.
+   * @throws MojoExecutionException is thrown if the launcher is not found.
+   */
+  private String module(String moduleName, List<String> launcherList) throws MojoExecutionException {
+    for (String entry : (launcherList != null) ? launcherList : List.<String>of()) {
+      int equals = entry.indexOf('=');
+      if (equals > 0 && (launcher == null || launcher.equals(entry.substring(0, equals)))) {
+        return entry.substring(equals + 1);
+      }
+    }
+    if (launcher != null) {
+      throw new MojoExecutionException("Launcher of the training run not found: " + launcher);
+    }
+    return moduleName;
+  }
+
+  /**
+   * Gets the names of the launchers.
+   *
+   * @param launcherList the launchers of the image.
+   * @return the names.
+   */
+  private static List<String> launcherNames(List<String> launcherList) {
+    if (launcherList == null) {
+      return List.of();
+    }
+    return launcherList.stream().filter(entry -> entry.indexOf('=') > 0)
+        .map(entry -> entry.substring(0, entry.indexOf('='))).collect(Collectors.toList());
+  }
+
+  /**
+   * Adds the vm option to the vm options of a launcher script. A missing script is skipped.
+   *
+   * @param script the launcher script.
+   * @param option the option.
+   * @param quote  true to quote the options of a shell script.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private static void setVmOption(Path script, String option, boolean quote) throws MojoExecutionException {
+    if (!Files.exists(script)) {
+      return;
+    }
+    try {
+      List<String> lines = new ArrayList<>();
+      for (String line : Files.readAllLines(script, StandardCharsets.UTF_8)) {
+        int index = line.indexOf(VM_OPTIONS);
+        if (index >= 0) {
+          String value = line.substring(index + VM_OPTIONS.length()).trim();
+          if (quote && value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+          }
+          String options = value.isEmpty() ? option : option + " " + value;
+          line = line.substring(0, index + VM_OPTIONS.length()) + (quote ? "\"" + options + "\"" : options);
+        }
+        lines.add(line);
+      }
+      Files.write(script, lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to update launcher: " + script, e);
+    }
+  }
+
+  /**
+   * Tests if this os is windows.
+   *
+   * @return true on windows.
+   */
+  private static boolean isWindows() {
+    return System.getProperty("os.name").startsWith("Windows");
+  }
+}
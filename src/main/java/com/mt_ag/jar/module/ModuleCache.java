@@ -0,0 +1,203 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A content addressed cache of the modularized jars. The key of a jar is build from the hash of the source jar, the
+ * hashes of the other dependency jars, the openmodule flag and the java version. A hit is only a copy of the file.
+ */
+public class ModuleCache {
+
+  /**
+   * The version of the key layout. Change it if the generated jars change.
+   */
+  private static final String KEY_VERSION = "4";
+
+  /**
+   * The length of the sub dir name.
+   */
+  private static final int SUB_DIR_LENGTH = 2;
+
+  /**
+   * The root dir of the cache.
+   */
+  private final Path cacheDir;
+
+  /**
+   * The logger.
+   */
+  private final Log log;
+
+  /**
+   * The counter of the hits.
+   */
+  private final AtomicInteger hits = new AtomicInteger();
+
+  /**
+   * The counter of the misses.
+   */
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * The constructor with the cache dir.
+   *
+   * @param pCacheDir the root dir of the cache.
+   * @param pLog      the logger.
+   */
+  public ModuleCache(Path pCacheDir, Log pLog) {
+    cacheDir = pCacheDir;
+    log = pLog;
+  }
+
+  /**
+   * Calculates the key of a jar.
+   *
+   * @param jarName    the file name of the jar.
+   * @param hashes     the hashes of the dependency jars by file name.
+   * @param openmodule the openmodule flag.
+   * @return the key of the jar.
+   * @throws MojoExecutionException is thrown if the hash algorithm is missing.
+   */
+  public static String key(String jarName, Map<String, String> hashes, boolean openmodule)
+      throws MojoExecutionException {
+    List<String> neighbours = new ArrayList<>();
+    for (Map.Entry<String, String> entry : hashes.entrySet()) {
+      if (!entry.getKey().equals(jarName)) {
+        neighbours.add(entry.getValue());
+      }
+    }
+    Collections.sort(neighbours);
+    StringBuilder keyText = new StringBuilder();
+    keyText.append(KEY_VERSION).append('\n').append(hashes.get(jarName)).append('\n');
+    neighbours.forEach(hash -> keyText.append(hash).append('\n'));
+    keyText.append(openmodule).append('\n').append(Runtime.version());
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return Tools.toHex(digest.digest(keyText.toString().getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new MojoExecutionException("Missing hash algorithm!", e);
+    }
+  }
+
+  /**
+   * Gets the path of the cached jar.
+   *
+   * @param key the key of the jar.
+   * @return the path in the cache.
+   */
+  private Path entryPath(String key) {
+    return cacheDir.resolve(key.substring(0, SUB_DIR_LENGTH)).resolve(key + ".jar");
+  }
+
+  /**
+   * Looks for the jar in the cache. A missing jar is counted as miss.
+   *
+   * @param key the key of the jar.
+   * @return true if the cache has the jar.
+   */
+  public boolean lookup(String key) {
+    if (Files.isRegularFile(entryPath(key))) {
+      return true;
+    }
+    misses.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Copies the cached jar to the target, if it is found.
+   *
+   * @param key       the key of the jar.
+   * @param targetJar the jar to replace.
+   * @return true if the cache had the jar.
+   */
+  public boolean restore(String key, Path targetJar) {
+    Path cached = entryPath(key);
+    if (Files.isRegularFile(cached)) {
+      try {
+        Files.copy(cached, targetJar, StandardCopyOption.REPLACE_EXISTING);
+        hits.incrementAndGet();
+        log.info("Module cache hit: " + targetJar.getFileName());
+        return true;
+      } catch (IOException e) {
+        log.warn("Unable to read module cache entry: " + cached);
+      }
+    }
+    misses.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Stores the modularized jar in the cache. Errors only logged, the cache is optional.
+   *
+   * @param key       the key of the jar.
+   * @param moduleJar the modularized jar.
+   */
+  public void store(String key, Path moduleJar) {
+    Path cached = entryPath(key);
+    Path temp = null;
+    try {
+      Files.createDirectories(cached.getParent());
+      temp = Files.createTempFile(cached.getParent(), key, ".tmp");
+      Files.copy(moduleJar, temp, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("Unable to write module cache entry: " + cached);
+    } finally {
+      deleteTemp(temp);
+    }
+  }
+
+  /**
+   * Deletes the temp file of a failed store. After a successful move the file is already gone.
+   *
+   * @param temp the temp file or null.
+   */
+  private void deleteTemp(Path temp) {
+    if (temp != null) {
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException e) {
+        log.warn("Unable to delete module cache temp file: " + temp);
+      }
+    }
+  }
+
+  /**
+   * Logs the counters of the cache.
+   */
+  public void logStatistics() {
+    log.info("Module cache: " + hits.get() + " hits, " + misses.get() + " misses");
+  }
+
+  /**
+   * Gets the count of hits.
+   *
+   * @return the hits.
+   */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the count of misses.
+   *
+   * @return the misses.
+   */
+  public int getMisses() {
+    return misses.get();
+  }
+}
@@ -0,0 +1,212 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.module.ModuleDescriptor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * The fingerprint of the modules dir. It holds the configuration, the hash of each artifact and the module name and
+ * requires of each jar. It is used to process only the changed jars of the modules dir.
+ */
+public class ModuleFingerprint {
+
+  /**
+   * The file name of the fingerprint in the modules dir.
+   */
+  public static final String FILE_NAME = "modules.fingerprint";
+
+  /**
+   * The key of the configuration.
+   */
+  private static final String CONFIG_KEY = "config";
+
+  /**
+   * The prefix of the hash keys.
+   */
+  private static final String HASH_PREFIX = "hash.";
+
+  /**
+   * The prefix of the module keys.
+   */
+  private static final String MODULE_PREFIX = "module.";
+
+  /**
+   * The prefix of the requires keys.
+   */
+  private static final String REQUIRES_PREFIX = "requires.";
+
+  /**
+   * The configuration of the plugin.
+   */
+  private final String config;
+
+  /**
+   * The hashes of the artifacts by jar name.
+   */
+  private final Map<String, String> hashes = new TreeMap<>();
+
+  /**
+   * The module names by jar name.
+   */
+  private final Map<String, String> modules = new TreeMap<>();
+
+  /**
+   * The required module names by jar name.
+   */
+  private final Map<String, Set<String>> requires = new TreeMap<>();
+
+  /**
+   * The constructor with the configuration.
+   *
+   * @param pConfig the configuration of the plugin.
+   */
+  public ModuleFingerprint(String pConfig) {
+    config = pConfig;
+  }
+
+  /**
+   * Loads the fingerprint of the modules dir.
+   *
+   * @param modulesPath the modules dir.
+   * @return the fingerprint or null if it is missing or unreadable.
+   */
+  public static ModuleFingerprint load(Path modulesPath) {
+    Path file = modulesPath.resolve(FILE_NAME);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    Properties props = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      props.load(in);
+    } catch (IOException e) {
+      return null;
+    }
+    ModuleFingerprint print = new ModuleFingerprint(props.getProperty(CONFIG_KEY, ""));
+    for (String key : props.stringPropertyNames()) {
+      if (key.startsWith(HASH_PREFIX)) {
+        String jarName = key.substring(HASH_PREFIX.length());
+        print.hashes.put(jarName, props.getProperty(key));
+        print.modules.put(jarName, props.getProperty(MODULE_PREFIX + jarName, ""));
+        String required = props.getProperty(REQUIRES_PREFIX + jarName, "");
+        print.requires.put(jarName, Arrays.stream(required.split(","))
+            .filter(name -> !name.isEmpty()).collect(Collectors.toCollection(TreeSet::new)));
+      }
+    }
+    return print;
+  }
+
+  /**
+   * Deletes the fingerprint of the modules dir.
+   *
+   * @param modulesPath the modules dir.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  public static void delete(Path modulesPath) throws MojoExecutionException {
+    try {
+      Files.deleteIfExists(modulesPath.resolve(FILE_NAME));
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to delete fingerprint!", e);
+    }
+  }
+
+  /**
+   * Saves the fingerprint in the modules dir.
+   *
+   * @param modulesPath the modules dir.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  public void save(Path modulesPath) throws MojoExecutionException {
+    Properties props = new Properties();
+    props.setProperty(CONFIG_KEY, config);
+    for (Map.Entry<String, String> entry : hashes.entrySet()) {
+      String jarName = entry.getKey();
+      props.setProperty(HASH_PREFIX + jarName, entry.getValue());
+      props.setProperty(MODULE_PREFIX + jarName, modules.get(jarName));
+      props.setProperty(REQUIRES_PREFIX + jarName, String.join(",", requires.get(jarName)));
+    }
+    try (OutputStream out = Files.newOutputStream(modulesPath.resolve(FILE_NAME))) {
+      props.store(out, "jar-module fingerprint");
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to write fingerprint!", e);
+    }
+  }
+
+  /**
+   * Adds a jar to the fingerprint.
+   *
+   * @param jarName    the file name of the jar.
+   * @param hash       the hash of the artifact.
+   * @param descriptor the module descriptor of the jar in the modules dir.
+   */
+  public void putJar(String jarName, String hash, ModuleDescriptor descriptor) {
+    hashes.put(jarName, hash);
+    modules.put(jarName, descriptor.name());
+    requires.put(jarName, descriptor.requires().stream().map(ModuleDescriptor.Requires::name)
+        .collect(Collectors.toCollection(TreeSet::new)));
+  }
+
+  /**
+   * Gets the configuration.
+   *
+   * @return the configuration.
+   */
+  public String getConfig() {
+    return config;
+  }
+
+  /**
+   * Gets the jar names of the fingerprint.
+   *
+   * @return the jar names.
+   */
+  public Set<String> getJarNames() {
+    return hashes.keySet();
+  }
+
+  /**
+   * Gets the outdated jars. These are the jars that are added, removed or changed, and the jars that require the
+   * module of an outdated jar.
+   *
+   * @param newHashes the hashes of the current artifacts by jar name.
+   * @return the names of the outdated jars.
+   */
+  public Set<String> outdated(Map<String, String> newHashes) {
+    Set<String> result = new HashSet<>();
+    for (Map.Entry<String, String> entry : newHashes.entrySet()) {
+      if (!entry.getValue().equals(hashes.get(entry.getKey()))) {
+        result.add(entry.getKey());
+      }
+    }
+    for (String jarName : hashes.keySet()) {
+      if (!newHashes.containsKey(jarName)) {
+        result.add(jarName);
+      }
+    }
+    boolean added = true;
+    while (added) {
+      Set<String> outdatedModules = result.stream().map(modules::get).collect(Collectors.toSet());
+      added = false;
+      for (Map.Entry<String, Set<String>> entry : requires.entrySet()) {
+        if (!result.contains(entry.getKey())
+            && entry.getValue().stream().anyMatch(outdatedModules::contains)) {
+          result.add(entry.getKey());
+          added = true;
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,678 @@
+package com.mt_ag.jar.module;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.module.ModuleDescriptor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the module-info.class of a module descriptor, without compiling a module-info.java. It also reads the
+ * module-info.java generated by jdeps into a descriptor and sets the main class of a compiled module-info.class.
+ */
+public final class ModuleInfoWriter {
+
+  /**
+   * The magic of a class file.
+   */
+  static final int MAGIC = 0xCAFEBABE;
+
+  /**
+   * The major version of a class file of Java 9, the first one with modules.
+   */
+  private static final int MAJOR_VERSION = 53;
+
+  /**
+   * The size of the access flags, this class and super class.
+   */
+  private static final int CLASS_HEADER_SIZE = 6;
+
+  /**
+   * The access flag of a module-info.
+   */
+  private static final int ACC_MODULE = 0x8000;
+
+  /**
+   * The flag of an open module or a transitive requires.
+   */
+  private static final int ACC_OPEN = 0x0020;
+
+  /**
+   * The flag of a static requires.
+   */
+  private static final int ACC_STATIC_PHASE = 0x0040;
+
+  /**
+   * The flag of a synthetic directive.
+   */
+  private static final int ACC_SYNTHETIC = 0x1000;
+
+  /**
+   * The flag of a mandated directive.
+   */
+  private static final int ACC_MANDATED = 0x8000;
+
+  /**
+   * The tag of an utf8 constant.
+   */
+  static final int CONSTANT_UTF8 = 1;
+
+  /**
+   * The tag of a class constant.
+   */
+  private static final int CONSTANT_CLASS = 7;
+
+  /**
+   * The tag of a module constant.
+   */
+  private static final int CONSTANT_MODULE = 19;
+
+  /**
+   * The tag of a package constant.
+   */
+  private static final int CONSTANT_PACKAGE = 20;
+
+  /**
+   * The tag of a long constant, that takes two entries.
+   */
+  static final int CONSTANT_LONG = 5;
+
+  /**
+   * The tag of a double constant, that takes two entries.
+   */
+  static final int CONSTANT_DOUBLE = 6;
+
+  /**
+   * The sizes of the constants without tag by tag, except utf8.
+   */
+  static final Map<Integer, Integer> CONSTANT_SIZES = Map.ofEntries(Map.entry(3, 4), Map.entry(4, 4),
+      Map.entry(CONSTANT_LONG, 8), Map.entry(CONSTANT_DOUBLE, 8), Map.entry(CONSTANT_CLASS, 2), Map.entry(8, 2),
+      Map.entry(9, 4), Map.entry(10, 4), Map.entry(11, 4), Map.entry(12, 4), Map.entry(15, 3), Map.entry(16, 2),
+      Map.entry(17, 4), Map.entry(18, 4), Map.entry(CONSTANT_MODULE, 2), Map.entry(CONSTANT_PACKAGE, 2));
+
+  /**
+   * The indexes of the constants by tag and value.
+   */
+  private final Map<String, Integer> constants = new HashMap<>();
+
+  /**
+   * The constant pool.
+   */
+  private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+
+  /**
+   * The output of the constant pool.
+   */
+  private final DataOutputStream pool = new DataOutputStream(poolBytes);
+
+  /**
+   * The next index of the constant pool.
+   */
+  private int nextIndex = 1;
+
+  /**
+   * The constructor is private, the writer is used by write.
+   */
+  private ModuleInfoWriter() {
+  }
+
+  /**
+   * Writes the module-info.class of the descriptor.
+   *
+   * @param descriptor the descriptor, that must not be automatic.
+   * @return the class file.
+   */
+  public static byte[] write(ModuleDescriptor descriptor) {
+    if (descriptor.isAutomatic()) {
+      throw new IllegalArgumentException("Automatic module has no module-info: " + descriptor.name());
+    }
+    try {
+      return new ModuleInfoWriter().writeClass(descriptor);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Sets the main class of a module-info.class. The other attributes and the constant pool are kept, the new
+   * constants are added at the end of the pool.
+   *
+   * @param moduleInfo the module-info.class.
+   * @param mainClass  the binary name of the main class.
+   * @return the changed module-info.class.
+   */
+  public static byte[] setMainClass(byte[] moduleInfo, String mainClass) {
+    try {
+      return new ModuleInfoWriter().patchMainClass(moduleInfo, mainClass);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid module-info.class", e);
+    }
+  }
+
+  /**
+   * Reads a module-info.java as generated by jdeps or written by hand. Comments, annotations and import declarations
+   * are skipped.
+   *
+   * @param source the source of the module-info.java.
+   * @return the descriptor with the directives of the source.
+   */
+  public static ModuleDescriptor readSource(String source) {
+    List<String> tokens = tokens(source);
+    int start = tokens.indexOf("{");
+    if (start < 0 || !"}".equals(tokens.get(tokens.size() - 1))) {
+      throw new IllegalArgumentException("No module declaration found");
+    }
+    List<String> header = new ArrayList<>();
+    for (List<String> declaration : statements(tokens.subList(0, start))) {
+      if (!declaration.get(0).equals("import")) {
+        header.addAll(declaration);
+      }
+    }
+    boolean open = !header.isEmpty() && header.get(0).equals("open");
+    List<String> declaration = open ? header.subList(1, header.size()) : header;
+    if (declaration.size() != 2 || !declaration.get(0).equals("module")) {
+      throw new IllegalArgumentException("No module declaration found");
+    }
+    Set<ModuleDescriptor.Modifier> modifiers = open ? Set.of(ModuleDescriptor.Modifier.OPEN) : Set.of();
+    ModuleDescriptor.Builder builder = ModuleDescriptor.newModule(declaration.get(1), modifiers);
+
+    for (List<String> words : statements(tokens.subList(start + 1, tokens.size() - 1))) {
+      String directive = words.get(0);
+      List<String> args = words.subList(1, words.size());
+      if (args.isEmpty()) {
+        throw new IllegalArgumentException("Incomplete directive: " + directive);
+      }
+      switch (directive) {
+        case "requires":
+          builder.requires(requiresModifiers(args.subList(0, args.size() - 1)), args.get(args.size() - 1));
+          break;
+        case "exports":
+          if (args.size() > 2 && args.get(1).equals("to")) {
+            builder.exports(args.get(0), new HashSet<>(args.subList(2, args.size())));
+          } else if (args.size() == 1) {
+            builder.exports(args.get(0));
+          } else {
+            throw new IllegalArgumentException("Invalid directive: exports " + String.join(" ", args));
+          }
+          break;
+        case "opens":
+          if (args.size() > 2 && args.get(1).equals("to")) {
+            builder.opens(args.get(0), new HashSet<>(args.subList(2, args.size())));
+          } else if (args.size() == 1) {
+            builder.opens(args.get(0));
+          } else {
+            throw new IllegalArgumentException("Invalid directive: opens " + String.join(" ", args));
+          }
+          break;
+        case "uses":
+          builder.uses(args.get(0));
+          break;
+        case "provides":
+          if (args.size() <= 2 || !args.get(1).equals("with")) {
+            throw new IllegalArgumentException("Invalid directive: provides " + String.join(" ", args));
+          }
+          builder.provides(args.get(0), args.subList(2, args.size()));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown directive: " + directive);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Gets the modifiers of a requires directive.
+   *
+   * @param words the words between requires and the module name.
+   * @return the modifiers.
+   */
+  private static Set<ModuleDescriptor.Requires.Modifier> requiresModifiers(List<String> words) {
+    Set<ModuleDescriptor.Requires.Modifier> modifiers = new HashSet<>();
+    for (String word : words) {
+      if (word.equals("static")) {
+        modifiers.add(ModuleDescriptor.Requires.Modifier.STATIC);
+      } else if (word.equals("transitive")) {
+        modifiers.add(ModuleDescriptor.Requires.Modifier.TRANSITIVE);
+      } else {
+        throw new IllegalArgumentException("Unknown modifier of requires: " + word);
+      }
+    }
+    return modifiers;
+  }
+
+  /**
+   * Splits the tokens in statements separated by semicolons. Empty statements are skipped.
+   *
+   * @param tokens the tokens.
+   * @return the words of the statements.
+   */
+  private static List<List<String>> statements(List<String> tokens) {
+    List<List<String>> statements = new ArrayList<>();
+    List<String> statement = new ArrayList<>();
+    for (String token : tokens) {
+      if (token.equals("{") || token.equals("}")) {
+        throw new IllegalArgumentException("Unexpected token: " + token);
+      } else if (token.equals(";")) {
+        if (!statement.isEmpty()) {
+          statements.add(statement);
+          statement = new ArrayList<>();
+        }
+      } else {
+        statement.add(token);
+      }
+    }
+    if (!statement.isEmpty()) {
+      statements.add(statement);
+    }
+    return statements;
+  }
+
+  /**
+   * Splits a module-info.java in tokens. The tokens are the names, the braces and the semicolons. Commas only separate
+   * names, comments and annotations are skipped.
+   *
+   * @param source the source.
+   * @return the tokens.
+   */
+  private static List<String> tokens(String source) {
+    List<String> tokens = new ArrayList<>();
+    int pos = 0;
+    while (pos < source.length()) {
+      char c = source.charAt(pos);
+      if (source.startsWith("//", pos)) {
+        int end = source.indexOf('\n', pos);
+        pos = (end < 0) ? source.length() : end + 1;
+      } else if (source.startsWith("/*", pos)) {
+        int end = source.indexOf("*/", pos + 2);
+        if (end < 0) {
+          throw new IllegalArgumentException("Unclosed comment");
+        }
+        pos = end + 2;
+      } else if (c == '@') {
+        pos = skipAnnotation(source, pos + 1);
+      } else if (c == '{' || c == '}' || c == ';') {
+        tokens.add(String.valueOf(c));
+        pos++;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int end = pos + 1;
+        while (end < source.length()
+            && (Character.isJavaIdentifierPart(source.charAt(end)) || isNameSeparator(source, end))) {
+          end++;
+        }
+        tokens.add(source.substring(pos, end).replaceAll("\\s+", ""));
+        pos = end;
+      } else if (Character.isWhitespace(c) || c == ',') {
+        pos++;
+      } else {
+        throw new IllegalArgumentException("Unexpected character: " + c);
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Tests if the char at the position is part of the dot of a qualified name. Whitespace is allowed around the dot.
+   *
+   * @param source the source.
+   * @param pos    the position.
+   * @return true if the char is the dot or whitespace before or after it.
+   */
+  private static boolean isNameSeparator(String source, int pos) {
+    char c = source.charAt(pos);
+    if (c == '.') {
+      return true;
+    }
+    if (!Character.isWhitespace(c)) {
+      return false;
+    }
+    int next = pos;
+    while (next < source.length() && Character.isWhitespace(source.charAt(next))) {
+      next++;
+    }
+    int previous = pos;
+    while (previous > 0 && Character.isWhitespace(source.charAt(previous - 1))) {
+      previous--;
+    }
+    return (next < source.length() && source.charAt(next) == '.') || source.charAt(previous - 1) == '.';
+  }
+
+  /**
+   * Skips an annotation, the name and the arguments in parentheses. Strings and chars in the arguments may contain
+   * parentheses.
+   *
+   * @param source the source.
+   * @param pos    the position after the at sign.
+   * @return the position after the annotation.
+   */
+  private static int skipAnnotation(String source, int pos) {
+    int end = pos;
+    while (end < source.length() && Character.isWhitespace(source.charAt(end))) {
+      end++;
+    }
+    while (end < source.length() && (Character.isJavaIdentifierPart(source.charAt(end))
+        || source.charAt(end) == '.')) {
+      end++;
+    }
+    int open = end;
+    while (open < source.length() && Character.isWhitespace(source.charAt(open))) {
+      open++;
+    }
+    if (open >= source.length() || source.charAt(open) != '(') {
+      return end;
+    }
+    int depth = 0;
+    for (int i = open; i < source.length(); i++) {
+      char c = source.charAt(i);
+      if (c == '"' || c == '\'') {
+        i = skipLiteral(source, i);
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')' && --depth == 0) {
+        return i + 1;
+      }
+    }
+    throw new IllegalArgumentException("Unclosed annotation");
+  }
+
+  /**
+   * Skips a string or char literal.
+   *
+   * @param source the source.
+   * @param pos    the position of the opening quote.
+   * @return the position of the closing quote.
+   */
+  private static int skipLiteral(String source, int pos) {
+    char quote = source.charAt(pos);
+    for (int i = pos + 1; i < source.length(); i++) {
+      char c = source.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == quote) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unclosed literal");
+  }
+
+  /**
+   * Writes the class file.
+   *
+   * @param descriptor the descriptor.
+   * @return the class file.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private byte[] writeClass(ModuleDescriptor descriptor) throws IOException {
+    ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+    DataOutputStream body = new DataOutputStream(bodyBytes);
+    body.writeShort(ACC_MODULE);
+    body.writeShort(constant(CONSTANT_CLASS, "module-info"));
+    body.writeShort(0);
+    body.writeShort(0);
+    body.writeShort(0);
+    body.writeShort(0);
+
+    int attributes = 2;
+    if (descriptor.mainClass().isPresent()) {
+      attributes++;
+    }
+    body.writeShort(attributes);
+    writeAttribute(body, "Module", moduleAttribute(descriptor));
+
+    ByteArrayOutputStream packages = new ByteArrayOutputStream();
+    DataOutputStream packagesOut = new DataOutputStream(packages);
+    packagesOut.writeShort(descriptor.packages().size());
+    for (String packageName : new TreeSet<>(descriptor.packages())) {
+      packagesOut.writeShort(constant(CONSTANT_PACKAGE, packageName.replace('.', '/')));
+    }
+    writeAttribute(body, "ModulePackages", packages.toByteArray());
+
+    if (descriptor.mainClass().isPresent()) {
+      ByteArrayOutputStream mainClass = new ByteArrayOutputStream();
+      new DataOutputStream(mainClass).writeShort(classConstant(descriptor.mainClass().get()));
+      writeAttribute(body, "ModuleMainClass", mainClass.toByteArray());
+    }
+
+    ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+    DataOutputStream classOut = new DataOutputStream(classBytes);
+    classOut.writeInt(MAGIC);
+    classOut.writeShort(0);
+    classOut.writeShort(MAJOR_VERSION);
+    classOut.writeShort(nextIndex);
+    classOut.write(poolBytes.toByteArray());
+    classOut.write(bodyBytes.toByteArray());
+    return classBytes.toByteArray();
+  }
+
+  /**
+   * Copies the module-info.class with a new ModuleMainClass attribute.
+   *
+   * @param moduleInfo the module-info.class.
+   * @param mainClass  the binary name of the main class.
+   * @return the changed module-info.class.
+   * @throws IOException is thrown if the class file is invalid.
+   */
+  private byte[] patchMainClass(byte[] moduleInfo, String mainClass) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(moduleInfo));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("No class file");
+    }
+    int minorVersion = in.readUnsignedShort();
+    int majorVersion = in.readUnsignedShort();
+    int count = in.readUnsignedShort();
+    Map<Integer, String> names = new HashMap<>();
+    for (int index = 1; index < count; index++) {
+      int tag = in.readUnsignedByte();
+      pool.writeByte(tag);
+      if (tag == CONSTANT_UTF8) {
+        String value = in.readUTF();
+        names.put(index, value);
+        pool.writeUTF(value);
+      } else {
+        Integer size = CONSTANT_SIZES.get(tag);
+        if (size == null) {
+          throw new IOException("Unknown constant tag: " + tag);
+        }
+        pool.write(in.readNBytes(size));
+        if (tag == CONSTANT_LONG || tag == CONSTANT_DOUBLE) {
+          index++;
+        }
+      }
+    }
+    nextIndex = count;
+
+    ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+    DataOutputStream body = new DataOutputStream(bodyBytes);
+    body.write(in.readNBytes(CLASS_HEADER_SIZE));
+    int interfaces = in.readUnsignedShort();
+    body.writeShort(interfaces);
+    body.write(in.readNBytes(Short.BYTES * interfaces));
+    int fields = in.readUnsignedShort();
+    int methods = in.readUnsignedShort();
+    if (fields != 0 || methods != 0) {
+      throw new IOException("module-info.class with fields or methods");
+    }
+    body.writeShort(0);
+    body.writeShort(0);
+
+    int attributes = in.readUnsignedShort();
+    List<byte[]> kept = new ArrayList<>();
+    for (int i = 0; i < attributes; i++) {
+      int nameIndex = in.readUnsignedShort();
+      byte[] data = in.readNBytes(in.readInt());
+      if (!"ModuleMainClass".equals(names.get(nameIndex))) {
+        ByteArrayOutputStream attribute = new ByteArrayOutputStream();
+        DataOutputStream attributeOut = new DataOutputStream(attribute);
+        attributeOut.writeShort(nameIndex);
+        attributeOut.writeInt(data.length);
+        attributeOut.write(data);
+        kept.add(attribute.toByteArray());
+      }
+    }
+    body.writeShort(kept.size() + 1);
+    for (byte[] attribute : kept) {
+      body.write(attribute);
+    }
+    ByteArrayOutputStream main = new ByteArrayOutputStream();
+    new DataOutputStream(main).writeShort(classConstant(mainClass));
+    writeAttribute(body, "ModuleMainClass", main.toByteArray());
+
+    ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+    DataOutputStream classOut = new DataOutputStream(classBytes);
+    classOut.writeInt(MAGIC);
+    classOut.writeShort(minorVersion);
+    classOut.writeShort(majorVersion);
+    classOut.writeShort(nextIndex);
+    classOut.write(poolBytes.toByteArray());
+    classOut.write(bodyBytes.toByteArray());
+    return classBytes.toByteArray();
+  }
+
+  /**
+   * Writes the module attribute.
+   *
+   * @param descriptor the descriptor.
+   * @return the attribute.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private byte[] moduleAttribute(ModuleDescriptor descriptor) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeShort(constant(CONSTANT_MODULE, descriptor.name()));
+    int flags = 0;
+    flags |= descriptor.modifiers().contains(ModuleDescriptor.Modifier.OPEN) ? ACC_OPEN : 0;
+    flags |= descriptor.modifiers().contains(ModuleDescriptor.Modifier.SYNTHETIC) ? ACC_SYNTHETIC : 0;
+    flags |= descriptor.modifiers().contains(ModuleDescriptor.Modifier.MANDATED) ? ACC_MANDATED : 0;
+    out.writeShort(flags);
+    out.writeShort(descriptor.rawVersion().isPresent() ? constant(CONSTANT_UTF8, descriptor.rawVersion().get()) : 0);
+
+    out.writeShort(descriptor.requires().size());
+    for (ModuleDescriptor.Requires requires : new TreeSet<>(descriptor.requires())) {
+      out.writeShort(constant(CONSTANT_MODULE, requires.name()));
+      int requiresFlags = 0;
+      requiresFlags |= requires.modifiers().contains(ModuleDescriptor.Requires.Modifier.TRANSITIVE) ? ACC_OPEN : 0;
+      requiresFlags |= requires.modifiers().contains(ModuleDescriptor.Requires.Modifier.STATIC)
+          ? ACC_STATIC_PHASE : 0;
+      requiresFlags |= requires.modifiers().contains(ModuleDescriptor.Requires.Modifier.SYNTHETIC)
+          ? ACC_SYNTHETIC : 0;
+      requiresFlags |= requires.modifiers().contains(ModuleDescriptor.Requires.Modifier.MANDATED)
+          ? ACC_MANDATED : 0;
+      out.writeShort(requiresFlags);
+      out.writeShort(requires.rawCompiledVersion().isPresent()
+          ? constant(CONSTANT_UTF8, requires.rawCompiledVersion().get()) : 0);
+    }
+
+    out.writeShort(descriptor.exports().size());
+    for (ModuleDescriptor.Exports exports : new TreeSet<>(descriptor.exports())) {
+      writePackageDirective(out, exports.source(), exports.isQualified(), exports.targets(),
+          exports.modifiers().contains(ModuleDescriptor.Exports.Modifier.SYNTHETIC),
+          exports.modifiers().contains(ModuleDescriptor.Exports.Modifier.MANDATED));
+    }
+
+    out.writeShort(descriptor.opens().size());
+    for (ModuleDescriptor.Opens opens : new TreeSet<>(descriptor.opens())) {
+      writePackageDirective(out, opens.source(), opens.isQualified(), opens.targets(),
+          opens.modifiers().contains(ModuleDescriptor.Opens.Modifier.SYNTHETIC),
+          opens.modifiers().contains(ModuleDescriptor.Opens.Modifier.MANDATED));
+    }
+
+    out.writeShort(descriptor.uses().size());
+    for (String uses : new TreeSet<>(descriptor.uses())) {
+      out.writeShort(classConstant(uses));
+    }
+
+    out.writeShort(descriptor.provides().size());
+    for (ModuleDescriptor.Provides provides : new TreeSet<>(descriptor.provides())) {
+      out.writeShort(classConstant(provides.service()));
+      out.writeShort(provides.providers().size());
+      for (String provider : provides.providers()) {
+        out.writeShort(classConstant(provider));
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Writes an exports or opens directive.
+   *
+   * @param out         the output.
+   * @param source      the package.
+   * @param qualified   true if the directive has targets.
+   * @param targets     the target modules.
+   * @param synthetic   true if the directive is synthetic.
+   * @param mandated    true if the directive is mandated.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private void writePackageDirective(DataOutputStream out, String source, boolean qualified, Set<String> targets,
+                                     boolean synthetic, boolean mandated) throws IOException {
+    out.writeShort(constant(CONSTANT_PACKAGE, source.replace('.', '/')));
+    out.writeShort((synthetic ? ACC_SYNTHETIC : 0) | (mandated ? ACC_MANDATED : 0));
+    if (qualified) {
+      out.writeShort(targets.size());
+      for (String target : new TreeSet<>(targets)) {
+        out.writeShort(constant(CONSTANT_MODULE, target));
+      }
+    } else {
+      out.writeShort(0);
+    }
+  }
+
+  /**
+   * Writes an attribute.
+   *
+   * @param out  the output.
+   * @param name the name of the attribute.
+   * @param data the data of the attribute.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private void writeAttribute(DataOutputStream out, String name, byte[] data) throws IOException {
+    out.writeShort(constant(CONSTANT_UTF8, name));
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  /**
+   * Gets the class constant of a class name.
+   *
+   * @param className the binary name of the class.
+   * @return the index of the constant.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private int classConstant(String className) throws IOException {
+    return constant(CONSTANT_CLASS, className.replace('.', '/'));
+  }
+
+  /**
+   * Gets the index of a constant. The constant is added to the pool, if it is not in the pool.
+   *
+   * @param tag   the tag of the constant.
+   * @param value the value.
+   * @return the index of the constant.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private int constant(int tag, String value) throws IOException {
+    String key = tag + ":" + value;
+    Integer index = constants.get(key);
+    if (index == null) {
+      if (tag == CONSTANT_UTF8) {
+        pool.writeByte(CONSTANT_UTF8);
+        pool.writeUTF(value);
+      } else {
+        int nameIndex = constant(CONSTANT_UTF8, value);
+        pool.writeByte(tag);
+        pool.writeShort(nameIndex);
+      }
+      index = nextIndex++;
+      constants.put(key, index);
+    }
+    return index;
+  }
+}
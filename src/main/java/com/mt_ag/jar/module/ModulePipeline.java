@@ -0,0 +1,132 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The pipeline to run the stages of the module creation in parallel. The tasks of one stage run concurrently, the
+ * stages are separated by waiting for all tasks of a stage.
+ */
+public class ModulePipeline implements AutoCloseable {
+
+  /**
+   * A task of a stage.
+   *
+   * @param <T> the type of the result.
+   */
+  @FunctionalInterface
+  public interface Task<T> {
+    /**
+     * Runs the task.
+     *
+     * @return the result.
+     * @throws MojoExecutionException is thrown if an error occurs.
+     */
+    T call() throws MojoExecutionException;
+  }
+
+  /**
+   * The counter of the pipelines, used for the thread names.
+   */
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+  /**
+   * The executor of the tasks.
+   */
+  private final ExecutorService executor;
+
+  /**
+   * The count of threads.
+   */
+  private final int threadCount;
+
+  /**
+   * The constructor with the count of threads.
+   *
+   * @param threads the count of threads, 0 or less uses the count of processors.
+   */
+  public ModulePipeline(int threads) {
+    threadCount = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+    int pool = POOL_COUNT.incrementAndGet();
+    AtomicInteger threadNumber = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+      Thread thread = new Thread(runnable, "jar-module-" + pool + "-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Gets the count of threads.
+   *
+   * @return the count of threads.
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * Submits a task.
+   *
+   * @param task the task.
+   * @param <T>  the type of the result.
+   * @return the future of the result.
+   */
+  public <T> CompletableFuture<T> submit(Task<T> task) {
+    return CompletableFuture.supplyAsync(() -> callTask(task), executor);
+  }
+
+  /**
+   * Runs the task and wraps the exception.
+   *
+   * @param task the task.
+   * @param <T>  the type of the result.
+   * @return the result of the task.
+   */
+  private static <T> T callTask(Task<T> task) {
+    try {
+      return task.call();
+    } catch (MojoExecutionException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * Waits for all futures. It is the barrier between two stages.
+   *
+   * @param futures the futures.
+   * @param <T>     the type of the results.
+   * @return the results in the order of the futures.
+   * @throws MojoExecutionException is thrown if a task has thrown an exception.
+   */
+  public static <T> List<T> awaitAll(List<CompletableFuture<T>> futures) throws MojoExecutionException {
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof MojoExecutionException) {
+        throw (MojoExecutionException) e.getCause();
+      }
+      throw new MojoExecutionException("Error in module pipeline!", e.getCause());
+    }
+    List<T> results = new ArrayList<>();
+    for (CompletableFuture<T> future : futures) {
+      results.add(future.join());
+    }
+    return results;
+  }
+
+  /**
+   * Stops the threads of the pipeline.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
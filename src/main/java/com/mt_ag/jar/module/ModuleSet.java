@@ -0,0 +1,163 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.lang.module.Configuration;
+import java.lang.module.FindException;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ResolutionException;
+import java.lang.module.ResolvedModule;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * The set of modules of an image. The root modules are resolved like jlink does it over the jdk and the modules dir:
+ * the requires are followed, the requires static are not. Jlink binds the services of all modules or none, so the
+ * providers of the services used by the application modules are bound here and added as root modules. The services
+ * used by the jdk modules are not bound.
+ */
+final class ModuleSet {
+
+  /**
+   * The root modules.
+   */
+  private final Set<String> roots;
+
+  /**
+   * The resolved modules.
+   */
+  private final Configuration configuration;
+
+  /**
+   * The constructor with all fields.
+   *
+   * @param pRoots         the root modules.
+   * @param pConfiguration the resolved modules.
+   */
+  private ModuleSet(Set<String> pRoots, Configuration pConfiguration) {
+    roots = pRoots;
+    configuration = pConfiguration;
+  }
+
+  /**
+   * Gets the root modules, the given modules and the bound providers.
+   *
+   * @return the sorted names.
+   */
+  Set<String> getRoots() {
+    return roots;
+  }
+
+  /**
+   * Gets the resolved modules.
+   *
+   * @return the configuration.
+   */
+  Configuration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Gets the names of all resolved modules.
+   *
+   * @return the sorted names.
+   */
+  Set<String> getModules() {
+    return configuration.modules().stream().map(ResolvedModule::name).collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /**
+   * Gets the names of the resolved jdk modules.
+   *
+   * @return the sorted names.
+   */
+  Set<String> getJdkModules() {
+    return configuration.modules().stream().filter(module -> !isApplication(module)).map(ResolvedModule::name)
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /**
+   * Resolves the root modules over the jdk and the modules dir.
+   *
+   * @param modulesPath  the modules dir.
+   * @param rootModules  the root modules.
+   * @param bindServices true to bind the providers of the services used by the application modules.
+   * @return the module set.
+   * @throws MojoExecutionException is thrown if a module is missing.
+   */
+  static ModuleSet of(Path modulesPath, Collection<String> rootModules, boolean bindServices)
+      throws MojoExecutionException {
+    ModuleFinder finder = ModuleFinder.compose(ModuleFinder.ofSystem(), ModuleFinder.of(modulesPath));
+    Set<String> roots = new TreeSet<>(rootModules);
+    try {
+      Configuration configuration = resolve(finder, roots);
+      while (bindServices && roots.addAll(providers(finder, configuration))) {
+        configuration = resolve(finder, roots);
+      }
+      return new ModuleSet(roots, configuration);
+    } catch (FindException | ResolutionException e) {
+      throw new MojoExecutionException("Unable to resolve modules: " + String.join(",", roots), e);
+    }
+  }
+
+  /**
+   * Resolves the root modules without binding services.
+   *
+   * @param finder the finder of the modules.
+   * @param roots  the root modules.
+   * @return the configuration.
+   */
+  private static Configuration resolve(ModuleFinder finder, Set<String> roots) {
+    return Configuration.empty().resolve(finder, ModuleFinder.of(), roots);
+  }
+
+  /**
+   * Finds the modules providing a service used by a resolved application module.
+   *
+   * @param finder        the finder of the modules.
+   * @param configuration the resolved modules.
+   * @return the names of the providing modules.
+   */
+  private static Set<String> providers(ModuleFinder finder, Configuration configuration) {
+    Set<String> uses = configuration.modules().stream().filter(ModuleSet::isApplication)
+        .flatMap(module -> module.reference().descriptor().uses().stream()).collect(Collectors.toSet());
+    return finder.findAll().stream().map(reference -> reference.descriptor())
+        .filter(descriptor -> descriptor.provides().stream().anyMatch(p -> uses.contains(p.service())))
+        .map(ModuleDescriptor::name).collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /**
+   * Tests if a resolved module is found in the modules dir.
+   *
+   * @param module the resolved module.
+   * @return true if it is not a jdk module.
+   */
+  static boolean isApplication(ResolvedModule module) {
+    URI location = module.reference().location().orElse(null);
+    return location != null && "file".equals(location.getScheme());
+  }
+
+  /**
+   * Gets the modules required by a module but not used by its classes. The used modules are listed by jdeps with
+   * list-deps, one module per line. Requires static and mandated requires are ignored.
+   *
+   * @param descriptor the descriptor of the module.
+   * @param usedLines  the lines of the used modules listed by jdeps.
+   * @return the sorted names of the unused modules.
+   */
+  static Set<String> unusedRequires(ModuleDescriptor descriptor, List<String> usedLines) {
+    Set<String> used = usedLines.stream().map(String::trim).filter(line -> !line.isEmpty())
+        .map(line -> line.split("[\\s/]")[0]).collect(Collectors.toSet());
+    return descriptor.requires().stream()
+        .filter(requires -> !requires.modifiers().contains(ModuleDescriptor.Requires.Modifier.STATIC)
+            && !requires.modifiers().contains(ModuleDescriptor.Requires.Modifier.MANDATED))
+        .map(ModuleDescriptor.Requires::name).filter(name -> !used.contains(name))
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+}
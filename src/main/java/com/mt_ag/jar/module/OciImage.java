@@ -0,0 +1,280 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Creates an image in the OCI image layout and packs it as tar. Every layer is a reproducible tar.gz, so an unchanged
+ * layer has the same digest in every build and is not stored or pushed again by the container tools. No registry or
+ * container daemon is used.
+ */
+public class OciImage {
+
+  /**
+   * The media type of the index.
+   */
+  private static final String INDEX_TYPE = "application/vnd.oci.image.index.v1+json";
+
+  /**
+   * The media type of the manifest.
+   */
+  private static final String MANIFEST_TYPE = "application/vnd.oci.image.manifest.v1+json";
+
+  /**
+   * The media type of the config.
+   */
+  private static final String CONFIG_TYPE = "application/vnd.oci.image.config.v1+json";
+
+  /**
+   * The media type of a layer.
+   */
+  private static final String LAYER_TYPE = "application/vnd.oci.image.layer.v1.tar+gzip";
+
+  /**
+   * The prefix of the digests.
+   */
+  private static final String SHA256 = "sha256:";
+
+  /**
+   * A layer of the image.
+   */
+  private static final class Layer {
+
+    /**
+     * The name of the layer, used in the history.
+     */
+    private String name;
+
+    /**
+     * The digest of the uncompressed tar.
+     */
+    private String diffId;
+
+    /**
+     * The digest of the blob.
+     */
+    private String digest;
+
+    /**
+     * The size of the blob.
+     */
+    private long size;
+  }
+
+  /**
+   * The dir of the layout.
+   */
+  private final Path layoutDir;
+
+  /**
+   * The dir of the blobs.
+   */
+  private final Path blobDir;
+
+  /**
+   * The layers in order.
+   */
+  private final List<Layer> layers = new ArrayList<>();
+
+  /**
+   * The constructor creates an empty layout dir.
+   *
+   * @param pLayoutDir the dir of the layout, deleted if it exists.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  public OciImage(Path pLayoutDir) throws MojoExecutionException {
+    layoutDir = pLayoutDir;
+    blobDir = layoutDir.resolve("blobs").resolve("sha256");
+    Tools.deleteDir(layoutDir);
+    try {
+      Files.createDirectories(blobDir);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to create dir: " + blobDir, e);
+    }
+  }
+
+  /**
+   * Adds a layer with the files and dirs in the target dir of the image. The parent dirs of the target dir are added
+   * to the layer too.
+   *
+   * @param name      the name of the layer.
+   * @param targetDir the target dir in the image without leading slash.
+   * @param paths     the files and dirs, added by their file names.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  public void addLayer(String name, String targetDir, List<Path> paths) throws MojoExecutionException {
+    Path temp = blobDir.resolve("layer.tmp");
+    Layer layer = new Layer();
+    layer.name = name;
+    try {
+      MessageDigest blobDigest = MessageDigest.getInstance("SHA-256");
+      MessageDigest tarDigest = MessageDigest.getInstance("SHA-256");
+      try (TarWriter tar = new TarWriter(new DigestOutputStream(new GZIPOutputStream(new DigestOutputStream(
+          Files.newOutputStream(temp), blobDigest), Tools.BUFFER_SIZE), tarDigest))) {
+        String parent = "";
+        for (String dir : targetDir.split("/")) {
+          parent = parent + dir + "/";
+          tar.addDir(parent, TarWriter.MODE_EXECUTABLE);
+        }
+        for (Path path : paths.stream().sorted().collect(Collectors.toList())) {
+          tar.addTree(targetDir + "/" + path.getFileName().toString(), path);
+        }
+      }
+      layer.diffId = SHA256 + Tools.toHex(tarDigest.digest());
+      layer.digest = SHA256 + Tools.toHex(blobDigest.digest());
+      layer.size = Files.size(temp);
+      Files.move(temp, blobPath(layer.digest), StandardCopyOption.REPLACE_EXISTING);
+    } catch (NoSuchAlgorithmException e) {
+      throw new MojoExecutionException("Missing hash algorithm!", e);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to write layer: " + name, e);
+    }
+    layers.add(layer);
+  }
+
+  /**
+   * Gets the digests of the blobs of the layers.
+   *
+   * @return the digests in the order of the layers.
+   */
+  public List<String> getLayerDigests() {
+    return layers.stream().map(layer -> layer.digest).collect(Collectors.toList());
+  }
+
+  /**
+   * Writes the config, the manifest and the index and packs the layout as tar.
+   *
+   * @param tarFile    the tar of the layout.
+   * @param entrypoint the entrypoint of the image.
+   * @param refName    the reference name of the image.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  public void write(Path tarFile, List<String> entrypoint, String refName) throws MojoExecutionException {
+    StringBuilder diffIds = new StringBuilder();
+    StringBuilder history = new StringBuilder();
+    StringBuilder layerList = new StringBuilder();
+    for (Layer layer : layers) {
+      String separator = (diffIds.length() == 0) ? "" : ",";
+      diffIds.append(separator).append(quote(layer.diffId));
+      history.append(separator).append("{\"created_by\":").append(quote("jar-module " + layer.name)).append('}');
+      layerList.append(separator).append(descriptor(LAYER_TYPE, layer.digest, layer.size));
+    }
+    String config = "{\"architecture\":" + quote(architecture()) + ",\"os\":\"linux\",\"config\":{\"Entrypoint\":["
+        + entrypoint.stream().map(OciImage::quote).collect(Collectors.joining(",")) + "],\"WorkingDir\":\"/app\"},"
+        + "\"rootfs\":{\"type\":\"layers\",\"diff_ids\":[" + diffIds + "]},\"history\":[" + history + "]}";
+    try {
+      String configDescriptor = writeBlob(CONFIG_TYPE, config);
+      String manifest = "{\"schemaVersion\":2,\"mediaType\":" + quote(MANIFEST_TYPE) + ",\"config\":"
+          + configDescriptor + ",\"layers\":[" + layerList + "]}";
+      String manifestDescriptor = writeBlob(MANIFEST_TYPE, manifest);
+      String index = "{\"schemaVersion\":2,\"mediaType\":" + quote(INDEX_TYPE) + ",\"manifests\":["
+          + manifestDescriptor.substring(0, manifestDescriptor.length() - 1)
+          + ",\"annotations\":{\"org.opencontainers.image.ref.name\":" + quote(refName) + "}}]}";
+      Files.writeString(layoutDir.resolve("index.json"), index, StandardCharsets.UTF_8);
+      Files.writeString(layoutDir.resolve("oci-layout"), "{\"imageLayoutVersion\":\"1.0.0\"}",
+          StandardCharsets.UTF_8);
+      try (TarWriter tar = new TarWriter(Files.newOutputStream(tarFile))) {
+        tar.addTree("", layoutDir);
+      }
+    } catch (NoSuchAlgorithmException e) {
+      throw new MojoExecutionException("Missing hash algorithm!", e);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to write image: " + tarFile, e);
+    }
+  }
+
+  /**
+   * Writes a json blob.
+   *
+   * @param mediaType the media type.
+   * @param json      the json.
+   * @return the descriptor of the blob.
+   * @throws IOException              is thrown if an error occurs.
+   * @throws NoSuchAlgorithmException is thrown if sha-256 is missing.
+   */
+  private String writeBlob(String mediaType, String json) throws IOException, NoSuchAlgorithmException {
+    byte[] data = json.getBytes(StandardCharsets.UTF_8);
+    String digest = SHA256 + Tools.toHex(MessageDigest.getInstance("SHA-256").digest(data));
+    try (OutputStream out = Files.newOutputStream(blobPath(digest))) {
+      out.write(data);
+    }
+    return descriptor(mediaType, digest, data.length);
+  }
+
+  /**
+   * Gets the path of a blob.
+   *
+   * @param digest the digest of the blob.
+   * @return the path.
+   */
+  private Path blobPath(String digest) {
+    return blobDir.resolve(digest.substring(SHA256.length()));
+  }
+
+  /**
+   * Creates the json of a descriptor.
+   *
+   * @param mediaType the media type.
+   * @param digest    the digest.
+   * @param size      the size.
+   * @return the json.
+   */
+  private static String descriptor(String mediaType, String digest, long size) {
+    return "{\"mediaType\":" + quote(mediaType) + ",\"digest\":" + quote(digest) + ",\"size\":" + size + "}";
+  }
+
+  /**
+   * Gets the architecture of this runtime as named by OCI. The jlink image contains the binaries of this runtime.
+   *
+   * @return the architecture.
+   */
+  static String architecture() {
+    String arch = System.getProperty("os.arch").toLowerCase(Locale.ROOT);
+    switch (arch) {
+      case "x86_64":
+      case "amd64":
+        return "amd64";
+      case "aarch64":
+        return "arm64";
+      case "x86":
+      case "i386":
+        return "386";
+      default:
+        return arch;
+    }
+  }
+
+  /**
+   * Quotes a string as json string.
+   *
+   * @param value the string.
+   * @return the json string.
+   */
+  static String quote(String value) {
+    StringBuilder json = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < ' ') {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    return json.append('"').toString();
+  }
+}
@@ -0,0 +1,19 @@
+package com.mt_ag.jar.module;
+
+/**
+ * Enum of the log level of the output of the tools.
+ */
+public enum OutputEnum {
+  /**
+   * The lines are logged as info.
+   */
+  Info,
+  /**
+   * The lines are logged as debug.
+   */
+  Debug,
+  /**
+   * The lines are not logged, only kept in the result.
+   */
+  None
+}
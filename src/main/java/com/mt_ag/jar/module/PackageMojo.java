@@ -13,11 +13,9 @@ import org.apache.maven.project.MavenProjectHelper;
 
 import java.io.IOException;
 import java.lang.module.ModuleDescriptor;
-import java.lang.module.ModuleFinder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
-import java.util.jar.JarFile;
 
 /**
  * Implements the goal javapackager. Javapackager calls the javapackager command. Before it is done, it copies all
@@ -154,6 +152,7 @@ public class PackageMojo extends UpdateModules {
                         NativeType pNative, boolean openmodule) {
     super(openmodule);
     myLog = pLog;
+    setLog(pLog);
     project = pProject;
     projectHelper = pHelper;
     nativeType = pNative;
@@ -176,23 +175,21 @@ public class PackageMojo extends UpdateModules {
     for (Artifact art : project.getAttachedArtifacts()) {
       myLog.info("attached artifact: " + art.getFile().getName());
     }
-    ModuleDescriptor md = ModuleFinder.of(targetJar).findAll().stream().findFirst().get().descriptor();
+    JarIndex index = JarIndex.of(targetJar);
+    ModuleDescriptor md = index.getDescriptor();
     String moduleName = md.name();
     Optional<String> main = md.mainClass();
     if (!main.isPresent()) {
-      try (JarFile jf = new JarFile(targetJar.toFile())) {
-        main = Optional.ofNullable(jf.getManifest().getMainAttributes().getValue("Main-Class"));
-      } catch (IOException e) {
-        throw new MojoExecutionException("Unable to read target jar", e);
-      }
+      main = Optional.ofNullable(index.getMainClass());
     }
     if (!main.isPresent()) {
       throw new MojoExecutionException("No main is set in jar");
     }
 
     myLog.info("Found module:" + moduleName);
+    Tools.deleteDir(modulesPath.resolve(INSTALLER_DIR_NAME));
     try {
-      Files.createDirectory(modulesPath.resolve("inst"));
+      Files.createDirectories(modulesPath.resolve("inst"));
     } catch (IOException e) {
       throw new MojoExecutionException("Unable to create dir inst!");
     }
@@ -207,7 +204,7 @@ public class PackageMojo extends UpdateModules {
       throw new MojoExecutionException("Error in calling javapackager!");
     }
 
-    Path instZip = zipDir(modulesPath.resolve(INSTALLER_DIR_NAME), targetJar, INSTALL_PART_NAME);
-    projectHelper.attachArtifact(project, "zip", INSTALL_PART_NAME, instZip.toFile());
+    Path instPath = archiveDir(modulesPath.resolve(INSTALLER_DIR_NAME), targetJar, INSTALL_PART_NAME);
+    projectHelper.attachArtifact(project, getArchive().getExtension(), INSTALL_PART_NAME, instPath.toFile());
   }
 }
@@ -0,0 +1,16 @@
+package com.mt_ag.jar.module;
+
+/**
+ * Enum of the preset of the jlink startup options.
+ */
+public enum PresetEnum {
+  /**
+   * No option is set by the preset.
+   */
+  None,
+  /**
+   * The options for a fast start of a command line tool: generated jli classes, hot classes ordered first and not
+   * compressed, stripped java debug attributes, deduplicated legal notices and the vm options for a short run.
+   */
+  FastStart
+}
@@ -0,0 +1,195 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Runs processes. Each process gets its own reader of the output, so processes never wait on each other. The
+ * readers are virtual threads if the runtime has them, otherwise daemon threads of a pool, that starts a new thread
+ * if no idle one is left. A process is destroyed with its descendants if the call times out or the calling thread is
+ * interrupted. The output is read only for a short time after the end of the process, so a descendant keeping the
+ * output open does not block the call.
+ */
+public final class ProcessRunner {
+
+  /**
+   * The seconds an idle reader thread of the pool is kept.
+   */
+  private static final long KEEP_ALIVE = 30;
+
+  /**
+   * The seconds the output is read after the end of the process.
+   */
+  private static final long OUTPUT_TIMEOUT = 5;
+
+  /**
+   * The counter of the reader threads, used for the thread names.
+   */
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  /**
+   * The executor of the readers.
+   */
+  private static final ExecutorService READERS = createReaders();
+
+  /**
+   * Private constructor of static class.
+   */
+  private ProcessRunner() {
+  }
+
+  /**
+   * Creates the executor of the readers. A virtual thread per reader on a runtime with virtual threads, a pool of
+   * daemon threads without limit otherwise. The pool has no queue, so a reader never waits for another one.
+   *
+   * @return the executor.
+   */
+  private static ExecutorService createReaders() {
+    try {
+      Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) virtual.invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      return new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE, TimeUnit.SECONDS, new SynchronousQueue<>(),
+          runnable -> {
+            Thread thread = new Thread(runnable, "jar-module-reader-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+  }
+
+  /**
+   * Runs a command with parameters in the work dir and waits for its end.
+   *
+   * @param log     the logger.
+   * @param dir     the work dir.
+   * @param timeout the timeout in seconds, 0 or less waits without timeout.
+   * @param param   the command with its parameters.
+   * @return the call result.
+   * @throws MojoExecutionException is thrown if an error occurs, the call times out or is interrupted.
+   */
+  public static CallResult run(Log log, Path dir, long timeout, String... param) throws MojoExecutionException {
+    return run(log, dir, timeout, OutputEnum.Info, param);
+  }
+
+  /**
+   * Runs a command with parameters in the work dir and waits for its end. The output is logged line by line while
+   * the process runs, only the last lines are kept in the result.
+   *
+   * @param log     the logger.
+   * @param dir     the work dir.
+   * @param timeout the timeout in seconds, 0 or less waits without timeout.
+   * @param output  the log level of the output, null is Info.
+   * @param param   the command with its parameters.
+   * @return the call result.
+   * @throws MojoExecutionException is thrown if an error occurs, the call times out or is interrupted.
+   */
+  public static CallResult run(Log log, Path dir, long timeout, OutputEnum output, String... param)
+      throws MojoExecutionException {
+    return run(log, dir, timeout, output, null, param);
+  }
+
+  /**
+   * Runs a command with parameters in the work dir like run with output. The process is asked to end, if a line of
+   * its output matches stop. It gets the signal to terminate, so a java process ends by its shutdown.
+   *
+   * @param log     the logger.
+   * @param dir     the work dir.
+   * @param timeout the timeout in seconds, 0 or less waits without timeout.
+   * @param output  the log level of the output, null is Info.
+   * @param stop    the test of the line ending the process, null for none.
+   * @param param   the command with its parameters.
+   * @return the call result.
+   * @throws MojoExecutionException is thrown if an error occurs, the call times out or is interrupted.
+   */
+  public static CallResult run(Log log, Path dir, long timeout, OutputEnum output, Predicate<String> stop,
+                               String... param) throws MojoExecutionException {
+    log.info("command: " + String.join(" ", param));
+    Process proc;
+    try {
+      proc = new ProcessBuilder().directory(dir.toFile()).command(Arrays.asList(param)).redirectErrorStream(true)
+          .start();
+    } catch (IOException e) {
+      throw new MojoExecutionException("Error in calling: " + param[0], e);
+    }
+    log.info("out:");
+    Process started = proc;
+    ToolOutput out = new ToolOutput(log, output, ToolOutput.MAX_LINES, (stop == null) ? null : line -> {
+      if (started.isAlive() && stop.test(line)) {
+        log.info("Stopped by the line: " + line);
+        started.destroy();
+      }
+    });
+    Future<?> reading = READERS.submit(new AsyncStreamReader(proc.getInputStream(), out));
+    try {
+      boolean exited = true;
+      if (timeout > 0) {
+        exited = proc.waitFor(timeout, TimeUnit.SECONDS);
+      } else {
+        proc.waitFor();
+      }
+      if (!exited) {
+        destroy(proc);
+        stopReading(proc, reading);
+        throw new MojoExecutionException("Error in calling: " + param[0] + " timed out after " + timeout + " s");
+      }
+      reading.get(OUTPUT_TIMEOUT, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      log.warn("The output of " + param[0] + " is still open after its end, stop reading it.");
+      stopReading(proc, reading);
+    } catch (InterruptedException e) {
+      destroy(proc);
+      stopReading(proc, reading);
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Error in calling: " + param[0] + " interrupted", e);
+    } catch (ExecutionException e) {
+      throw new MojoExecutionException("Error in reading the output of: " + param[0], e.getCause());
+    }
+
+    int exitVal = proc.exitValue();
+    CallResult result = out.toResult(exitVal);
+    log.info("exitVal: " + exitVal);
+    return result;
+  }
+
+  /**
+   * Stops the reader of the output. The stream is closed and the reader is cancelled, a reader blocked by a
+   * descendant still holding the output ends with it.
+   *
+   * @param proc    the process.
+   * @param reading the reader.
+   */
+  private static void stopReading(Process proc, Future<?> reading) {
+    reading.cancel(true);
+    try {
+      proc.getInputStream().close();
+    } catch (IOException e) {
+      // the reader ends with an error, the output is not needed anymore.
+    }
+  }
+
+  /**
+   * Destroys the process and its descendants.
+   *
+   * @param proc the process.
+   */
+  private static void destroy(Process proc) {
+    proc.descendants().forEach(ProcessHandle::destroyForcibly);
+    proc.destroyForcibly();
+  }
+}
@@ -0,0 +1,19 @@
+package com.mt_ag.jar.module;
+
+/**
+ * Enum of the staging of the jars in the modules dir. A strategy falls back to the next one, if it is not supported.
+ */
+public enum StagingEnum {
+  /**
+   * A copy on write clone of the file. Falls back to Link.
+   */
+  Reflink,
+  /**
+   * A hard link to the file. Falls back to Copy.
+   */
+  Link,
+  /**
+   * A copy of the file.
+   */
+  Copy
+}
@@ -0,0 +1,23 @@
+package com.mt_ag.jar.module;
+
+/**
+ * Enum of the deflate strategy of the repacked jar.
+ */
+public enum StrategyEnum {
+  /**
+   * The default strategy of deflate.
+   */
+  Default,
+  /**
+   * The strategy for data with small values of a random distribution.
+   */
+  Filtered,
+  /**
+   * Huffman coding only, no string matching.
+   */
+  HuffmanOnly,
+  /**
+   * Tries all strategies with the best level and keeps the smallest result of each entry.
+   */
+  Best
+}
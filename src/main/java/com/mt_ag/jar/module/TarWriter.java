@@ -0,0 +1,454 @@
+package com.mt_ag.jar.module;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes a tar in the ustar format. The entries are written reproducible: the owner is root, the time is fixed and
+ * the entries of a tree are sorted. So the same files result in the same bytes. Symbolic links are kept as links.
+ * Names and links longer than the ustar fields are written in a pax extended header.
+ */
+public class TarWriter implements Closeable {
+
+  /**
+   * The size of a block.
+   */
+  static final int BLOCK_SIZE = 512;
+
+  /**
+   * The mode of dirs and executable files.
+   */
+  static final int MODE_EXECUTABLE = 0755;
+
+  /**
+   * The mode of files.
+   */
+  static final int MODE_FILE = 0644;
+
+  /**
+   * The mode of symbolic links.
+   */
+  static final int MODE_LINK = 0777;
+
+  /**
+   * The fixed modification time in seconds of the epoch.
+   */
+  private static final long MTIME = 1;
+
+  /**
+   * The max length of the name field.
+   */
+  private static final int NAME_LENGTH = 100;
+
+  /**
+   * The max length of the prefix field.
+   */
+  private static final int PREFIX_LENGTH = 155;
+
+  /**
+   * The max size of an entry, 11 octal digits.
+   */
+  private static final long MAX_SIZE = 077777777777L;
+
+  /**
+   * The offset of the mode field.
+   */
+  private static final int MODE_OFFSET = 100;
+
+  /**
+   * The offset of the uid field.
+   */
+  private static final int UID_OFFSET = 108;
+
+  /**
+   * The offset of the gid field.
+   */
+  private static final int GID_OFFSET = 116;
+
+  /**
+   * The offset of the size field.
+   */
+  private static final int SIZE_OFFSET = 124;
+
+  /**
+   * The offset of the mtime field.
+   */
+  private static final int MTIME_OFFSET = 136;
+
+  /**
+   * The offset of the checksum field.
+   */
+  private static final int CHECKSUM_OFFSET = 148;
+
+  /**
+   * The offset of the type field.
+   */
+  private static final int TYPE_OFFSET = 156;
+
+  /**
+   * The offset of the link name field.
+   */
+  private static final int LINK_OFFSET = 157;
+
+  /**
+   * The offset of the magic field.
+   */
+  private static final int MAGIC_OFFSET = 257;
+
+  /**
+   * The offset of the prefix field.
+   */
+  private static final int PREFIX_OFFSET = 345;
+
+  /**
+   * The length of a small octal field.
+   */
+  private static final int SMALL_FIELD = 8;
+
+  /**
+   * The length of a big octal field.
+   */
+  private static final int BIG_FIELD = 12;
+
+  /**
+   * The type of a file.
+   */
+  private static final byte TYPE_FILE = '0';
+
+  /**
+   * The type of a symbolic link.
+   */
+  private static final byte TYPE_LINK = '2';
+
+  /**
+   * The type of a dir.
+   */
+  private static final byte TYPE_DIR = '5';
+
+  /**
+   * The type of a pax extended header.
+   */
+  private static final byte TYPE_PAX = 'x';
+
+  /**
+   * The radix of the length of a pax record.
+   */
+  private static final int DECIMAL = 10;
+
+  /**
+   * The mask of a byte.
+   */
+  private static final int BYTE_MASK = 0xFF;
+
+  /**
+   * The magic and version of ustar.
+   */
+  private static final byte[] MAGIC = "ustar\u000000".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * The output.
+   */
+  private final OutputStream out;
+
+  /**
+   * The copy buffer.
+   */
+  private final byte[] buffer = new byte[Tools.BUFFER_SIZE];
+
+  /**
+   * The constructor with the output.
+   *
+   * @param pOut the output, closed on close.
+   */
+  public TarWriter(OutputStream pOut) {
+    out = pOut;
+  }
+
+  /**
+   * Adds a dir and all its files and sub dirs sorted by name. The mode is normalized to the executable bit of the
+   * file, so the archive does not depend on the umask.
+   *
+   * @param prefix the name of the dir in the tar or an empty string for the root.
+   * @param dir    the dir.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public void addTree(String prefix, Path dir) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> pathStream = Files.walk(dir)) {
+      paths = pathStream.sorted().collect(Collectors.toList());
+    }
+    for (Path path : paths) {
+      List<String> names = new ArrayList<>();
+      if (!prefix.isEmpty()) {
+        names.add(prefix);
+      }
+      dir.relativize(path).forEach(name -> names.add(name.toString()));
+      names.removeIf(String::isEmpty);
+      if (!names.isEmpty()) {
+        addPath(String.join("/", names), path);
+      }
+    }
+  }
+
+  /**
+   * Adds a file, dir or symbolic link. A dir is added without its content.
+   *
+   * @param name the name in the tar.
+   * @param path the file.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public void addPath(String name, Path path) throws IOException {
+    if (Files.isSymbolicLink(path)) {
+      addLink(name, Files.readSymbolicLink(path).toString().replace('\\', '/'));
+    } else if (Files.isDirectory(path)) {
+      addDir(name, mode(path));
+    } else {
+      try (InputStream in = Files.newInputStream(path)) {
+        addFile(name, mode(path), Files.size(path), in);
+      }
+    }
+  }
+
+  /**
+   * Gets the normalized mode of the file. Dirs and executable files get 0755, all other files 0644. A file is
+   * executable if one of the execute bits of the posix permissions is set, or without posix permissions if it is
+   * executable by this process.
+   *
+   * @param path the file.
+   * @return the mode.
+   * @throws IOException is thrown if an error occurs.
+   */
+  static int mode(Path path) throws IOException {
+    PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class,
+        LinkOption.NOFOLLOW_LINKS);
+    if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+      return MODE_EXECUTABLE;
+    }
+    if (view == null) {
+      return Files.isExecutable(path) ? MODE_EXECUTABLE : MODE_FILE;
+    }
+    Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+    return (permissions.contains(PosixFilePermission.OWNER_EXECUTE)
+        || permissions.contains(PosixFilePermission.GROUP_EXECUTE)
+        || permissions.contains(PosixFilePermission.OTHERS_EXECUTE)) ? MODE_EXECUTABLE : MODE_FILE;
+  }
+
+  /**
+   * Adds a dir entry.
+   *
+   * @param name the name in the tar.
+   * @param mode the mode.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public void addDir(String name, int mode) throws IOException {
+    writeHeader(name.endsWith("/") ? name : name + "/", mode, 0, TYPE_DIR, "");
+  }
+
+  /**
+   * Adds a symbolic link.
+   *
+   * @param name   the name in the tar.
+   * @param target the target of the link.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public void addLink(String name, String target) throws IOException {
+    writeHeader(name, MODE_LINK, 0, TYPE_LINK, target);
+  }
+
+  /**
+   * Adds a file.
+   *
+   * @param name the name in the tar.
+   * @param mode the mode.
+   * @param size the size of the data.
+   * @param in   the data.
+   * @throws IOException is thrown if an error occurs or the size of the data is not as expected.
+   */
+  public void addFile(String name, int mode, long size, InputStream in) throws IOException {
+    writeHeader(name, mode, size, TYPE_FILE, "");
+    long written = 0;
+    int len = in.read(buffer);
+    while (len >= 0) {
+      written += len;
+      if (written > size) {
+        throw new IOException("Size of file changed while writing: " + name);
+      }
+      out.write(buffer, 0, len);
+      len = in.read(buffer);
+    }
+    if (written != size) {
+      throw new IOException("Size of file changed while writing: " + name);
+    }
+    pad(size);
+  }
+
+  /**
+   * Writes the header of an entry.
+   *
+   * @param name     the name.
+   * @param mode     the mode.
+   * @param size     the size.
+   * @param type     the type.
+   * @param linkName the target of a link.
+   * @throws IOException is thrown if an error occurs or the file is too big.
+   */
+  private void writeHeader(String name, int mode, long size, byte type, String linkName) throws IOException {
+    if (size > MAX_SIZE) {
+      throw new IOException("File is too big for tar: " + name);
+    }
+    byte[] header = new byte[BLOCK_SIZE];
+    StringBuilder pax = new StringBuilder();
+    if (!putName(header, name)) {
+      pax.append(paxRecord("path", name));
+      String shortName = "long/" + Integer.toHexString(name.hashCode()) + (name.endsWith("/") ? "/" : "");
+      putName(header, shortName);
+    }
+    byte[] linkBytes = linkName.getBytes(StandardCharsets.UTF_8);
+    if (linkBytes.length > NAME_LENGTH) {
+      pax.append(paxRecord("linkpath", linkName));
+      linkBytes = new byte[0];
+    }
+    if (pax.length() > 0) {
+      byte[] paxData = pax.toString().getBytes(StandardCharsets.UTF_8);
+      byte[] paxHeader = new byte[BLOCK_SIZE];
+      putName(paxHeader, "PaxHeaders/" + Integer.toHexString(name.hashCode()));
+      writeFields(paxHeader, MODE_FILE, paxData.length, TYPE_PAX);
+      out.write(paxHeader);
+      out.write(paxData);
+      pad(paxData.length);
+    }
+    System.arraycopy(linkBytes, 0, header, LINK_OFFSET, linkBytes.length);
+    writeFields(header, mode, size, type);
+    out.write(header);
+  }
+
+  /**
+   * Puts the name in the header. A name longer than the name field is split in the prefix and the name.
+   *
+   * @param header the header.
+   * @param name   the name.
+   * @return false if the name does not fit.
+   */
+  private static boolean putName(byte[] header, String name) {
+    byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    if (nameBytes.length <= NAME_LENGTH) {
+      System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+      return true;
+    }
+    int split = name.lastIndexOf('/', name.length() - 2);
+    if (split <= 0) {
+      return false;
+    }
+    byte[] prefix = name.substring(0, split).getBytes(StandardCharsets.UTF_8);
+    byte[] rest = name.substring(split + 1).getBytes(StandardCharsets.UTF_8);
+    if (prefix.length > PREFIX_LENGTH || rest.length > NAME_LENGTH) {
+      return false;
+    }
+    System.arraycopy(rest, 0, header, 0, rest.length);
+    System.arraycopy(prefix, 0, header, PREFIX_OFFSET, prefix.length);
+    return true;
+  }
+
+  /**
+   * Creates a pax record. The record starts with its length in bytes including the length itself.
+   *
+   * @param key   the key.
+   * @param value the value.
+   * @return the record.
+   */
+  private static String paxRecord(String key, String value) {
+    String record = " " + key + "=" + value + "\n";
+    int length = record.getBytes(StandardCharsets.UTF_8).length;
+    int total = length + String.valueOf(length).length();
+    if (String.valueOf(total).length() > String.valueOf(length).length()) {
+      total++;
+    }
+    return Integer.toString(total, DECIMAL) + record;
+  }
+
+  /**
+   * Writes the fields and the checksum of the header.
+   *
+   * @param header the header with the names.
+   * @param mode   the mode.
+   * @param size   the size.
+   * @param type   the type.
+   */
+  private static void writeFields(byte[] header, int mode, long size, byte type) {
+    octal(header, MODE_OFFSET, SMALL_FIELD, mode);
+    octal(header, UID_OFFSET, SMALL_FIELD, 0);
+    octal(header, GID_OFFSET, SMALL_FIELD, 0);
+    octal(header, SIZE_OFFSET, BIG_FIELD, size);
+    octal(header, MTIME_OFFSET, BIG_FIELD, MTIME);
+    header[TYPE_OFFSET] = type;
+    System.arraycopy(MAGIC, 0, header, MAGIC_OFFSET, MAGIC.length);
+    for (int i = 0; i < SMALL_FIELD; i++) {
+      header[CHECKSUM_OFFSET + i] = ' ';
+    }
+    long checksum = 0;
+    for (byte b : header) {
+      checksum += b & BYTE_MASK;
+    }
+    octal(header, CHECKSUM_OFFSET, SMALL_FIELD - 1, checksum);
+  }
+
+  /**
+   * Writes a number as octal digits with a terminating zero.
+   *
+   * @param header the header.
+   * @param offset the offset of the field.
+   * @param length the length of the field with the terminating zero.
+   * @param value  the number.
+   */
+  private static void octal(byte[] header, int offset, int length, long value) {
+    String digits = Long.toOctalString(value);
+    int start = offset + length - 1 - digits.length();
+    for (int i = offset; i < start; i++) {
+      header[i] = '0';
+    }
+    byte[] digitBytes = digits.getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(digitBytes, 0, header, start, digitBytes.length);
+    header[offset + length - 1] = 0;
+  }
+
+  /**
+   * Pads the data to a full block.
+   *
+   * @param size the size of the data.
+   * @throws IOException is thrown if an error occurs.
+   */
+  private void pad(long size) throws IOException {
+    int rest = (int) (size % BLOCK_SIZE);
+    if (rest > 0) {
+      out.write(new byte[BLOCK_SIZE - rest]);
+    }
+  }
+
+  /**
+   * Writes the end of the tar and closes the output.
+   *
+   * @throws IOException is thrown if an error occurs.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      out.write(new byte[2 * BLOCK_SIZE]);
+      out.flush();
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * The output of a tool. The written text is split in lines, every line is logged when it is complete. Only the last
+ * lines are kept with the count of all lines, so the memory is bounded however much a tool writes. A line longer than
+ * the maximum length is ended truncated and the rest of it is skipped. Empty lines are skipped.
+ */
+public class ToolOutput extends Writer {
+
+  /**
+   * The default count of the kept lines.
+   */
+  public static final int MAX_LINES = 200;
+
+  /**
+   * The maximum length of a line, longer lines are truncated.
+   */
+  public static final int MAX_LINE_LENGTH = 8192;
+
+  /**
+   * The marker appended to a truncated line.
+   */
+  static final String TRUNCATED = " [truncated]";
+
+  /**
+   * The logger.
+   */
+  private final Log log;
+
+  /**
+   * The log level of the lines.
+   */
+  private final OutputEnum level;
+
+  /**
+   * The count of the kept lines.
+   */
+  private final int maxLines;
+
+  /**
+   * The listener of the lines, null for none.
+   */
+  private final Consumer<String> listener;
+
+  /**
+   * The last lines.
+   */
+  private final Deque<String> lines = new ArrayDeque<>();
+
+  /**
+   * The incomplete line.
+   */
+  private final StringBuilder line = new StringBuilder();
+
+  /**
+   * True while the rest of a truncated line is skipped.
+   */
+  private boolean truncated;
+
+  /**
+   * The count of all lines.
+   */
+  private long lineCount;
+
+  /**
+   * The constructor keeping the default count of lines.
+   *
+   * @param pLog   the logger.
+   * @param pLevel the log level of the lines, null is Info.
+   */
+  public ToolOutput(Log pLog, OutputEnum pLevel) {
+    this(pLog, pLevel, MAX_LINES);
+  }
+
+  /**
+   * The constructor with all fields.
+   *
+   * @param pLog      the logger.
+   * @param pLevel    the log level of the lines, null is Info.
+   * @param pMaxLines the count of the kept lines.
+   */
+  public ToolOutput(Log pLog, OutputEnum pLevel, int pMaxLines) {
+    this(pLog, pLevel, pMaxLines, null);
+  }
+
+  /**
+   * The constructor with a listener of the lines.
+   *
+   * @param pLog      the logger.
+   * @param pLevel    the log level of the lines, null is Info.
+   * @param pMaxLines the count of the kept lines.
+   * @param pListener the listener called with every line, null for none.
+   */
+  public ToolOutput(Log pLog, OutputEnum pLevel, int pMaxLines, Consumer<String> pListener) {
+    log = pLog;
+    level = (pLevel == null) ? OutputEnum.Info : pLevel;
+    maxLines = pMaxLines;
+    listener = pListener;
+  }
+
+  /**
+   * Writes the chars and logs the completed lines.
+   *
+   * @param cbuf the chars.
+   * @param off  the offset.
+   * @param len  the count of chars.
+   */
+  @Override
+  public synchronized void write(char[] cbuf, int off, int len) {
+    for (int i = off; i < off + len; i++) {
+      char c = cbuf[i];
+      if (c == '\n' || c == '\r' || c == '\f' || c == '\u000B') {
+        endLine();
+        truncated = false;
+      } else if (!truncated) {
+        line.append(c);
+        if (line.length() == MAX_LINE_LENGTH) {
+          line.append(TRUNCATED);
+          endLine();
+          truncated = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Ends the current line. An empty line is skipped.
+   */
+  private void endLine() {
+    if (line.length() == 0) {
+      return;
+    }
+    String text = line.toString();
+    line.setLength(0);
+    lineCount++;
+    if (level == OutputEnum.Info) {
+      log.info(text);
+    } else if (level == OutputEnum.Debug) {
+      log.debug(text);
+    }
+    if (maxLines > 0) {
+      if (lines.size() == maxLines) {
+        lines.removeFirst();
+      }
+      lines.addLast(text);
+    }
+    if (listener != null) {
+      listener.accept(text);
+    }
+  }
+
+  /**
+   * Nothing to flush, a line is logged when it is complete.
+   */
+  @Override
+  public void flush() {
+    // lines are logged when they are complete.
+  }
+
+  /**
+   * Ends the last line.
+   */
+  @Override
+  public synchronized void close() {
+    endLine();
+  }
+
+  /**
+   * Gets the result of the call with the kept lines.
+   *
+   * @param exitVal the exit value of the call.
+   * @return the result.
+   */
+  public synchronized CallResult toResult(int exitVal) {
+    endLine();
+    return new CallResult(exitVal, new ArrayList<>(lines), lineCount);
+  }
+}
@@ -3,16 +3,23 @@ package com.mt_ag.jar.module;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.module.InvalidModuleDescriptorException;
 import java.lang.module.ModuleDescriptor;
-import java.lang.module.ModuleFinder;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.jar.JarFile;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.spi.ToolProvider;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The Tools interface for static methods. Do not use as interface.
@@ -20,37 +27,24 @@ import java.util.jar.JarFile;
 public interface Tools {
 
   /**
-   * Class run.
+   * The size of the read buffer.
    */
-  class Run {
+  int BUFFER_SIZE = 64 * 1024;
 
-    /**
-     * Private constructor of static class.
-     */
-    private Run() {
-
-    }
+  /**
+   * The shift of the high nibble.
+   */
+  int HEX_SHIFT = 4;
 
-    /**
-     * The used executor.
-     */
-    private static  Executor executor = Executors.newSingleThreadExecutor();
-    /**
-     * The run call.
-     * @param runnable the method to exec.
-     */
-    public static void run(Runnable runnable) {
-      executor.execute(runnable);
-    }
-  }
+  /**
+   * The mask of a nibble.
+   */
+  int HEX_MASK = 0xF;
 
   /**
-   * The run call.
-   * @param runnable the method to exec.
+   * The radix of hex.
    */
-  static void run(Runnable runnable) {
-    Run.run(runnable);
-  }
+  int HEX_RADIX = 16;
 
   /**
    * Calls a command with parameters in the work dir.
@@ -62,49 +56,187 @@ public interface Tools {
    * @throws MojoExecutionException is thrown if an error occurs.
    */
   static CallResult callInDir(Log log, Path dir, String... param) throws MojoExecutionException {
-    try {
-      List<String> args = new ArrayList<>(Arrays.asList(param));
-      log.info("command: " + String.join(" ", args));
-      Process proc = new ProcessBuilder().directory(dir.toFile()).command(args).redirectErrorStream(true).start();
-      AsyncStreamReader asRead = new AsyncStreamReader(proc.getInputStream());
-      run(asRead);
-      int exitVal = proc.waitFor();
-
-      log.info("exitVal: " + exitVal);
-      List<String> retVal = asRead.getOutput();
-      log.info("out:");
-      retVal.forEach(log::info);
-      return new CallResult(exitVal, retVal);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new MojoExecutionException("Error in calling: " + param[0] + " interrupted", e);
-    } catch (IOException e) {
+    return ProcessRunner.run(log, dir, 0, param);
+  }
+
+  /**
+   * Calls a jdk tool with parameters. In the mode InProcess the tool runs as ToolProvider in this process, if the
+   * ToolProvider is found. Otherwise the tool is called in the work dir as new process. The work dir is not used by a
+   * ToolProvider, so all paths in the parameters must be absolute.
+   *
+   * @param log   the logger.
+   * @param mode  the execution mode, null is InProcess.
+   * @param dir   the work dir of a new process.
+   * @param param the command with its parameters.
+   * @return the call result.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  static CallResult callTool(Log log, ExecutionEnum mode, Path dir, String... param) throws MojoExecutionException {
+    return callTool(log, mode, 0, dir, param);
+  }
+
+  /**
+   * Calls a jdk tool with parameters like callTool without timeout. The timeout is used for a new process only, a
+   * ToolProvider can not be stopped.
+   *
+   * @param log     the logger.
+   * @param mode    the execution mode, null is InProcess.
+   * @param timeout the timeout of a new process in seconds, 0 or less waits without timeout.
+   * @param dir     the work dir of a new process.
+   * @param param   the command with its parameters.
+   * @return the call result.
+   * @throws MojoExecutionException is thrown if an error occurs or the process times out.
+   */
+  static CallResult callTool(Log log, ExecutionEnum mode, long timeout, Path dir, String... param)
+      throws MojoExecutionException {
+    return callTool(log, mode, timeout, OutputEnum.Info, dir, param);
+  }
+
+  /**
+   * Calls a jdk tool with parameters like callTool with timeout. The output is logged line by line with the given
+   * level while the tool runs.
+   *
+   * @param log     the logger.
+   * @param mode    the execution mode, null is InProcess.
+   * @param timeout the timeout of a new process in seconds, 0 or less waits without timeout.
+   * @param output  the log level of the output, null is Info.
+   * @param dir     the work dir of a new process.
+   * @param param   the command with its parameters.
+   * @return the call result.
+   * @throws MojoExecutionException is thrown if an error occurs or the process times out.
+   */
+  static CallResult callTool(Log log, ExecutionEnum mode, long timeout, OutputEnum output, Path dir,
+                             String... param) throws MojoExecutionException {
+    if (mode != ExecutionEnum.Fork) {
+      Optional<ToolProvider> tool = ToolProvider.findFirst(param[0]);
+      if (tool.isPresent()) {
+        return callInProcess(log, tool.get(), output, param);
+      }
+      log.debug("No ToolProvider found for: " + param[0]);
+    }
+    return ProcessRunner.run(log, dir, timeout, output, param);
+  }
+
+  /**
+   * Calls a ToolProvider with parameters in this process.
+   *
+   * @param log    the logger.
+   * @param tool   the tool.
+   * @param output the log level of the output, null is Info.
+   * @param param  the command with its parameters.
+   * @return the call result.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  static CallResult callInProcess(Log log, ToolProvider tool, OutputEnum output, String... param)
+      throws MojoExecutionException {
+    log.info("command: " + String.join(" ", param));
+    log.info("out:");
+    ToolOutput writer = new ToolOutput(log, output);
+    int exitVal;
+    try (PrintWriter out = new PrintWriter(writer, true)) {
+      exitVal = tool.run(out, out, Arrays.copyOfRange(param, 1, param.length));
+    } catch (RuntimeException e) {
       throw new MojoExecutionException("Error in calling: " + param[0], e);
     }
+    CallResult result = writer.toResult(exitVal);
+    log.info("exitVal: " + exitVal);
+    return result;
   }
 
   /**
    * Sets the module main class if it is not an automatic module and the main class is not set but the main class is
-   * set in the manifest.
+   * set in the manifest. The changed module-info.class is appended to the jar.
    *
    * @param log       the logger.
    * @param targetJar the module to test and update.
    * @throws MojoExecutionException is thrown if an error occurs.
    */
   static void setModuleMain(Log log, Path targetJar) throws MojoExecutionException {
-    ModuleDescriptor md = ModuleFinder.of(targetJar).findAll().stream().findFirst().get().descriptor();
+    JarIndex index = JarIndex.of(targetJar);
+    ModuleDescriptor md = index.getDescriptor();
     if (!md.mainClass().isPresent() && !md.isAutomatic()) {
-      String mainClass;
-      try (JarFile targetJarJar = new JarFile(targetJar.toFile())) {
-        mainClass = targetJarJar.getManifest().getMainAttributes().getValue("Main-Class");
-        log.info("MainClass: " + mainClass);
-      } catch (IOException e) {
-        throw new MojoExecutionException("Error in reading jar!" + targetJar, e);
-      }
+      String mainClass = index.getMainClass();
+      log.info("MainClass: " + mainClass);
 
       if (mainClass != null) {
-        callInDir(log, targetJar.getParent(), "jar", "-u", "-f", targetJar.getFileName().toString(), "-e", mainClass);
+        try {
+          ZipIndex.Entry entry;
+          byte[] moduleInfo;
+          try (ZipIndex zip = ZipIndex.open(targetJar)) {
+            entry = JarIndex.versionedEntries(zip, index.isMultiRelease()).get(JarIndex.MODULE_INFO);
+            try (InputStream in = zip.open(entry)) {
+              moduleInfo = ModuleInfoWriter.setMainClass(in.readAllBytes(), mainClass);
+            }
+          }
+          ModuleDescriptor.read(ByteBuffer.wrap(moduleInfo), index::getJarPackages);
+          try (JarRewriter jarOut = JarRewriter.append(targetJar, entry.getName())) {
+            jarOut.writeDeflated(entry.getName(), new ByteArrayInputStream(moduleInfo), entry.getDosTime());
+          }
+          log.info("Appended " + entry.getName() + " to: " + targetJar.getFileName());
+        } catch (IOException | IllegalArgumentException | InvalidModuleDescriptorException e) {
+          throw new MojoExecutionException("Unable to set main class of jar: " + targetJar, e);
+        } finally {
+          JarIndex.invalidate(targetJar);
+        }
       }
     }
   }
+
+  /**
+   * Calculates the SHA-256 hash of a file.
+   *
+   * @param file the file to hash.
+   * @return the hash as hex string.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  static String sha256(Path file) throws MojoExecutionException {
+    try (InputStream in = Files.newInputStream(file)) {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int len = in.read(buffer);
+      while (len >= 0) {
+        digest.update(buffer, 0, len);
+        len = in.read(buffer);
+      }
+      return toHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new MojoExecutionException("Missing hash algorithm!", e);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Error in reading file: " + file, e);
+    }
+  }
+
+  /**
+   * Converts the bytes to a hex string.
+   *
+   * @param data the bytes.
+   * @return the hex string.
+   */
+  static String toHex(byte[] data) {
+    StringBuilder hex = new StringBuilder(data.length * 2);
+    for (byte b : data) {
+      hex.append(Character.forDigit((b >> HEX_SHIFT) & HEX_MASK, HEX_RADIX));
+      hex.append(Character.forDigit(b & HEX_MASK, HEX_RADIX));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * Deletes a dir with all its files and sub dirs. A missing dir is ignored.
+   *
+   * @param dir the dir to delete.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  static void deleteDir(Path dir) throws MojoExecutionException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    try (Stream<Path> pathStream = Files.walk(dir)) {
+      for (Path path : pathStream.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to delete dir: " + dir, e);
+    }
+  }
 }
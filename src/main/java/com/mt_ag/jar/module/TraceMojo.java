@@ -0,0 +1,147 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.IOException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implements the goal trace. Trace runs the main class of the module as training run and writes the classes in the
+ * order of their first load as class list. The class list is used by the goal jar to order the entries of the jar.
+ */
+@Mojo(name = "trace", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyCollection = ResolutionScope.RUNTIME,
+    requiresDependencyResolution = ResolutionScope.RUNTIME)
+public class TraceMojo extends UpdateModules {
+
+  /**
+   * The extension of the class list.
+   */
+  private static final String CLASS_LIST_EXTENSION = ".classlist";
+
+  /**
+   * The arguments of the training run.
+   */
+  @Parameter(property = "jarmodule.traceArgs")
+  private List<String> traceArgs;
+
+  /**
+   * The timeout of the training run in seconds. 0 waits without timeout.
+   */
+  @Parameter(property = "jarmodule.traceTimeout", defaultValue = "300")
+  private long traceTimeout;
+
+  /**
+   * The maven project. Used for dependencies and the own artifact.
+   */
+  @Parameter(property = "project", required = true, readonly = true)
+  private MavenProject project;
+
+  /**
+   * The used logger, set by execute.
+   */
+  private Log myLog;
+
+  /**
+   * The default constructor.
+   */
+  public TraceMojo() {
+    super();
+  }
+
+  /**
+   * The constructor for testing.
+   *
+   * @param pLog          the MockLog.
+   * @param pProject      the param project.
+   * @param pTraceTimeout the param traceTimeout.
+   * @param args          the arguments of the training run.
+   */
+  protected TraceMojo(Log pLog, MavenProject pProject, long pTraceTimeout, String... args) {
+    super(false);
+    myLog = pLog;
+    setLog(pLog);
+    project = pProject;
+    traceTimeout = pTraceTimeout;
+    traceArgs = List.of(args);
+  }
+
+  /**
+   * The implementation of the Mojo.
+   *
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  @Override
+  public void execute() throws MojoExecutionException {
+    myLog = (myLog != null) ? myLog : getLog();
+    Path modulesPath = createModules(project);
+    Path targetJar = project.getArtifact().getFile().toPath();
+    Path classList = trace(modulesPath, targetJar);
+    myLog.info("Class list: " + classList + " classes: " + ClassOrder.read(classList).size());
+  }
+
+  /**
+   * Gets the class list of the artifact, written next to it.
+   *
+   * @param targetJar the artifact of the project.
+   * @return the class list.
+   */
+  static Path classList(Path targetJar) {
+    String targetFileName = targetJar.getFileName().toString();
+    return targetJar.resolveSibling(targetFileName.substring(0,
+        targetFileName.length() - UpdateModules.EXTENSION_LENGTH) + CLASS_LIST_EXTENSION);
+  }
+
+  /**
+   * Runs the main class of the module with the modules dir as module path and writes the loaded classes. The class
+   * list of a previous run is deleted before, so a training run failing early is not hidden by it. A training run
+   * ending with an exit value not 0 is accepted, if the class list is written.
+   *
+   * @param modulesPath the modules dir.
+   * @param targetJar   the artifact of the project.
+   * @return the class list.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  protected Path trace(Path modulesPath, Path targetJar) throws MojoExecutionException {
+    Path classList = classList(targetJar.toAbsolutePath());
+    JarIndex index = JarIndex.of(modulesPath.resolve(targetJar.getFileName().toString()));
+    ModuleDescriptor md = index.getDescriptor();
+    String mainClass = md.mainClass().orElse(index.getMainClass());
+    if (mainClass == null) {
+      throw new MojoExecutionException("No main class found in module: " + md.name());
+    }
+    List<String> params = new ArrayList<>();
+    params.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    params.add("-XX:DumpLoadedClassList=" + classList);
+    params.add("--module-path");
+    params.add(modulesPath.toString());
+    params.add("--module");
+    params.add(md.name() + "/" + mainClass);
+    if (traceArgs != null) {
+      params.addAll(traceArgs);
+    }
+    try {
+      Files.deleteIfExists(classList);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to delete class list: " + classList, e);
+    }
+    CallResult result = ProcessRunner.run(myLog, modulesPath, traceTimeout, params.toArray(new String[0]));
+    if (!Files.exists(classList)) {
+      throw new MojoExecutionException("No class list written by the training run: " + classList);
+    }
+    if (result.getExitVal() != 0) {
+      myLog.warn("Training run ended with exit value: " + result.getExitVal());
+    }
+    return classList;
+  }
+}
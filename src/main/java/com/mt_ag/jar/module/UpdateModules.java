@@ -6,26 +6,26 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.lang.module.ModuleFinder;
+import java.io.InputStream;
+import java.lang.module.ModuleDescriptor;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.DirectoryStream;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.jar.JarEntry;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
 /**
  * Interface to update the jar as modules. Generates the module-info.java for the jar.
@@ -43,21 +43,94 @@ public abstract class UpdateModules extends AbstractMojo {
   private static final String JDEPS = "jdeps";
 
   /**
-   * The const jdeps.
+   * The name of the module-info.java.
+   */
+  private static final String MODULE_INFO_JAVA = "module-info.java";
+
+  /**
+   * The dir of the module-info.java files of the batch call of jdeps.
+   */
+  private static final String JDEPS_BATCH_DIR = "jdeps-batch";
+
+  /**
+   * The name of the module-info.class.
+   */
+  private static final String MODULE_INFO = "module-info.class";
+
+  /**
+   * The version of the generated modules.
    */
-  private static final String LOCAL_DIR = ".";
+  private static final String MODULE_VERSION = "1.0";
 
   /**
    * The length of an extension.
    */
   public static final int EXTENSION_LENGTH = 4;
 
+  /**
+   * The version of the layout of the modules dir. Change it if the generated jars change.
+   */
+  private static final String FINGERPRINT_LAYOUT = "3";
+
   /**
    * Maven parameter to set if it generates an open module or a standard module.
    */
   @Parameter
   private boolean openmodule;
 
+  /**
+   * Maven parameter to use the cache of modularized jars. It is off by default, the cache is written outside of the
+   * project to cacheDir.
+   */
+  @Parameter(property = "jarmodule.useCache", defaultValue = "false")
+  private boolean useCache;
+
+  /**
+   * Maven parameter of the dir of the cache of modularized jars.
+   */
+  @Parameter(property = "jarmodule.cacheDir", defaultValue = "${user.home}/.m2/jar-module-cache")
+  private File cacheDir;
+
+  /**
+   * Maven parameter of the execution of the jdk tools. InProcess runs them as ToolProvider, Fork as new process.
+   */
+  @Parameter(property = "jarmodule.execution", defaultValue = "InProcess")
+  private ExecutionEnum execution;
+
+  /**
+   * Maven parameter of the staging of the jars in the modules dir. Reflink tries a copy on write clone, then a hard
+   * link, then a copy. Link tries a hard link, then a copy. Copy always copies.
+   */
+  @Parameter(property = "jarmodule.staging", defaultValue = "Reflink")
+  private StagingEnum staging;
+
+  /**
+   * Maven parameter of the count of threads to create the modules. 0 uses the count of processors.
+   */
+  @Parameter(property = "jarmodule.threads", defaultValue = "0")
+  private int threads;
+
+  /**
+   * Maven parameter of the timeout of a forked tool in seconds. 0 waits without timeout. A tool running in process
+   * is not stopped.
+   */
+  @Parameter(property = "jarmodule.toolTimeout", defaultValue = "0")
+  private long toolTimeout;
+
+  /**
+   * Maven parameter of the log level of the tool output: Info, Debug or None. The output is logged line by line while
+   * the tool runs, only the last lines are kept in memory.
+   */
+  @Parameter(property = "jarmodule.toolOutput", defaultValue = "Info")
+  private OutputEnum toolOutput;
+
+  /**
+   * Maven parameter of the format of the attached run and install archives: Zip, Tar or TarGz. A tar can be
+   * extracted while it is streamed.
+   */
+  @Parameter(property = "jarmodule.archive", defaultValue = "Zip")
+  private ArchiveEnum archive;
+
   /**
    * The standard constructor.
    */
@@ -75,7 +148,7 @@ public abstract class UpdateModules extends AbstractMojo {
   }
 
   /**
-   * Calls a command in the dir.
+   * Calls a command in the dir. The jdk tools run in this process, if the execution is InProcess.
    *
    * @param dir   the working dir of the call.
    * @param param the list of parameters.
@@ -83,147 +156,238 @@ public abstract class UpdateModules extends AbstractMojo {
    * @throws MojoExecutionException thrown, when an error occurs.
    */
   protected CallResult callInDir(Path dir, String... param) throws MojoExecutionException {
-    return Tools.callInDir(getLog(), dir, param);
+    return Tools.callTool(getLog(), execution, toolTimeout, toolOutput, dir, param);
   }
 
   /**
-   * Creates a zip of the dir.
+   * Creates an archive of the dir in the configured format. The posix permissions and symbolic links are kept.
    *
-   * @param dir        the dir to zip.
+   * @param dir        the dir to archive.
    * @param targetPath the targetPath.
    * @param subName    the sub name.
-   * @return the used zipPath.
+   * @return the used archive path.
    * @throws MojoExecutionException thrown if an error occurs.
    */
-  protected Path zipDir(Path dir, Path targetPath, String subName) throws MojoExecutionException {
+  protected Path archiveDir(Path dir, Path targetPath, String subName) throws MojoExecutionException {
     String targetFileName = targetPath.getFileName().toString();
-    String runZipName = targetFileName.substring(0, targetFileName.length() - UpdateModules.EXTENSION_LENGTH)
-        + "." + subName + ".zip";
-    Path zipFile = targetPath.resolveSibling(runZipName);
-    try (ByteArrayOutputStream tmpOut = new ByteArrayOutputStream();
-         ZipOutputStream zipTmpOut = new ZipOutputStream(tmpOut);
-         ZipOutputStream zipFileOut = new ZipOutputStream(Files.newOutputStream(zipFile,
-             StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE))) {
-      zipDir("", zipTmpOut, tmpOut, zipFileOut, dir);
-      return zipFile;
-    } catch (IOException e) {
-      throw new MojoExecutionException("Error writing zip!", e);
+    String archiveName = targetFileName.substring(0, targetFileName.length() - UpdateModules.EXTENSION_LENGTH)
+        + "." + subName + "." + getArchive().getExtension();
+    Path archivePath = targetPath.resolveSibling(archiveName);
+    try (ModulePipeline pipeline = new ModulePipeline(threads)) {
+      ArchiveWriter.of(archive, pipeline, getLog()).write(dir, archivePath);
     }
+    return archivePath;
   }
 
   /**
-   * Copies the entries of the dir to the streams. Uses it self to copy sub dirs.
+   * Gets the format of the attached archives.
    *
-   * @param parent     the name of the parent.
-   * @param zipTmpOut  the tmp zipOutput.
-   * @param tmpOut     the tmp out for resetting the buffer.
-   * @param zipFileOut the file output.
-   * @param dir        the dir
-   * @throws IOException thrown if an io error occurs.
-   */
-  private static void zipDir(String parent, ZipOutputStream zipTmpOut, ByteArrayOutputStream tmpOut,
-                             ZipOutputStream zipFileOut, Path dir) throws IOException {
-    try (Stream<Path> pathStream = Files.list(dir)) {
-      for (Path file : pathStream.collect(Collectors.toList())) {
-        if (Files.isDirectory(file)) {
-          zipDir(parent + file.getFileName().toString() + "/", zipTmpOut, tmpOut, zipFileOut, file);
-        } else {
-          ZipEntry entry = new ZipEntry(parent + file.getFileName().toString());
-          entry.setMethod(ZipEntry.DEFLATED);
-          zipTmpOut.putNextEntry(entry);
-          Files.copy(file, zipTmpOut);
-          zipTmpOut.closeEntry();
-          tmpOut.reset();
-          ZipEntry sizedEntry = new ZipEntry(entry);
-          if (sizedEntry.getCompressedSize() >= sizedEntry.getSize()) {
-            sizedEntry.setMethod(ZipEntry.STORED);
-            sizedEntry.setCompressedSize(sizedEntry.getSize());
-          }
-          zipFileOut.putNextEntry(sizedEntry);
-          Files.copy(file, zipFileOut);
-          zipFileOut.closeEntry();
-        }
-      }
-    }
+   * @return the format.
+   */
+  protected ArchiveEnum getArchive() {
+    return (archive != null) ? archive : ArchiveEnum.Zip;
   }
 
   /**
-   * Calls the commands to generate the module-info.java.
+   * Generates the module-info.java and adds the module-info.class to the jar.
    *
    * @param workDir the working directory (target/modules).
    * @param jarPath the path to the jar.
    * @throws MojoExecutionException thrown, when an error occurs.
    */
   private void addModuleInfo(Path workDir, Path jarPath) throws MojoExecutionException {
+    String moduleName = JarIndex.of(jarPath).getDescriptor().name();
+    generateModuleInfo(workDir, jarPath);
+    writeModuleInfo(jarPath, readModuleInfo(jarDir(workDir, jarPath), jarPath, moduleName));
+  }
+
+  /**
+   * Gets the sub dir of the jar in the working directory.
+   *
+   * @param workDir the working directory (target/modules).
+   * @param jarPath the path to the jar.
+   * @return the sub dir of the jar.
+   */
+  private static Path jarDir(Path workDir, Path jarPath) {
     String jarName = jarPath.getFileName().toString();
-    String subDir = jarName.substring(0, jarName.length() - EXTENSION_LENGTH);
-    String moduleType = (openmodule) ? "--generate-open-module" : "--generate-module-info";
-    String moduleName = ModuleFinder.of(jarPath).findAll().stream().findFirst().get().descriptor().name();
-    Path modulePath = workDir.resolve(subDir + '/' + moduleName);
-    if (callInDir(workDir, JDEPS, MODULE_PATH, LOCAL_DIR, moduleType, subDir, jarName).getExitVal() != 0) {
+    return workDir.resolve(jarName.substring(0, jarName.length() - EXTENSION_LENGTH));
+  }
+
+  /**
+   * Calls jdeps to generate the module-info.java in the sub dir of the jar.
+   *
+   * @param workDir the working directory (target/modules).
+   * @param jarPath the path to the jar.
+   * @throws MojoExecutionException thrown, when an error occurs.
+   */
+  private void generateModuleInfo(Path workDir, Path jarPath) throws MojoExecutionException {
+    String jarName = jarPath.getFileName().toString();
+    if (callJdeps(workDir, jarDir(workDir, jarPath), List.of(jarPath)).getExitVal() != 0) {
       throw new MojoExecutionException("unable to generate module-info. jdeps returned with error for jar: " + jarName);
     }
+  }
+
+  /**
+   * Calls jdeps to generate the module-info.java of the jars.
+   *
+   * @param workDir   the working directory (target/modules).
+   * @param outputDir the dir of the generated module-info.java files.
+   * @param jars      the jars to analyse.
+   * @return the result of jdeps.
+   * @throws MojoExecutionException thrown, when an error occurs.
+   */
+  private CallResult callJdeps(Path workDir, Path outputDir, List<Path> jars) throws MojoExecutionException {
+    List<String> params = new ArrayList<>();
+    params.add(JDEPS);
+    params.add(MODULE_PATH);
+    params.add(workDir.toString());
+    params.add((openmodule) ? "--generate-open-module" : "--generate-module-info");
+    params.add(outputDir.toString());
+    jars.forEach(jar -> params.add(jar.toString()));
+    return callInDir(workDir, params.toArray(new String[0]));
+  }
+
+  /**
+   * Analyses the jars with one call of jdeps. If the batch fails, the jars are analysed one by one, so the failing
+   * jar is reported.
+   *
+   * @param pipeline   the pipeline to run the single calls.
+   * @param workDir    the working directory (target/modules).
+   * @param moduleJars the jars by module name.
+   * @return the descriptors of the generated module-info.java by module name.
+   * @throws MojoExecutionException thrown, when an error occurs.
+   */
+  private Map<String, ModuleDescriptor> analyseJars(ModulePipeline pipeline, Path workDir,
+                                                    Map<String, Path> moduleJars) throws MojoExecutionException {
+    Map<String, ModuleDescriptor> generated = new ConcurrentHashMap<>();
+    if (moduleJars.size() > 1) {
+      Path batchDir = workDir.resolve(JDEPS_BATCH_DIR);
+      Tools.deleteDir(batchDir);
+      if (callJdeps(workDir, batchDir, new ArrayList<>(moduleJars.values())).getExitVal() == 0) {
+        for (Map.Entry<String, Path> entry : moduleJars.entrySet()) {
+          if (Files.exists(batchDir.resolve(entry.getKey()).resolve(MODULE_INFO_JAVA))) {
+            generated.put(entry.getKey(), readModuleInfo(batchDir, entry.getValue(), entry.getKey()));
+          }
+        }
+      } else {
+        getLog().warn("jdeps failed for the batch of " + moduleJars.size() + " jars, analyse the jars one by one.");
+      }
+    }
+
+    List<CompletableFuture<Void>> analysed = new ArrayList<>();
+    for (Map.Entry<String, Path> entry : moduleJars.entrySet()) {
+      if (!generated.containsKey(entry.getKey())) {
+        Path jarPath = entry.getValue();
+        analysed.add(pipeline.submit(() -> {
+          generateModuleInfo(workDir, jarPath);
+          generated.put(entry.getKey(), readModuleInfo(jarDir(workDir, jarPath), jarPath, entry.getKey()));
+          return null;
+        }));
+      }
+    }
+    ModulePipeline.awaitAll(analysed);
+    return generated;
+  }
+
+  /**
+   * Reads the module-info.java generated by jdeps.
+   *
+   * @param outputDir  the dir of the generated module-info.java files.
+   * @param jarPath    the path to the jar.
+   * @param moduleName the name of the module.
+   * @return the descriptor of the generated module-info.java.
+   * @throws MojoExecutionException thrown, when an error occurs.
+   */
+  private static ModuleDescriptor readModuleInfo(Path outputDir, Path jarPath, String moduleName)
+      throws MojoExecutionException {
+    String jarName = jarPath.getFileName().toString();
+    Path moduleInfo = outputDir.resolve(moduleName).resolve(MODULE_INFO_JAVA);
+    try {
+      return ModuleInfoWriter.readSource(Files.readString(moduleInfo));
+    } catch (IOException | IllegalArgumentException e) {
+      throw new MojoExecutionException("unable to read module-info.java of jar: " + jarName, e);
+    }
+  }
+
+  /**
+   * Adds the module-info.class of the generated descriptor to the jar. The packages, the version and the main class
+   * are added to the descriptor. The module-info.class is appended in place, the other entries are not written
+   * again. If the append fails, the jar is restored.
+   *
+   * @param jarPath   the path to the jar.
+   * @param generated the descriptor of the generated module-info.java.
+   * @throws MojoExecutionException thrown, when an error occurs.
+   */
+  private static void writeModuleInfo(Path jarPath, ModuleDescriptor generated) throws MojoExecutionException {
+    JarIndex index = JarIndex.of(jarPath);
+    ModuleDescriptor.Builder builder = ModuleDescriptor.newModule(generated.name(), generated.modifiers());
+    generated.requires().forEach(builder::requires);
+    generated.exports().forEach(builder::exports);
+    generated.opens().forEach(builder::opens);
+    generated.uses().forEach(builder::uses);
+    generated.provides().forEach(builder::provides);
+    builder.packages(index.getJarPackages());
+    builder.version(MODULE_VERSION);
+    String mainClass = index.getMainClass();
+    if (mainClass != null && mainClass.indexOf('.') > 0
+        && index.getJarPackages().contains(mainClass.substring(0, mainClass.lastIndexOf('.')))) {
+      builder.mainClass(mainClass);
+    }
+    byte[] moduleInfo = ModuleInfoWriter.write(builder.build());
 
-    Path subDirPath = workDir.resolve(subDir);
     try {
-      try (FileSystem fs = FileSystems.newFileSystem(jarPath, null)) {
-        Path rootDir = fs.getPath(".");
-        copyDir(rootDir, modulePath);
+      long dosTime = moduleInfoTime(jarPath);
+      try (JarRewriter jarOut = JarRewriter.append(jarPath, MODULE_INFO)) {
+        jarOut.writeDeflated(MODULE_INFO, new ByteArrayInputStream(moduleInfo), dosTime);
       }
-      callInDir(subDirPath, "javac", "--module-source-path", LOCAL_DIR, "-d", LOCAL_DIR, MODULE_PATH, "..",
-          "-m", moduleName);
-      callInDir(workDir, "jar", "--update", "--file", jarName, "--module-version", "1.0",
-          "-C", subDir + "/" + moduleName, "module-info.class");
     } catch (IOException e) {
-      throw new MojoExecutionException("unable to find module dir for jar: " + jarName, e);
+      throw new MojoExecutionException("unable to add module-info.class to jar: " + jarPath.getFileName(), e);
+    } finally {
+      JarIndex.invalidate(jarPath);
     }
   }
 
   /**
-   * Copies an dir and all its sub dirs.
+   * Gets the time of the generated module-info.class: the time of the manifest or the first dos time, if the jar has
+   * no manifest. So the same jar gets always the same module-info entry and the modules have stable digests.
    *
-   * @param srcDir    the source dir.
-   * @param targetDir the target dir.
-   * @throws IOException is thrown if an IOException is thrown.
-   */
-  private static void copyDir(Path srcDir, Path targetDir) throws IOException {
-    try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(srcDir)) {
-      for (Path path : dirStream) {
-        if (Files.isDirectory(path)) {
-          Path newTargetDir = targetDir.resolve(path.getFileName().toString());
-          Files.createDirectory(newTargetDir);
-          copyDir(path, newTargetDir);
-        } else {
-          Files.copy(path, targetDir.resolve(path.getFileName().toString()));
-        }
-      }
+   * @param jarPath the jar path.
+   * @return the dos time.
+   * @throws IOException is thrown if the jar can not be read.
+   */
+  static long moduleInfoTime(Path jarPath) throws IOException {
+    try (ZipIndex zip = ZipIndex.open(jarPath)) {
+      ZipIndex.Entry manifest = zip.getEntry(JarFile.MANIFEST_NAME);
+      return (manifest != null) ? manifest.getDosTime() : JarRewriter.toDosTime(LocalDateTime.MIN);
     }
   }
 
   /**
-   * Sets the module-info in the jar.
+   * Makes a single release jar of a multi release jar for the runtime version. The entries of the highest version
+   * replace the base entries. The entries are copied without inflating and deflating them again, only the manifest
+   * is written new.
    *
    * @param jarPath the jar path.
    * @throws MojoExecutionException is thrown if an IOException is thrown.
    */
-  private static void makeSingleReleaseJar(Path jarPath) throws MojoExecutionException {
+  static void makeSingleReleaseJar(Path jarPath) throws MojoExecutionException {
     String jarName = jarPath.getFileName().toString();
     Path tempJar = jarPath.resolveSibling(jarName + ".temp");
 
-    try (JarFile jarFile = new JarFile(jarPath.toFile(), false, ZipFile.OPEN_READ, JarFile.runtimeVersion())) {
-      try (JarOutputStream jarOut = new JarOutputStream(Files.newOutputStream(tempJar, StandardOpenOption.CREATE))) {
-        List<JarEntry> entryList = jarFile.versionedStream().collect(Collectors.toList());
-        for (JarEntry jarEntry : entryList) {
-          if (!jarEntry.isDirectory()) {
-            byte[] data = jarFile.getInputStream(jarEntry).readAllBytes();
-            if (jarEntry.getName().equals("META-INF/MANIFEST.MF")) {
-              String manifestText = new String(data, StandardCharsets.UTF_8);
-              data = manifestText.replace("Multi-Release: true\r\n", "").getBytes(StandardCharsets.UTF_8);
+    try (ZipIndex jarIndex = ZipIndex.open(jarPath)) {
+      Map<String, ZipIndex.Entry> selected = JarIndex.versionedEntries(jarIndex, true);
+      try (JarRewriter jarOut = new JarRewriter(tempJar)) {
+        for (Map.Entry<String, ZipIndex.Entry> entry : selected.entrySet()) {
+          if (entry.getKey().equals(JarFile.MANIFEST_NAME)) {
+            byte[] data;
+            try (InputStream in = jarIndex.open(entry.getValue())) {
+              data = in.readAllBytes();
             }
-            JarEntry newJarEntry = new JarEntry(jarEntry.getName());
-            jarOut.putNextEntry(newJarEntry);
-            jarOut.write(data);
-            jarOut.closeEntry();
+            String manifestText = new String(data, StandardCharsets.UTF_8);
+            data = manifestText.replace("Multi-Release: true\r\n", "").getBytes(StandardCharsets.UTF_8);
+            jarOut.writeDeflated(entry.getKey(), new ByteArrayInputStream(data), entry.getValue().getDosTime());
+          } else {
+            jarOut.copy(jarIndex, entry.getValue(), entry.getKey());
           }
         }
       }
@@ -231,72 +395,198 @@ public abstract class UpdateModules extends AbstractMojo {
       throw new MojoExecutionException("unable read jar file: " + jarName, e);
     }
     try {
-      Files.delete(jarPath);
-      Files.move(tempJar, jarPath);
+      Files.move(tempJar, jarPath, StandardCopyOption.REPLACE_EXISTING);
     } catch (IOException e) {
       throw new MojoExecutionException("unable delete or move jar file: " + jarName, e);
     }
   }
 
   /**
-   * Creates a copy of the jar of the dependencies to test and update the modules.
+   * The stages copy, inspect and flatten of a jar. The flattened jar is written as new file. An automatic jar gets its
+   * module-info.class appended in place, so it is staged as writable.
    *
-   * @param project the maven project.
-   * @return return the path of the modules dir.
-   * @throws MojoExecutionException is thrown if an IOException is thrown.
+   * @param jarStaging the staging of the jar.
+   * @param sourceJar  the jar of the artifact.
+   * @param jarPath    the path of the copy in the modules dir.
+   * @return the path of the copy if it is an automatic module, null otherwise.
+   * @throws MojoExecutionException is thrown if an error occurs.
    */
-  protected Path createModules(MavenProject project) throws MojoExecutionException {
-    Path targetJar = project.getArtifact().getFile().toPath();
+  private static Path prepareJar(JarStaging jarStaging, Path sourceJar, Path jarPath) throws MojoExecutionException {
+    JarIndex sourceIndex = JarIndex.of(sourceJar);
+    boolean multiRelease = sourceIndex.isMultiRelease();
+    jarStaging.stage(sourceJar, jarPath, !multiRelease && sourceIndex.getDescriptor().isAutomatic());
+    if (multiRelease) {
+      makeSingleReleaseJar(jarPath);
+    }
+    boolean automatic = JarIndex.of(jarPath).getDescriptor().isAutomatic();
+    return automatic ? jarPath : null;
+  }
+
+  /**
+   * The stages jdeps and update of the automatic jars. All jars are analysed by one call of jdeps before the first
+   * jar is updated. The module-info.class is written from the generated module-info.java without javac.
+   *
+   * @param pipeline     the pipeline to run the stages.
+   * @param modulesPath  the modules dir.
+   * @param autoJars     the automatic jars.
+   * @param sourceHashes the hashes of the dependency jars by file name, used for the keys of the cache.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private void modularizeJars(ModulePipeline pipeline, Path modulesPath, List<Path> autoJars,
+                              Map<String, String> sourceHashes) throws MojoExecutionException {
+    ModuleCache cache = (useCache && cacheDir != null) ? new ModuleCache(cacheDir.toPath(), getLog()) : null;
 
-    Path modulesPath = project.getBasedir().toPath().resolve("target").resolve("modules");
-    if (!Files.exists(modulesPath)) {
-      try {
-        Files.createDirectory(modulesPath);
-      } catch (IOException e) {
-        throw new MojoExecutionException("Unable to create dir: ", e);
+    Map<Path, String> keys = new HashMap<>();
+    List<Path> hitJars = new ArrayList<>();
+    List<Path> missJars = new ArrayList<>();
+    for (Path jarPath : autoJars) {
+      if (cache != null) {
+        String key = ModuleCache.key(jarPath.getFileName().toString(), sourceHashes, openmodule);
+        keys.put(jarPath, key);
+        if (cache.lookup(key)) {
+          hitJars.add(jarPath);
+          continue;
+        }
       }
-    } else {
-      return modulesPath;
+      missJars.add(jarPath);
     }
 
-    for (Artifact artifact : project.getArtifacts()) {
-      File sourceJar = artifact.getFile();
-      try {
-        Files.copy(sourceJar.toPath(), modulesPath.resolve(sourceJar.getName()));
-      } catch (IOException e) {
-        throw new MojoExecutionException("Unable to copy jar!", e);
-      }
+    Map<String, Path> moduleJars = new HashMap<>();
+    for (Path jarPath : missJars) {
+      moduleJars.put(JarIndex.of(jarPath).getDescriptor().name(), jarPath);
     }
+    Map<String, ModuleDescriptor> generated = analyseJars(pipeline, modulesPath, moduleJars);
 
-    List<Path> multiJars;
-    try (Stream<Path> pathStream = Files.list(modulesPath)) {
-      multiJars = pathStream.filter(path -> {
-            try (JarFile jarFile = new JarFile(path.toFile())) {
-              return jarFile.isMultiRelease();
-            } catch (IOException e) {
-              return false;
+    List<Path> failedHits = new ArrayList<>();
+    if (cache != null) {
+      List<CompletableFuture<Void>> restored = new ArrayList<>();
+      for (Path jarPath : hitJars) {
+        restored.add(pipeline.submit(() -> {
+          if (!cache.restore(keys.get(jarPath), jarPath)) {
+            synchronized (failedHits) {
+              failedHits.add(jarPath);
             }
           }
-      ).collect(Collectors.toList());
-    } catch (IOException e) {
-      throw new MojoExecutionException("Error getting files", e);
+          return null;
+        }));
+      }
+      ModulePipeline.awaitAll(restored);
     }
 
-    for (Path path : multiJars) {
-      makeSingleReleaseJar(path);
+    List<CompletableFuture<Void>> written = new ArrayList<>();
+    for (Map.Entry<String, Path> entry : moduleJars.entrySet()) {
+      Path jarPath = entry.getValue();
+      written.add(pipeline.submit(() -> {
+        writeModuleInfo(jarPath, generated.get(entry.getKey()));
+        if (cache != null) {
+          cache.store(keys.get(jarPath), jarPath);
+        }
+        return null;
+      }));
     }
+    ModulePipeline.awaitAll(written);
 
-    List<Path> autoJars;
-    try (Stream<Path> pathStream = Files.list(modulesPath)) {
-      autoJars = pathStream.filter(path ->
-          ModuleFinder.of(path).findAll().stream().findFirst().get().descriptor().isAutomatic()
-      ).collect(Collectors.toList());
+    for (Path jarPath : failedHits) {
+      addModuleInfo(modulesPath, jarPath);
+      cache.store(keys.get(jarPath), jarPath);
+    }
+    if (cache != null) {
+      cache.logStatistics();
+    }
+  }
+
+  /**
+   * Gets the configuration of the plugin, that is stored in the fingerprint of the modules dir.
+   *
+   * @return the configuration.
+   */
+  private String fingerprintConfig() {
+    return "layout=" + FINGERPRINT_LAYOUT + ", openmodule=" + openmodule + ", java=" + Runtime.version();
+  }
+
+  /**
+   * Deletes the jar and its work dir from the modules dir.
+   *
+   * @param modulesPath the modules dir.
+   * @param jarName     the file name of the jar.
+   * @throws MojoExecutionException is thrown if an error occurs.
+   */
+  private static void deleteJar(Path modulesPath, String jarName) throws MojoExecutionException {
+    try {
+      Files.deleteIfExists(modulesPath.resolve(jarName));
     } catch (IOException e) {
-      throw new MojoExecutionException("Error getting files", e);
+      throw new MojoExecutionException("Unable to delete jar: " + jarName, e);
     }
+    if (jarName.length() > EXTENSION_LENGTH) {
+      Tools.deleteDir(modulesPath.resolve(jarName.substring(0, jarName.length() - EXTENSION_LENGTH)));
+    }
+  }
 
-    for (Path jarPath : autoJars) {
-      addModuleInfo(modulesPath, jarPath);
+  /**
+   * Creates a copy of the jar of the dependencies to test and update the modules. If the modules dir has a
+   * fingerprint of the same configuration, only the added, removed or changed jars and the jars requiring them are
+   * processed again.
+   *
+   * @param project the maven project.
+   * @return return the path of the modules dir.
+   * @throws MojoExecutionException is thrown if an IOException is thrown.
+   */
+  protected Path createModules(MavenProject project) throws MojoExecutionException {
+    Path targetJar = project.getArtifact().getFile().toPath();
+
+    Path modulesPath = project.getBasedir().toPath().toAbsolutePath().resolve("target").resolve("modules");
+    String config = fingerprintConfig();
+    ModuleFingerprint oldPrint = ModuleFingerprint.load(modulesPath);
+    if (Files.exists(modulesPath) && (oldPrint == null || !oldPrint.getConfig().equals(config))) {
+      getLog().info("Modules dir is outdated, create all modules.");
+      Tools.deleteDir(modulesPath);
+      oldPrint = null;
+    }
+    try {
+      Files.createDirectories(modulesPath);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to create dir: ", e);
+    }
+    ModuleFingerprint.delete(modulesPath);
+
+    try (ModulePipeline pipeline = new ModulePipeline(threads)) {
+      Map<String, Path> sourceJars = new HashMap<>();
+      Map<String, String> sourceHashes = new ConcurrentHashMap<>();
+      List<CompletableFuture<String>> hashed = new ArrayList<>();
+      for (Artifact artifact : project.getArtifacts()) {
+        Path sourceJar = artifact.getFile().toPath();
+        String jarName = sourceJar.getFileName().toString();
+        sourceJars.put(jarName, sourceJar);
+        hashed.add(pipeline.submit(() -> sourceHashes.put(jarName, Tools.sha256(sourceJar))));
+      }
+      ModulePipeline.awaitAll(hashed);
+
+      Set<String> outdated = (oldPrint == null) ? sourceJars.keySet() : oldPrint.outdated(sourceHashes);
+      getLog().info("Modules to process: " + outdated.size() + " of " + sourceJars.size());
+      for (String jarName : outdated) {
+        deleteJar(modulesPath, jarName);
+      }
+      deleteJar(modulesPath, targetJar.getFileName().toString());
+
+      JarStaging jarStaging = new JarStaging(staging, getLog());
+      List<CompletableFuture<Path>> prepared = new ArrayList<>();
+      for (Map.Entry<String, Path> entry : sourceJars.entrySet()) {
+        if (outdated.contains(entry.getKey())) {
+          Path jarPath = modulesPath.resolve(entry.getKey());
+          prepared.add(pipeline.submit(() -> prepareJar(jarStaging, entry.getValue(), jarPath)));
+        }
+      }
+      List<Path> autoJars = ModulePipeline.awaitAll(prepared).stream()
+          .filter(Objects::nonNull).collect(Collectors.toList());
+      modularizeJars(pipeline, modulesPath, autoJars, sourceHashes);
+
+      ModuleFingerprint newPrint = new ModuleFingerprint(config);
+      for (Map.Entry<String, Path> entry : sourceJars.entrySet()) {
+        Path jarPath = modulesPath.resolve(entry.getKey());
+        newPrint.putJar(entry.getKey(), sourceHashes.get(entry.getKey()),
+            JarIndex.of(jarPath).getDescriptor());
+      }
+      newPrint.save(modulesPath);
     }
 
     try {
@@ -306,11 +596,7 @@ public abstract class UpdateModules extends AbstractMojo {
     }
 
     Path newTargetJar = modulesPath.resolve(targetJar.getFileName().toString());
-    try {
-      Files.copy(targetJar, newTargetJar);
-    } catch (IOException e) {
-      throw new MojoExecutionException("Unable to created jar!", e);
-    }
+    new JarStaging(staging, getLog()).stage(targetJar, newTargetJar, true);
 
     Tools.setModuleMain(getLog(), newTargetJar);
     return modulesPath;
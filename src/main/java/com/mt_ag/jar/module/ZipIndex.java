@@ -0,0 +1,747 @@
+package com.mt_ag.jar.module;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * The index of a zip file read from its central directory. It gives access to the raw compressed data of an entry,
+ * so an entry can be copied without inflating and deflating it again.
+ */
+public final class ZipIndex implements Closeable {
+
+  /**
+   * The signature of the local header.
+   */
+  static final int LOC_SIG = 0x04034b50;
+
+  /**
+   * The signature of the central directory header.
+   */
+  static final int CEN_SIG = 0x02014b50;
+
+  /**
+   * The signature of the end of the central directory.
+   */
+  static final int END_SIG = 0x06054b50;
+
+  /**
+   * The signature of the zip64 end of the central directory.
+   */
+  static final int ZIP64_END_SIG = 0x06064b50;
+
+  /**
+   * The signature of the zip64 end locator.
+   */
+  static final int ZIP64_LOC_SIG = 0x07064b50;
+
+  /**
+   * The signature of the data descriptor.
+   */
+  static final int DATA_DESC_SIG = 0x08074b50;
+
+  /**
+   * The size of the local header without name and extra.
+   */
+  static final int LOC_HEADER_SIZE = 30;
+
+  /**
+   * The size of the central directory header without name, extra and comment.
+   */
+  static final int CEN_HEADER_SIZE = 46;
+
+  /**
+   * The size of the end of the central directory without comment.
+   */
+  static final int END_HEADER_SIZE = 22;
+
+  /**
+   * The size of the zip64 end locator.
+   */
+  static final int ZIP64_LOC_SIZE = 20;
+
+  /**
+   * The size of the zip64 end of the central directory without the extensible data.
+   */
+  static final int ZIP64_END_SIZE = 56;
+
+  /**
+   * The id of the zip64 extra field.
+   */
+  static final int ZIP64_EXTRA_ID = 0x0001;
+
+  /**
+   * The max value of an unsigned short, used as zip64 marker.
+   */
+  static final int MAX_SHORT = 0xFFFF;
+
+  /**
+   * The max value of an unsigned int, used as zip64 marker.
+   */
+  static final long MAX_INT = 0xFFFFFFFFL;
+
+  /**
+   * The flag of the data descriptor.
+   */
+  static final int FLAG_DATA_DESCRIPTOR = 0x08;
+
+  /**
+   * The flag of utf-8 names.
+   */
+  static final int FLAG_UTF8 = 0x800;
+
+  /**
+   * The offset of the name length in the local header.
+   */
+  private static final int LOC_NAME_LENGTH_OFFSET = 26;
+
+  /**
+   * The offset of the size of the central directory in the end record.
+   */
+  private static final int END_CEN_SIZE_OFFSET = 12;
+
+  /**
+   * The offset of the entry count in the end record.
+   */
+  private static final int END_COUNT_OFFSET = 10;
+
+  /**
+   * The offset of the entry count in the zip64 end record.
+   */
+  private static final int ZIP64_END_COUNT_OFFSET = 32;
+
+  /**
+   * The offset of the zip64 end record in the locator.
+   */
+  private static final int ZIP64_LOC_OFFSET_OFFSET = 8;
+
+  /**
+   * An entry of the central directory.
+   */
+  public static final class Entry {
+
+    /**
+     * The name.
+     */
+    private final String name;
+
+    /**
+     * The version made by.
+     */
+    private final int versionMadeBy;
+
+    /**
+     * The general purpose flags.
+     */
+    private final int flags;
+
+    /**
+     * The compression method.
+     */
+    private final int method;
+
+    /**
+     * The dos time in the low and the dos date in the high 16 bits.
+     */
+    private final long dosTime;
+
+    /**
+     * The crc of the data.
+     */
+    private final long crc;
+
+    /**
+     * The compressed size.
+     */
+    private final long compressedSize;
+
+    /**
+     * The size.
+     */
+    private final long size;
+
+    /**
+     * The extra of the central directory without zip64 fields.
+     */
+    private final byte[] extra;
+
+    /**
+     * The comment.
+     */
+    private final byte[] comment;
+
+    /**
+     * The external attributes.
+     */
+    private final long externalAttributes;
+
+    /**
+     * The offset of the local header.
+     */
+    private final long localHeaderOffset;
+
+    /**
+     * The constructor with all fields.
+     *
+     * @param pName               the name.
+     * @param pVersionMadeBy      the version made by.
+     * @param pFlags              the flags.
+     * @param pMethod             the method.
+     * @param pDosTime            the dos time and date.
+     * @param pCrc                the crc.
+     * @param pCompressedSize     the compressed size.
+     * @param pSize               the size.
+     * @param pExtra              the extra.
+     * @param pComment            the comment.
+     * @param pExternalAttributes the external attributes.
+     * @param pLocalHeaderOffset  the offset of the local header.
+     */
+    Entry(String pName, int pVersionMadeBy, int pFlags, int pMethod, long pDosTime, long pCrc, long pCompressedSize,
+          long pSize, byte[] pExtra, byte[] pComment, long pExternalAttributes, long pLocalHeaderOffset) {
+      name = pName;
+      versionMadeBy = pVersionMadeBy;
+      flags = pFlags;
+      method = pMethod;
+      dosTime = pDosTime;
+      crc = pCrc;
+      compressedSize = pCompressedSize;
+      size = pSize;
+      extra = pExtra;
+      comment = pComment;
+      externalAttributes = pExternalAttributes;
+      localHeaderOffset = pLocalHeaderOffset;
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Gets the version made by.
+     *
+     * @return the version made by.
+     */
+    public int getVersionMadeBy() {
+      return versionMadeBy;
+    }
+
+    /**
+     * Gets the flags.
+     *
+     * @return the flags.
+     */
+    public int getFlags() {
+      return flags;
+    }
+
+    /**
+     * Gets the method.
+     *
+     * @return the method.
+     */
+    public int getMethod() {
+      return method;
+    }
+
+    /**
+     * Gets the dos time and date.
+     *
+     * @return the dos time in the low and the date in the high 16 bits.
+     */
+    public long getDosTime() {
+      return dosTime;
+    }
+
+    /**
+     * Gets the crc.
+     *
+     * @return the crc.
+     */
+    public long getCrc() {
+      return crc;
+    }
+
+    /**
+     * Gets the compressed size.
+     *
+     * @return the compressed size.
+     */
+    public long getCompressedSize() {
+      return compressedSize;
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the size.
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * Gets the extra of the central directory.
+     *
+     * @return the extra.
+     */
+    public byte[] getExtra() {
+      return extra.clone();
+    }
+
+    /**
+     * Gets the comment.
+     *
+     * @return the comment.
+     */
+    public byte[] getComment() {
+      return comment.clone();
+    }
+
+    /**
+     * Gets the external attributes.
+     *
+     * @return the external attributes.
+     */
+    public long getExternalAttributes() {
+      return externalAttributes;
+    }
+
+    /**
+     * Gets the offset of the local header.
+     *
+     * @return the offset.
+     */
+    public long getLocalHeaderOffset() {
+      return localHeaderOffset;
+    }
+
+    /**
+     * Tests if the entry is a directory.
+     *
+     * @return true if it is a directory.
+     */
+    public boolean isDirectory() {
+      return name.endsWith("/");
+    }
+  }
+
+  /**
+   * The channel of the zip file.
+   */
+  private final FileChannel channel;
+
+  /**
+   * The entries in the order of the central directory.
+   */
+  private final List<Entry> entries;
+
+  /**
+   * The entries by name.
+   */
+  private final Map<String, Entry> entryMap;
+
+  /**
+   * The offset of the central directory.
+   */
+  private final long centralOffset;
+
+  /**
+   * The constructor reads the central directory.
+   *
+   * @param pChannel the channel of the file.
+   * @throws IOException is thrown if the file is no valid zip.
+   */
+  private ZipIndex(FileChannel pChannel) throws IOException {
+    channel = pChannel;
+    long endOffset = findEnd();
+    ByteBuffer end = read(endOffset, END_HEADER_SIZE);
+    long count = Short.toUnsignedInt(end.getShort(END_COUNT_OFFSET));
+    long cenSize = Integer.toUnsignedLong(end.getInt(END_CEN_SIZE_OFFSET));
+    long cenOffset = Integer.toUnsignedLong(end.getInt(END_CEN_SIZE_OFFSET + Integer.BYTES));
+    if ((count == MAX_SHORT || cenSize == MAX_INT || cenOffset == MAX_INT) && endOffset >= ZIP64_LOC_SIZE) {
+      ByteBuffer locator = read(endOffset - ZIP64_LOC_SIZE, ZIP64_LOC_SIZE);
+      if (locator.getInt(0) == ZIP64_LOC_SIG) {
+        ByteBuffer end64 = read(locator.getLong(ZIP64_LOC_OFFSET_OFFSET), ZIP64_END_SIZE);
+        if (end64.getInt(0) != ZIP64_END_SIG) {
+          throw new IOException("Invalid zip64 end record!");
+        }
+        count = end64.getLong(ZIP64_END_COUNT_OFFSET);
+        cenSize = end64.getLong(ZIP64_END_COUNT_OFFSET + Long.BYTES);
+        cenOffset = end64.getLong(ZIP64_END_COUNT_OFFSET + 2 * Long.BYTES);
+      }
+    }
+    centralOffset = cenOffset;
+    List<Entry> entryList = new ArrayList<>();
+    Map<String, Entry> map = new HashMap<>();
+    ByteBuffer cen = read(cenOffset, Math.toIntExact(cenSize));
+    for (long i = 0; i < count; i++) {
+      Entry entry = readEntry(cen);
+      entryList.add(entry);
+      map.putIfAbsent(entry.getName(), entry);
+    }
+    entries = Collections.unmodifiableList(entryList);
+    entryMap = map;
+  }
+
+  /**
+   * Opens the zip file and reads its central directory.
+   *
+   * @param zipFile the zip file.
+   * @return the index.
+   * @throws IOException is thrown if the file is no valid zip.
+   */
+  public static ZipIndex open(Path zipFile) throws IOException {
+    FileChannel channel = FileChannel.open(zipFile, StandardOpenOption.READ);
+    try {
+      return new ZipIndex(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Finds the end of the central directory.
+   *
+   * @return the offset of the end record.
+   * @throws IOException is thrown if no end record is found.
+   */
+  private long findEnd() throws IOException {
+    long fileSize = channel.size();
+    int tailSize = (int) Math.min(fileSize, END_HEADER_SIZE + MAX_SHORT);
+    ByteBuffer tail = read(fileSize - tailSize, tailSize);
+    for (int pos = tailSize - END_HEADER_SIZE; pos >= 0; pos--) {
+      if (tail.getInt(pos) == END_SIG) {
+        return fileSize - tailSize + pos;
+      }
+    }
+    throw new IOException("No zip end record found!");
+  }
+
+  /**
+   * Reads bytes of the file.
+   *
+   * @param offset the offset in the file.
+   * @param length the count of bytes.
+   * @return the bytes as little endian buffer.
+   * @throws IOException is thrown if the file is too short.
+   */
+  private ByteBuffer read(long offset, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    long pos = offset;
+    while (buffer.hasRemaining()) {
+      int len = channel.read(buffer, pos);
+      if (len < 0) {
+        throw new IOException("Unexpected end of zip file!");
+      }
+      pos += len;
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Reads an entry of the central directory at the position of the buffer.
+   *
+   * @param cen the buffer of the central directory.
+   * @return the entry.
+   * @throws IOException is thrown if the entry is invalid.
+   */
+  private static Entry readEntry(ByteBuffer cen) throws IOException {
+    if (cen.getInt() != CEN_SIG) {
+      throw new IOException("Invalid central directory header!");
+    }
+    int versionMadeBy = Short.toUnsignedInt(cen.getShort());
+    cen.getShort();
+    int flags = Short.toUnsignedInt(cen.getShort());
+    int method = Short.toUnsignedInt(cen.getShort());
+    long dosTime = Integer.toUnsignedLong(cen.getInt());
+    long crc = Integer.toUnsignedLong(cen.getInt());
+    long compressedSize = Integer.toUnsignedLong(cen.getInt());
+    long size = Integer.toUnsignedLong(cen.getInt());
+    int nameLength = Short.toUnsignedInt(cen.getShort());
+    int extraLength = Short.toUnsignedInt(cen.getShort());
+    int commentLength = Short.toUnsignedInt(cen.getShort());
+    cen.getShort();
+    cen.getShort();
+    long externalAttributes = Integer.toUnsignedLong(cen.getInt());
+    long offset = Integer.toUnsignedLong(cen.getInt());
+    byte[] nameBytes = new byte[nameLength];
+    cen.get(nameBytes);
+    byte[] extra = new byte[extraLength];
+    cen.get(extra);
+    byte[] comment = new byte[commentLength];
+    cen.get(comment);
+
+    ByteBuffer zip64 = findExtra(extra, ZIP64_EXTRA_ID);
+    if (zip64 != null) {
+      if (size == MAX_INT) {
+        size = zip64.getLong();
+      }
+      if (compressedSize == MAX_INT) {
+        compressedSize = zip64.getLong();
+      }
+      if (offset == MAX_INT) {
+        offset = zip64.getLong();
+      }
+    }
+    return new Entry(new String(nameBytes, StandardCharsets.UTF_8), versionMadeBy, flags, method, dosTime, crc,
+        compressedSize, size, removeExtra(extra, ZIP64_EXTRA_ID), comment, externalAttributes, offset);
+  }
+
+  /**
+   * Finds the data of an extra field.
+   *
+   * @param extra the extra.
+   * @param id    the id of the field.
+   * @return the data of the field or null.
+   */
+  private static ByteBuffer findExtra(byte[] extra, int id) {
+    ByteBuffer buffer = ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.remaining() >= 2 * Short.BYTES) {
+      int fieldId = Short.toUnsignedInt(buffer.getShort());
+      int length = Short.toUnsignedInt(buffer.getShort());
+      if (length > buffer.remaining()) {
+        return null;
+      }
+      if (fieldId == id) {
+        return buffer.slice().limit(length).order(ByteOrder.LITTLE_ENDIAN);
+      }
+      buffer.position(buffer.position() + length);
+    }
+    return null;
+  }
+
+  /**
+   * Removes an extra field.
+   *
+   * @param extra the extra.
+   * @param id    the id of the field to remove.
+   * @return the extra without the field.
+   */
+  static byte[] removeExtra(byte[] extra, int id) {
+    ByteBuffer buffer = ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN);
+    ByteBuffer result = ByteBuffer.allocate(extra.length);
+    while (buffer.remaining() >= 2 * Short.BYTES) {
+      int start = buffer.position();
+      int fieldId = Short.toUnsignedInt(buffer.getShort());
+      int length = Math.min(Short.toUnsignedInt(buffer.getShort()), buffer.remaining());
+      buffer.position(buffer.position() + length);
+      if (fieldId != id) {
+        result.put(extra, start, buffer.position() - start);
+      }
+    }
+    byte[] bytes = new byte[result.position()];
+    result.flip().get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Gets the entries in the order of the central directory.
+   *
+   * @return the entries.
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Gets an entry by name.
+   *
+   * @param name the name.
+   * @return the entry or null.
+   */
+  public Entry getEntry(String name) {
+    return entryMap.get(name);
+  }
+
+  /**
+   * Gets the offset of the central directory. All entries are before it.
+   *
+   * @return the offset.
+   */
+  public long getCentralOffset() {
+    return centralOffset;
+  }
+
+  /**
+   * Gets the extra of the local header of the entry without zip64 fields.
+   *
+   * @param entry the entry.
+   * @return the extra.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public byte[] getLocalExtra(Entry entry) throws IOException {
+    ByteBuffer header = readLocalHeader(entry);
+    int nameLength = Short.toUnsignedInt(header.getShort(LOC_NAME_LENGTH_OFFSET));
+    int extraLength = Short.toUnsignedInt(header.getShort(LOC_NAME_LENGTH_OFFSET + Short.BYTES));
+    ByteBuffer extra = read(entry.getLocalHeaderOffset() + LOC_HEADER_SIZE + nameLength, extraLength);
+    byte[] bytes = new byte[extraLength];
+    extra.get(bytes);
+    return removeExtra(bytes, ZIP64_EXTRA_ID);
+  }
+
+  /**
+   * Reads the local header of the entry.
+   *
+   * @param entry the entry.
+   * @return the local header without name and extra.
+   * @throws IOException is thrown if the header is invalid.
+   */
+  private ByteBuffer readLocalHeader(Entry entry) throws IOException {
+    ByteBuffer header = read(entry.getLocalHeaderOffset(), LOC_HEADER_SIZE);
+    if (header.getInt(0) != LOC_SIG) {
+      throw new IOException("Invalid local header of entry: " + entry.getName());
+    }
+    return header;
+  }
+
+  /**
+   * Gets the offset of the data of the entry.
+   *
+   * @param entry the entry.
+   * @return the offset.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public long getDataOffset(Entry entry) throws IOException {
+    ByteBuffer header = readLocalHeader(entry);
+    int nameLength = Short.toUnsignedInt(header.getShort(LOC_NAME_LENGTH_OFFSET));
+    int extraLength = Short.toUnsignedInt(header.getShort(LOC_NAME_LENGTH_OFFSET + Short.BYTES));
+    return entry.getLocalHeaderOffset() + LOC_HEADER_SIZE + nameLength + extraLength;
+  }
+
+  /**
+   * Opens the raw compressed data of the entry.
+   *
+   * @param entry the entry.
+   * @return the stream of the raw data.
+   * @throws IOException is thrown if an error occurs.
+   */
+  public InputStream openRaw(Entry entry) throws IOException {
+    return new ChannelInputStream(channel, getDataOffset(entry), entry.getCompressedSize());
+  }
+
+  /**
+   * Opens the data of the entry.
+   *
+   * @param entry the entry.
+   * @return the stream of the data.
+   * @throws IOException is thrown if the method is not supported.
+   */
+  public InputStream open(Entry entry) throws IOException {
+    InputStream raw = openRaw(entry);
+    if (entry.getMethod() == ZipEntry.STORED) {
+      return raw;
+    } else if (entry.getMethod() == ZipEntry.DEFLATED) {
+      Inflater inflater = new Inflater(true);
+      return new InflaterInputStream(raw, inflater) {
+        @Override
+        public void close() throws IOException {
+          super.close();
+          inflater.end();
+        }
+      };
+    }
+    throw new IOException("Unsupported compression method of entry: " + entry.getName());
+  }
+
+  /**
+   * Closes the file.
+   *
+   * @throws IOException is thrown if an error occurs.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * A stream of a range of a channel.
+   */
+  private static final class ChannelInputStream extends InputStream {
+
+    /**
+     * The channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The current position.
+     */
+    private long position;
+
+    /**
+     * The remaining bytes.
+     */
+    private long remaining;
+
+    /**
+     * The constructor with the range.
+     *
+     * @param pChannel the channel.
+     * @param pOffset  the offset of the range.
+     * @param pLength  the length of the range.
+     */
+    ChannelInputStream(FileChannel pChannel, long pOffset, long pLength) {
+      channel = pChannel;
+      position = pOffset;
+      remaining = pLength;
+    }
+
+    /**
+     * Reads one byte.
+     *
+     * @return the byte or -1.
+     * @throws IOException is thrown if an error occurs.
+     */
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      int len = read(one, 0, 1);
+      return (len < 0) ? -1 : Byte.toUnsignedInt(one[0]);
+    }
+
+    /**
+     * Reads bytes.
+     *
+     * @param b   the buffer.
+     * @param off the offset in the buffer.
+     * @param len the max count of bytes.
+     * @return the count of read bytes or -1.
+     * @throws IOException is thrown if an error occurs.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int max = (int) Math.min(len, remaining);
+      int count = channel.read(ByteBuffer.wrap(b, off, max), position);
+      if (count < 0) {
+        throw new IOException("Unexpected end of zip file!");
+      }
+      position += count;
+      remaining -= count;
+      return count;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the writers of the archives.
+ */
+@DisplayName("Archive Writer Test")
+public class ArchiveWriterTest {
+
+  /**
+   * Reads a field of a tar header as string.
+   *
+   * @param header the header.
+   * @param offset the offset of the field.
+   * @param length the length of the field.
+   * @return the string up to the first zero.
+   */
+  private static String field(byte[] header, int offset, int length) {
+    int end = offset;
+    while (end < offset + length && header[end] != 0) {
+      end++;
+    }
+    return new String(header, offset, end - offset, StandardCharsets.UTF_8).trim();
+  }
+
+  /**
+   * Reads the entries of a tar as name to type, mode, link and data. The path of a pax header is used as name of the
+   * next entry.
+   *
+   * @param in the tar.
+   * @return the entries.
+   * @throws IOException not expected.
+   */
+  private static Map<String, Object[]> readTar(InputStream in) throws IOException {
+    Map<String, Object[]> entries = new HashMap<>();
+    String paxPath = null;
+    byte[] header = in.readNBytes(TarWriter.BLOCK_SIZE);
+    while (header.length == TarWriter.BLOCK_SIZE && header[0] != 0) {
+      String prefix = field(header, 345, 155);
+      String name = (prefix.isEmpty() ? "" : prefix + "/") + field(header, 0, 100);
+      long size = Long.parseLong(field(header, 124, 12), 8);
+      byte[] data = in.readNBytes((int) size);
+      in.readNBytes((int) ((TarWriter.BLOCK_SIZE - size % TarWriter.BLOCK_SIZE) % TarWriter.BLOCK_SIZE));
+      if (header[156] == 'x') {
+        String record = new String(data, StandardCharsets.UTF_8);
+        paxPath = record.substring(record.indexOf("path=") + "path=".length(), record.length() - 1);
+      } else {
+        entries.put((paxPath != null) ? paxPath : name, new Object[] {(char) header[156],
+            Integer.parseInt(field(header, 100, 8), 8), field(header, 157, 100), data});
+        paxPath = null;
+      }
+      header = in.readNBytes(TarWriter.BLOCK_SIZE);
+    }
+    return entries;
+  }
+
+  /**
+   * Tests a tar and a tar.gz with an executable and a link.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void tar() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Path dir = tempDir.resolve("run");
+    Files.createDirectories(dir.resolve("bin"));
+    Path java = Files.writeString(dir.resolve("bin").resolve("java"), "#!/bin/sh\n", StandardCharsets.UTF_8);
+    boolean posix = Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class);
+    if (posix) {
+      Files.setPosixFilePermissions(java, PosixFilePermissions.fromString("rwx------"));
+      Files.setPosixFilePermissions(Files.writeString(dir.resolve("bin").resolve("shared.txt"), "shared",
+          StandardCharsets.UTF_8), PosixFilePermissions.fromString("rw-rw-rw-"));
+      Files.createSymbolicLink(dir.resolve("bin").resolve("link"), Paths.get("java"));
+    }
+    String longName = "a-very-long-dir-name-to-use-the-prefix-of-the-ustar-header/".repeat(2) + "file.txt";
+    String paxName = "a-very-long-dir-name-for-a-pax-header".repeat(4) + "/file.txt";
+    Files.createDirectories(dir.resolve(longName).getParent());
+    Files.writeString(dir.resolve(longName), "long", StandardCharsets.UTF_8);
+    Files.createDirectories(dir.resolve(paxName).getParent());
+    Files.writeString(dir.resolve(paxName), "pax", StandardCharsets.UTF_8);
+
+    try (ModulePipeline pipeline = new ModulePipeline(1)) {
+      ArchiveWriter.of(ArchiveEnum.Tar, pipeline, Mockito.mock(Log.class)).write(dir, tempDir.resolve("run.tar"));
+      ArchiveWriter.of(ArchiveEnum.TarGz, pipeline, Mockito.mock(Log.class)).write(dir, tempDir.resolve("run.tar.gz"));
+    }
+
+    Map<String, Object[]> entries;
+    try (InputStream in = Files.newInputStream(tempDir.resolve("run.tar"))) {
+      entries = readTar(in);
+    }
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(tempDir.resolve("run.tar.gz")))) {
+      assertEquals(entries.keySet(), readTar(in).keySet(), "Entries of tar.gz are not as expected!");
+    }
+    assertEquals('5', entries.get("bin/")[0], "Type of dir is not as expected!");
+    assertEquals('0', entries.get("bin/java")[0], "Type of file is not as expected!");
+    assertArrayEquals(Files.readAllBytes(java), (byte[]) entries.get("bin/java")[3], "Data is not as expected!");
+    assertTrue(entries.containsKey(longName), "Missing long name!");
+    assertArrayEquals("pax".getBytes(StandardCharsets.UTF_8), (byte[]) entries.get(paxName)[3],
+        "Entry with pax header is not as expected!");
+    if (posix) {
+      assertEquals(0755, entries.get("bin/java")[1], "Mode of executable is not as expected!");
+      assertEquals(0644, entries.get("bin/shared.txt")[1], "Mode of file is not as expected!");
+      assertEquals('2', entries.get("bin/link")[0], "Type of link is not as expected!");
+      assertEquals("java", entries.get("bin/link")[2], "Link is not as expected!");
+    }
+    TestTools.deleteDir(tempDir);
+  }
+}
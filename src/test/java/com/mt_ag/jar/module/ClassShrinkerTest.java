@@ -0,0 +1,87 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the shrinking of the application modules.
+ */
+@DisplayName("Class Shrinker Test")
+public class ClassShrinkerTest {
+
+  /**
+   * Tests the shrinking of asm to the classes used by the main class and kept by a rule.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void shrinkAsm() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Path testDir = Paths.get("test-dir");
+    for (String jar : List.of("asm-test-1.0.jar", "asm-7.1.jar", "log4j-api-2.11.2.jar")) {
+      Files.copy(testDir.resolve(jar), tempDir.resolve(jar));
+    }
+
+    Log mockLog = Mockito.mock(Log.class);
+    Path shrunkDir = tempDir.resolve("shrunk");
+    Path report = tempDir.resolve("shrink.txt");
+    Set<String> removed = ClassShrinker.shrink(ModuleSet.of(tempDir, List.of("asm.test"), false),
+        List.of("com.mt_ag.asm.Asm"), List.of("org.objectweb.asm.signature.*"), shrunkDir, report, mockLog);
+
+    assertFalse(removed.isEmpty(), "No class is removed!");
+    assertFalse(removed.contains("com.mt_ag.asm.Asm"), "Main class is removed!");
+    assertFalse(removed.contains("org.objectweb.asm.signature.SignatureReader"), "Kept class is removed!");
+    try (ZipIndex zip = ZipIndex.open(shrunkDir.resolve("asm-7.1.jar"))) {
+      assertNotNull(zip.getEntry("module-info.class"), "Missing module-info!");
+      for (String className : removed) {
+        assertNull(zip.getEntry(className.replace('.', '/') + ".class"), "Removed class is found: " + className);
+      }
+    }
+    List<String> lines = Files.readAllLines(report, StandardCharsets.UTF_8);
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith("module: org.objectweb.asm removed: ")),
+        "Missing module in report!");
+    assertTrue(lines.containsAll(removed.stream().map(name -> "  " + name).collect(Collectors.toList())), "Missing removed class in report!");
+
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests the keep rules and the references of the constants.
+   */
+  @Test
+  void rules() {
+    Predicate<String> keep = ClassShrinker.keepRule(List.of("a.b.C", "a.d.*", "a.e.**"));
+    assertTrue(keep.test("a.b.C"), "Class is not kept!");
+    assertFalse(keep.test("a.b.Cx"), "Other class is kept!");
+    assertTrue(keep.test("a.d.X$Y"), "Class of package is not kept!");
+    assertFalse(keep.test("a.d.x.Y"), "Class of sub package is kept!");
+    assertTrue(keep.test("a.e.x.Y"), "Class of sub package is not kept!");
+    assertTrue(ClassShrinker.references("(La/B;[La/C<La/D;>;)V").containsAll(Set.of("a/B", "a/C", "a/D")),
+        "Missing types of a descriptor!");
+    assertTrue(ClassShrinker.references("a.b.C").contains("a/b/C"), "Missing binary name!");
+    assertNull(ClassShrinker.className("META-INF/versions/9/module-info.class"), "Module-info is a class!");
+  }
+}
@@ -7,10 +7,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.lang.module.ModuleFinder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -25,6 +28,9 @@ public class ClearJarMojoTest {
   @Test
   void exec() throws IOException, MojoExecutionException {
     Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
     Files.createDirectory(tempDir);
 
     Path testPath = Paths.get("test-dir");
@@ -42,9 +48,9 @@ public class ClearJarMojoTest {
     assertTrue(Files.exists(cleanPath), "Clean path dose not exist!");
 
     Mockito.verify(mockLog).info("MainClass: com.mtag.tools.config.gui.LinksDesktop");
-    Mockito.verify(mockLog).info("command: jar -u -f install-1.0.temp.jar -e com.mtag.tools.config.gui.LinksDesktop");
-    Mockito.verify(mockLog).info("out:");
-    Mockito.verify(mockLog).info("exitVal: 0");
+    Mockito.verify(mockLog).info("Appended module-info.class to: install-1.0.temp.jar");
+    assertEquals("com.mtag.tools.config.gui.LinksDesktop", ModuleFinder.of(cleanPath).findAll().iterator().next()
+        .descriptor().mainClass().orElse(null), "Main class is not as expected!");
 
     Files.delete(copyPath);
     Files.delete(cleanPath);
@@ -57,6 +63,9 @@ public class ClearJarMojoTest {
   @Test
   void execRepack() throws IOException, MojoExecutionException {
     Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
     Files.createDirectory(tempDir);
 
     Path testPath = Paths.get("test-dir");
@@ -74,12 +83,44 @@ public class ClearJarMojoTest {
     assertTrue(Files.exists(cleanPath), "Clean path dose not exist!");
 
     Mockito.verify(mockLog).info("MainClass: com.mtag.tools.config.gui.LinksDesktop");
-    Mockito.verify(mockLog).info("command: jar -u -f install-1.0.temp.jar -e com.mtag.tools.config.gui.LinksDesktop");
-    Mockito.verify(mockLog).info("out:");
-    Mockito.verify(mockLog).info("exitVal: 0");
+    Mockito.verify(mockLog).info("Appended module-info.class to: install-1.0.temp.jar");
+    assertEquals("com.mtag.tools.config.gui.LinksDesktop", ModuleFinder.of(cleanPath).findAll().iterator().next()
+        .descriptor().mainClass().orElse(null), "Main class is not as expected!");
 
     Files.delete(copyPath);
     Files.delete(cleanPath);
     Files.delete(tempDir);
   }
-}
\ No newline at end of file
+
+  /**
+   * Tests that a repack level out of the range of deflate is not accepted.
+   */
+  @Test
+  void execInvalidRepackLevel() {
+    Path jarPath = Paths.get("test-dir", "install-1.0.org.jar");
+    for (int level : new int[]{-2, 10}) {
+      CleanJarMojo cleanJarMojo = new CleanJarMojo(Mockito.mock(Log.class), true);
+      cleanJarMojo.setRepackCompression(level, StrategyEnum.Default);
+      MojoExecutionException e = assertThrows(MojoExecutionException.class, () -> cleanJarMojo.exec(jarPath),
+          "Expected Exception is not thrown!");
+      assertEquals("Invalid repackLevel: " + level + ", expected -1 to 9", e.getMessage(),
+          "Message is not as expected!");
+    }
+  }
+
+  /**
+   * Tests that an alignment, that is no power of two or too large, is not accepted.
+   */
+  @Test
+  void execInvalidAlignment() {
+    Path jarPath = Paths.get("test-dir", "install-1.0.org.jar");
+    for (int alignment : new int[]{0, 3000, JarRewriter.MAX_ALIGNMENT * 2}) {
+      CleanJarMojo cleanJarMojo = new CleanJarMojo(Mockito.mock(Log.class), true);
+      cleanJarMojo.setHot(true, 1, alignment);
+      MojoExecutionException e = assertThrows(MojoExecutionException.class, () -> cleanJarMojo.exec(jarPath),
+          "Expected Exception is not thrown!");
+      assertEquals("Invalid alignment: " + alignment + ", expected a power of two from 1 to 32768", e.getMessage(),
+          "Message is not as expected!");
+    }
+  }
+}
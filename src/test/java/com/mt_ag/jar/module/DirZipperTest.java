@@ -0,0 +1,171 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the zip of a dir.
+ */
+@DisplayName("Dir Zipper Test")
+public class DirZipperTest {
+
+  /**
+   * Asserts the entry of the zip.
+   *
+   * @param zip    the zip.
+   * @param file   the source file.
+   * @param name   the name of the entry.
+   * @param method the expected method.
+   * @throws IOException not expected.
+   */
+  private static void assertEntry(ZipFile zip, Path file, String name, int method) throws IOException {
+    ZipEntry entry = zip.getEntry(name);
+    assertNotNull(entry, "Missing entry: " + name);
+    assertEquals(method, entry.getMethod(), "Method is not as expected: " + name);
+    try (InputStream in = zip.getInputStream(entry)) {
+      assertArrayEquals(Files.readAllBytes(file), in.readAllBytes(), "Entry is not as expected: " + name);
+    }
+  }
+
+  /**
+   * Tests that text is deflated, compressed content is stored and big entries are written.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void zip() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Path dir = tempDir.resolve("run");
+    Files.createDirectories(dir.resolve("lib").resolve("empty"));
+    Path text = Files.writeString(dir.resolve("text.txt"), "line\n".repeat(1000), StandardCharsets.UTF_8);
+    byte[] random = new byte[64 * 1024];
+    new Random(1).nextBytes(random);
+    Path modules = Files.write(dir.resolve("lib").resolve("modules"), random);
+    Path jar = Files.copy(Paths.get("test-dir", "asm-7.1.jar"), dir.resolve("lib").resolve("asm.jar"));
+    Path big = Files.writeString(dir.resolve("big.txt"), "0123456789abcdef".repeat(DirZipper.MAX_BUFFERED / 4),
+        StandardCharsets.UTF_8);
+    Files.createDirectories(dir.resolve("bin"));
+    Path java = Files.writeString(dir.resolve("bin").resolve("java"), "#!/bin/sh\n", StandardCharsets.UTF_8);
+    boolean posix = Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class);
+    if (posix) {
+      Files.setPosixFilePermissions(java, PosixFilePermissions.fromString("rwxr-xr-x"));
+      Files.createSymbolicLink(dir.resolve("lib").resolve("link.jar"), Paths.get("asm.jar"));
+    }
+    Path zipFile = tempDir.resolve("run.zip");
+
+    try (ModulePipeline pipeline = new ModulePipeline(2)) {
+      DirZipper.zip(pipeline, dir, zipFile, Mockito.mock(Log.class));
+    }
+
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      assertEquals(posix ? 6 : 5, zip.size(), "Count of entries is not as expected!");
+      assertEntry(zip, text, "text.txt", ZipEntry.DEFLATED);
+      assertEntry(zip, modules, "lib/modules", ZipEntry.STORED);
+      assertEntry(zip, jar, "lib/asm.jar", ZipEntry.STORED);
+      assertEntry(zip, big, "big.txt", ZipEntry.DEFLATED);
+    }
+    if (posix) {
+      try (ZipIndex index = ZipIndex.open(zipFile)) {
+        assertEquals(0100755, index.getEntry("bin/java").getExternalAttributes() >>> 16,
+            "Mode of executable is not as expected!");
+        assertEquals(0120777, index.getEntry("lib/link.jar").getExternalAttributes() >>> 16,
+            "Mode of link is not as expected!");
+        try (InputStream in = index.open(index.getEntry("lib/link.jar"))) {
+          assertEquals("asm.jar", new String(in.readAllBytes(), StandardCharsets.UTF_8), "Link is not as expected!");
+        }
+      }
+    }
+    try (var files = Files.list(tempDir)) {
+      assertEquals(2, files.count(), "Temp files are not deleted!");
+    }
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests that the unchanged entries of the previous zip are reused.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void reuse() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Path dir = tempDir.resolve("run");
+    Files.createDirectories(dir.resolve("lib"));
+    Path text = Files.writeString(dir.resolve("text.txt"), "line\n".repeat(1000), StandardCharsets.UTF_8);
+    Path jar = Files.copy(Paths.get("test-dir", "asm-7.1.jar"), dir.resolve("lib").resolve("asm.jar"));
+    Path other = Files.writeString(dir.resolve("lib").resolve("other.txt"), "other\n".repeat(1000),
+        StandardCharsets.UTF_8);
+    Path zipFile = tempDir.resolve("run.zip");
+    Log mockLog = Mockito.mock(Log.class);
+
+    try (ModulePipeline pipeline = new ModulePipeline(2)) {
+      DirZipper.zip(pipeline, dir, zipFile, mockLog);
+      Files.writeString(text, "changed\n".repeat(1000), StandardCharsets.UTF_8);
+      DirZipper.zip(pipeline, dir, zipFile, mockLog);
+    }
+    Mockito.verify(mockLog).info("Reused entries of the previous zip: 0 of 3");
+    Mockito.verify(mockLog).info("Reused entries of the previous zip: 2 of 3");
+
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      assertEquals(3, zip.size(), "Count of entries is not as expected!");
+      assertEntry(zip, text, "text.txt", ZipEntry.DEFLATED);
+      assertEntry(zip, jar, "lib/asm.jar", ZipEntry.STORED);
+      assertEntry(zip, other, "lib/other.txt", ZipEntry.DEFLATED);
+    }
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests that the temp zip is deleted, if the zip cannot be replaced.
+   *
+   * @throws IOException not expected.
+   */
+  @Test
+  @DisplayName("Failed zip leaves no temp zip")
+  void zipFailed() throws IOException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Path dir = Files.createDirectories(tempDir.resolve("run"));
+    Files.writeString(dir.resolve("text.txt"), "line\n", StandardCharsets.UTF_8);
+    Path zipFile = Files.createDirectories(tempDir.resolve("run.zip"));
+    Files.writeString(zipFile.resolve("blocker.txt"), "line\n", StandardCharsets.UTF_8);
+
+    try (ModulePipeline pipeline = new ModulePipeline(2)) {
+      assertThrows(MojoExecutionException.class, () -> DirZipper.zip(pipeline, dir, zipFile,
+          Mockito.mock(Log.class)), "Expected Exception is not thrown!");
+    }
+    assertFalse(Files.exists(tempDir.resolve("run.zip.tmp")), "Temp zip is not deleted!");
+    TestTools.deleteDir(tempDir);
+  }
+}
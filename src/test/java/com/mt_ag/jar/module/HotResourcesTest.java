@@ -0,0 +1,52 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the hot and cold resources of a jlink image.
+ */
+@DisplayName("Hot Resources Test")
+public class HotResourcesTest {
+
+  /**
+   * Tests the hot classes of java.base and the patterns of the cold resources.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void javaBase() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+
+    HotResources resources = HotResources.of(tempDir, "java.base",
+        List.of("java/lang/Object.class", "com/mt_ag/Missing.class", "java/lang/String.class"));
+    assertEquals(List.of("/java.base/java/lang/Object.class", "/java.base/java/lang/String.class"),
+        resources.getHot(), "Hot resources are not as expected!");
+    assertEquals(List.of("java/lang/Object", "java/lang/String"), resources.getOrderLines(),
+        "Order is not as expected!");
+    List<String> cold = resources.getColdPatterns();
+    assertTrue(cold.contains("/java.base/java/util/*"), "Missing package without hot class!");
+    assertTrue(cold.contains("/java.base/java/lang/Integer.class"), "Missing cold class of a hot package!");
+    assertFalse(cold.contains("/java.base/java/lang/Object.class"), "Hot class is cold!");
+    assertFalse(cold.contains("/java.base/java/lang/*"), "Hot package is cold!");
+    assertEquals("/a/b$\\{c\\}\\*", HotResources.escape("/a/b${c}*"), "Escape is not as expected!");
+
+    TestTools.deleteDir(tempDir);
+  }
+}
@@ -0,0 +1,124 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.module.FindException;
+import java.lang.module.ModuleFinder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the index of the jars.
+ */
+@DisplayName("Jar Index Test")
+public class JarIndexTest {
+
+  /**
+   * Tests that the descriptors are the same as the ones of the ModuleFinder.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void descriptor() throws IOException, MojoExecutionException {
+    List<Path> jars;
+    try (Stream<Path> pathStream = Stream.concat(Files.list(Paths.get("test-dir")),
+        Files.list(Paths.get("test-dir", "jackson-yaml")))) {
+      jars = pathStream.filter(path -> path.toString().endsWith(".jar")).collect(Collectors.toList());
+    }
+    for (Path jar : jars) {
+      assertEquals(ModuleFinder.of(jar).findAll().stream().findFirst().get().descriptor(),
+          JarIndex.of(jar).getDescriptor(), "Descriptor is not as expected: " + jar);
+    }
+    JarIndex log4j = JarIndex.of(Paths.get("test-dir", "log4j-api-2.11.2.jar"));
+    assertTrue(log4j.isMultiRelease(), "Log4j is a multi release jar!");
+    assertFalse(JarIndex.of(Paths.get("test-dir", "asm-7.1.jar")).isMultiRelease(), "Asm is no multi release jar!");
+  }
+
+  /**
+   * Tests that a changed jar is read again.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void changed() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Path jar = tempDir.resolve("index-1.0.jar");
+    Files.copy(Paths.get("test-dir", "jackson-yaml", "snakeyaml-1.18.jar"), jar);
+    JarIndex first = JarIndex.of(jar);
+    assertSame(first, JarIndex.of(jar), "Unchanged jar is read again!");
+    assertEquals("index", first.getDescriptor().name(), "Module name is not as expected!");
+
+    Files.copy(Paths.get("test-dir", "log4j-api-2.11.2.jar"), jar, StandardCopyOption.REPLACE_EXISTING);
+    JarIndex second = JarIndex.of(jar);
+    assertNotSame(first, second, "Changed jar is not read again!");
+    assertEquals("org.apache.logging.log4j", second.getDescriptor().name(), "Module name is not as expected!");
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests that the names and versions derived from tricky file names are the same as the ones of the ModuleFinder.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void automaticNames() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    List<String> fileNames = List.of("foo-bar-1.0.jar", "foo_bar-2.jar", "foo..bar-1.0-SNAPSHOT.jar",
+        "-foo.bar-.jar", "commons-io-2.x.jar", "jakarta.ws.rs-api-2.1.6.jar", "scala-library-2.13.jar",
+        "foo-bar-v2.jar", "a--b-1.2.3-rc1.jar", "guava-28.1-jre.jar", "foo.jar", "foo-1.2+3.jar",
+        "Foo$Bar-1..2.jar");
+    for (String fileName : fileNames) {
+      Path dir = Files.createDirectory(tempDir.resolve(fileName.replace('.', '_')));
+      Path jar = dir.resolve(fileName);
+      try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), new Manifest())) {
+        out.putNextEntry(new JarEntry("p/A.class"));
+        out.write(new byte[]{0});
+        out.closeEntry();
+      }
+      assertEquals(ModuleFinder.of(jar).findAll().stream().findFirst().get().descriptor(),
+          JarIndex.of(jar).getDescriptor(), "Descriptor is not as expected: " + fileName);
+    }
+
+    for (String fileName : List.of("foo-1x.jar", "foo-native.jar", "x-1-2.jar")) {
+      Path dir = Files.createDirectory(tempDir.resolve(fileName.replace('.', '_')));
+      Path jar = dir.resolve(fileName);
+      try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), new Manifest())) {
+        out.putNextEntry(new JarEntry("p/A.class"));
+        out.write(new byte[]{0});
+        out.closeEntry();
+      }
+      assertThrows(FindException.class, () -> ModuleFinder.of(jar).findAll(), "Name is valid: " + fileName);
+      assertThrows(MojoExecutionException.class, () -> JarIndex.of(jar), "Name is valid: " + fileName);
+    }
+    TestTools.deleteDir(tempDir);
+  }
+}
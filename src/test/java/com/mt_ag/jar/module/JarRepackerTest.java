@@ -0,0 +1,201 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the repack of a jar.
+ */
+@DisplayName("Jar Repacker Test")
+public class JarRepackerTest {
+
+  /**
+   * The alignment of the hot entries.
+   */
+  private static final int ALIGNMENT = 4096;
+
+  /**
+   * The size of the hot entries.
+   */
+  private static final long ALIGN_SIZE = 8192;
+
+  /**
+   * Asserts that the repacked jar has the files of the source with the same content.
+   *
+   * @param source the source jar.
+   * @param target the repacked jar.
+   * @throws IOException not expected.
+   */
+  private static void assertRepacked(Path source, Path target) throws IOException {
+    try (ZipFile org = new ZipFile(source.toFile());
+         ZipFile repacked = new ZipFile(target.toFile())) {
+      Enumeration<? extends ZipEntry> entries = org.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        ZipEntry copy = repacked.getEntry(entry.getName());
+        if (entry.isDirectory()) {
+          assertTrue(copy == null || !copy.getName().equals(entry.getName()), "Dir is not removed: "
+              + entry.getName());
+        } else {
+          assertNotNull(copy, "Missing entry: " + entry.getName());
+          assertEquals(entry.getCrc(), copy.getCrc(), "Crc is not as expected: " + entry.getName());
+          try (InputStream orgIn = org.getInputStream(entry);
+               InputStream in = repacked.getInputStream(copy)) {
+            assertArrayEquals(orgIn.readAllBytes(), in.readAllBytes(), "Entry is not as expected: "
+                + entry.getName());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests the raw copy, the level and the strategy Best. Best is not bigger than the best level.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void repack() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Path source = Paths.get("test-dir").resolve("asm-7.1.jar");
+    Path copy = tempDir.resolve("copy.jar");
+    Path stored = tempDir.resolve("stored.jar");
+    Path level = tempDir.resolve("level.jar");
+    Path best = tempDir.resolve("best.jar");
+    Log mockLog = Mockito.mock(Log.class);
+
+    try (ModulePipeline pipeline = new ModulePipeline(2)) {
+      JarRepacker.repack(pipeline, source, copy, JarRepacker.LEVEL_COPY, StrategyEnum.Default, null, null, 0, mockLog);
+      JarRepacker.repack(pipeline, source, stored, 0, StrategyEnum.Default, null, null, 0, mockLog);
+      JarRepacker.repack(pipeline, source, level, 9, StrategyEnum.Default, null, null, 0, mockLog);
+      JarRepacker.repack(pipeline, source, best, JarRepacker.LEVEL_COPY, StrategyEnum.Best, null, null, 0, mockLog);
+    }
+
+    for (Path target : new Path[] {copy, stored, level, best}) {
+      assertRepacked(source, target);
+    }
+    try (ZipFile zip = new ZipFile(stored.toFile())) {
+      assertFalse(zip.stream().anyMatch(entry -> entry.getMethod() != ZipEntry.STORED), "Entry is not stored!");
+    }
+    assertTrue(Files.size(stored) > Files.size(level), "Level 9 is not smaller than level 0!");
+    assertTrue(Files.size(best) <= Files.size(level), "Best is bigger than level 9!");
+    Mockito.verify(mockLog, Mockito.times(4)).info("Entry:org/objectweb/asm/ClassReader.class");
+
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests that the hot entries are stored with the data aligned and the other entries are copied.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void align() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Path source = Paths.get("test-dir").resolve("asm-7.1.jar");
+    Path aligned = tempDir.resolve("aligned.jar");
+    Log mockLog = Mockito.mock(Log.class);
+
+    try (ModulePipeline pipeline = new ModulePipeline(2)) {
+      JarRepacker.repack(pipeline, source, aligned, JarRepacker.LEVEL_COPY, StrategyEnum.Default, null,
+          entry -> entry.getSize() >= ALIGN_SIZE, ALIGNMENT, mockLog);
+    }
+
+    assertRepacked(source, aligned);
+    int hot = 0;
+    try (ZipIndex zip = ZipIndex.open(aligned)) {
+      for (ZipIndex.Entry entry : zip.getEntries()) {
+        if (entry.getSize() >= ALIGN_SIZE) {
+          hot++;
+          assertEquals(ZipEntry.STORED, entry.getMethod(), "Hot entry is not stored: " + entry.getName());
+          assertEquals(0, zip.getDataOffset(entry) % ALIGNMENT, "Hot entry is not aligned: " + entry.getName());
+        } else {
+          assertEquals(ZipEntry.DEFLATED, entry.getMethod(), "Entry is not copied: " + entry.getName());
+        }
+      }
+    }
+    assertTrue(hot > 0, "No hot entry found!");
+    Mockito.verify(mockLog).info("Stored and aligned entries: " + hot);
+
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests that entries bigger than the memory limit are compressed by a temp file, that is deleted afterwards.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  @DisplayName("Big entries are spilled to temp files")
+  void bigEntries() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Path source = tempDir.resolve("big.jar");
+    byte[] random = new byte[DirZipper.MAX_BUFFERED + 1];
+    new Random(1).nextBytes(random);
+    byte[] text = new byte[DirZipper.MAX_BUFFERED * 3];
+    for (int i = 0; i < text.length; i++) {
+      text[i] = (byte) ('a' + (random[i % random.length] & 0x0F));
+    }
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(source))) {
+      out.putNextEntry(new ZipEntry("random.bin"));
+      out.write(random);
+      out.putNextEntry(new ZipEntry("text.bin"));
+      out.write(text);
+    }
+    Path stored = tempDir.resolve("stored.jar");
+    Path best = tempDir.resolve("best.jar");
+    Log mockLog = Mockito.mock(Log.class);
+
+    try (ModulePipeline pipeline = new ModulePipeline(2)) {
+      JarRepacker.repack(pipeline, source, stored, 0, StrategyEnum.Default, null, null, 0, mockLog);
+      JarRepacker.repack(pipeline, source, best, JarRepacker.LEVEL_COPY, StrategyEnum.Best, null, null, 0, mockLog);
+    }
+
+    assertRepacked(source, stored);
+    assertRepacked(source, best);
+    try (ZipFile zip = new ZipFile(best.toFile())) {
+      assertEquals(ZipEntry.STORED, zip.getEntry("random.bin").getMethod(), "Random entry is not stored!");
+      assertEquals(ZipEntry.DEFLATED, zip.getEntry("text.bin").getMethod(), "Text entry is not deflated!");
+    }
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertEquals(3, files.count(), "Temp files are left!");
+    }
+    TestTools.deleteDir(tempDir);
+  }
+}
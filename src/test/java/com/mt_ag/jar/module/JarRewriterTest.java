@@ -0,0 +1,233 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Random;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the rewriting of jars with raw copied entries.
+ */
+@DisplayName("Jar Rewriter Test")
+public class JarRewriterTest {
+
+  /**
+   * Creates an empty temp dir.
+   *
+   * @return the temp dir.
+   * @throws IOException not expected.
+   */
+  private static Path createTempDir() throws IOException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    return tempDir;
+  }
+
+  /**
+   * Reads an entry of a zip.
+   *
+   * @param zip  the zip.
+   * @param name the name of the entry.
+   * @return the data.
+   * @throws IOException not expected.
+   */
+  private static byte[] read(ZipFile zip, String name) throws IOException {
+    ZipEntry entry = zip.getEntry(name);
+    assertNotNull(entry, "Missing entry: " + name);
+    try (InputStream in = zip.getInputStream(entry)) {
+      return in.readAllBytes();
+    }
+  }
+
+  /**
+   * Tests that copied and new entries are read as expected.
+   *
+   * @throws IOException not expected.
+   */
+  @Test
+  void copyAndWrite() throws IOException {
+    Path tempDir = createTempDir();
+    Path source = Paths.get("test-dir", "asm-7.1.jar");
+    Path target = tempDir.resolve("asm.jar");
+    byte[] text = "new entry".getBytes(StandardCharsets.UTF_8);
+
+    try (ZipIndex index = ZipIndex.open(source);
+         JarRewriter out = new JarRewriter(target)) {
+      for (ZipIndex.Entry entry : index.getEntries()) {
+        if (!entry.isDirectory()) {
+          out.copy(index, entry, entry.getName());
+        }
+      }
+      out.writeDeflated("new.txt", new ByteArrayInputStream(text),
+          JarRewriter.toDosTime(LocalDateTime.of(2020, 1, 1, 0, 0)));
+    }
+
+    try (ZipFile org = new ZipFile(source.toFile());
+         ZipFile copy = new ZipFile(target.toFile())) {
+      for (ZipEntry entry : Collections.list(org.entries())) {
+        if (!entry.isDirectory()) {
+          assertArrayEquals(read(org, entry.getName()), read(copy, entry.getName()),
+              "Entry is not as expected: " + entry.getName());
+          assertEquals(entry.getCrc(), copy.getEntry(entry.getName()).getCrc(), "Crc is not as expected!");
+        }
+      }
+      assertArrayEquals(text, read(copy, "new.txt"), "New entry is not as expected!");
+    }
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests that entries are appended and replaced.
+   *
+   * @throws IOException not expected.
+   */
+  @Test
+  void append() throws IOException {
+    Path tempDir = createTempDir();
+    Path source = Paths.get("test-dir", "asm-7.1.jar");
+    Path target = tempDir.resolve("asm.jar");
+    Files.copy(source, target);
+    byte[] text = "replaced".getBytes(StandardCharsets.UTF_8);
+
+    try (JarRewriter out = JarRewriter.append(target, "module-info.class")) {
+      out.writeDeflated("module-info.class", new ByteArrayInputStream(text), 0);
+      out.writeDeflated("new.txt", new ByteArrayInputStream(text), 0);
+    }
+
+    try (ZipFile org = new ZipFile(source.toFile());
+         ZipFile appended = new ZipFile(target.toFile())) {
+      assertEquals(org.size() + 1, appended.size(), "Count of entries is not as expected!");
+      for (ZipEntry entry : Collections.list(org.entries())) {
+        if (!entry.isDirectory() && !entry.getName().equals("module-info.class")) {
+          assertArrayEquals(read(org, entry.getName()), read(appended, entry.getName()),
+              "Entry is not as expected: " + entry.getName());
+        }
+      }
+      assertArrayEquals(text, read(appended, "module-info.class"), "Replaced entry is not as expected!");
+      assertArrayEquals(text, read(appended, "new.txt"), "New entry is not as expected!");
+    }
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests that a failed append restores the zip, after the new entry is written over the central directory.
+   *
+   * @throws IOException not expected.
+   */
+  @Test
+  void appendFailed() throws IOException {
+    Path tempDir = createTempDir();
+    Path target = tempDir.resolve("asm.jar");
+    Files.copy(Paths.get("test-dir", "asm-7.1.jar"), target);
+    byte[] org = Files.readAllBytes(target);
+    Random random = new Random(1);
+    InputStream failing = new InputStream() {
+      private int count;
+
+      @Override
+      public int read() throws IOException {
+        if (++count > Tools.BUFFER_SIZE * 4) {
+          throw new IOException("expected");
+        }
+        return random.nextInt(256);
+      }
+    };
+
+    assertThrows(IOException.class, () -> {
+      try (JarRewriter out = JarRewriter.append(target, "module-info.class")) {
+        out.writeDeflated("module-info.class", failing, 0);
+      }
+    }, "Expected Exception is not thrown!");
+
+    assertArrayEquals(org, Files.readAllBytes(target), "Zip is changed!");
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests that a zip with more entries than fit in the end record is written with the zip64 end record and can be
+   * appended.
+   *
+   * @throws IOException not expected.
+   */
+  @Test
+  @DisplayName("Zip64 count of entries")
+  void zip64Entries() throws IOException {
+    Path tempDir = createTempDir();
+    Path target = tempDir.resolve("many.zip");
+    int count = ZipIndex.MAX_SHORT + 10;
+    try (JarRewriter out = new JarRewriter(target)) {
+      for (int i = 0; i < count; i++) {
+        out.writePrepared("entry" + i, ZipEntry.STORED, 0, 0, 0, 0, 0, new ByteArrayInputStream(new byte[0]));
+      }
+    }
+    try (JarRewriter out = JarRewriter.append(target)) {
+      out.writeDeflated("new.txt", new ByteArrayInputStream(new byte[]{4}), 0);
+    }
+
+    try (ZipFile zip = new ZipFile(target.toFile())) {
+      assertEquals(count + 1, zip.size(), "Count of entries is not as expected!");
+      assertArrayEquals(new byte[]{4}, read(zip, "new.txt"), "Appended entry is not as expected!");
+    }
+    try (ZipIndex index = ZipIndex.open(target)) {
+      assertEquals(count + 1, index.getEntries().size(), "Count of indexed entries is not as expected!");
+    }
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests the flattening of a multi release jar.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void singleRelease() throws IOException, MojoExecutionException {
+    Path tempDir = createTempDir();
+    Path source = Paths.get("test-dir", "log4j-api-2.11.2.jar");
+    Path target = tempDir.resolve("log4j-api.jar");
+    Files.copy(source, target);
+
+    UpdateModules.makeSingleReleaseJar(target);
+
+    try (JarFile org = new JarFile(source.toFile(), true, ZipFile.OPEN_READ, JarFile.runtimeVersion());
+         JarFile single = new JarFile(target.toFile())) {
+      assertFalse(single.isMultiRelease(), "Jar is still multi release!");
+      assertTrue(single.stream().noneMatch(entry -> entry.getName().startsWith("META-INF/versions/")),
+          "Versioned entries are not removed!");
+      assertEquals(org.getManifest().getMainAttributes().getValue("Implementation-Title"),
+          single.getManifest().getMainAttributes().getValue("Implementation-Title"), "Manifest is not as expected!");
+      for (ZipEntry entry : Collections.list(org.entries())) {
+        if (!entry.isDirectory() && !entry.getName().startsWith("META-INF/versions/")
+            && !entry.getName().equals(JarFile.MANIFEST_NAME)) {
+          assertArrayEquals(read(org, entry.getName()), read(single, entry.getName()),
+              "Entry is not as expected: " + entry.getName());
+        }
+      }
+      assertNotNull(single.getEntry("module-info.class"), "Missing versioned module-info!");
+    }
+    TestTools.deleteDir(tempDir);
+  }
+}
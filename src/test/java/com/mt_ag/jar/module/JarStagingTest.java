@@ -0,0 +1,66 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Tests the staging of the jars.
+ */
+@DisplayName("Jar Staging Test")
+public class JarStagingTest {
+
+  /**
+   * Tests that an entry can be appended to a jar staged as writable without changing the source. The source is large
+   * enough to be reflinked.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void stageAndAppend() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Path source = tempDir.resolve("source.jar");
+    byte[] random = new byte[(int) JarStaging.REFLINK_MIN_SIZE];
+    new Random(1).nextBytes(random);
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(source))) {
+      out.putNextEntry(new ZipEntry("random.bin"));
+      out.write(random);
+    }
+    byte[] data = Files.readAllBytes(source);
+
+    for (StagingEnum strategy : StagingEnum.values()) {
+      Path target = tempDir.resolve(strategy.name() + ".jar");
+      new JarStaging(strategy, Mockito.mock(Log.class)).stage(source, target, true);
+      assertArrayEquals(data, Files.readAllBytes(target), "Staged jar is not as expected!");
+
+      try (JarRewriter out = JarRewriter.append(target)) {
+        out.writeDeflated("new.txt", new ByteArrayInputStream(new byte[]{4}), 0);
+      }
+      assertArrayEquals(data, Files.readAllBytes(source), "Source is changed by " + strategy);
+      try (ZipFile zip = new ZipFile(target.toFile())) {
+        assertNotNull(zip.getEntry("new.txt"), "Appended entry is missing for " + strategy);
+      }
+    }
+    TestTools.deleteDir(tempDir);
+  }
+}
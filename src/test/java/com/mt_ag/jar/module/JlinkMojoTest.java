@@ -7,15 +7,21 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Class to test the goal jlink.
@@ -23,6 +29,49 @@ import static org.junit.jupiter.api.Assertions.*;
 @DisplayName("Jlink Mojo Test")
 public class JlinkMojoTest {
 
+  /**
+   * The dir of the jackson yaml example.
+   */
+  private static final Path YAML_DIR = Paths.get("test-dir", "jackson-yaml");
+
+  /**
+   * The jars of the dependencies of the jackson yaml example.
+   */
+  private static final List<String> YAML_JARS = List.of("snakeyaml-1.18.jar", "jackson-annotations-2.9.0.jar",
+      "jackson-core-2.9.3.jar", "jackson-databind-2.9.3.jar", "jackson-dataformat-yaml-2.9.3.jar");
+
+  /**
+   * Creates the temp dir with the target dir and the jar of the jackson yaml example and mocks the project of it.
+   *
+   * @param tempDir the temp dir, an existing one is deleted.
+   * @return the mocked project.
+   * @throws IOException not expected to be thrown.
+   */
+  private static MavenProject yamlProject(Path tempDir) throws IOException {
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Path targetJar = Files.createDirectories(tempDir.resolve("target")).resolve("yaml-example-1.0-SNAPSHOT.jar");
+    Files.copy(YAML_DIR.resolve("yaml-example-1.0-SNAPSHOT.jar"), targetJar);
+
+    MavenProject mavenProject = Mockito.mock(MavenProject.class);
+    Artifact artifactMain = Mockito.mock(Artifact.class);
+    Mockito.when(artifactMain.getFile()).thenReturn(targetJar.toFile());
+    Mockito.when(mavenProject.getArtifact()).thenReturn(artifactMain);
+
+    Mockito.when(mavenProject.getBasedir()).thenReturn(tempDir.toFile());
+    Mockito.when(mavenProject.getId()).thenReturn("com.mt-ag.tools:yaml-example:1.0-SNAPSHOT");
+
+    Set<Artifact> artifactSet = new HashSet<>();
+    for (String jar : YAML_JARS) {
+      Artifact artifact = Mockito.mock(Artifact.class);
+      Mockito.when(artifact.getFile()).thenReturn(YAML_DIR.resolve(jar).toFile());
+      artifactSet.add(artifact);
+    }
+    Mockito.when(mavenProject.getArtifacts()).thenReturn(artifactSet);
+    return mavenProject;
+  }
+
   /**
    * Test of exec.
    *
@@ -179,6 +228,264 @@ public class JlinkMojoTest {
     TestTools.deleteDir(tempDir);
   }
 
+  /**
+   * Test of exec called twice. The second call uses the fingerprint and processes no jar again.
+   *
+   * @throws MojoExecutionException not expected to be thrown.
+   * @throws IOException            not expected to be thrown.
+   */
+  @Test
+  public void execYamlIncremental() throws MojoExecutionException, IOException {
+    Path tempDir = Paths.get("temp");
+    MavenProject mavenProject = yamlProject(tempDir);
+    Path tempTargetDir = tempDir.resolve("target");
+    Log mockLog = Mockito.mock(Log.class);
+
+    MavenProjectHelper helper = Mockito.mock(MavenProjectHelper.class);
+
+    JlinkMojo jlinkMojo = new JlinkMojo(mockLog, mavenProject, helper, CompressEnum.NoCompress, false, false,
+        "test=yaml.example/com.mt_ag.tools.config.gui.LinksDesktop");
+    jlinkMojo.execute();
+    jlinkMojo.execute();
+    Mockito.verify(mockLog).info("Modules to process: 0 of 5");
+    Mockito.verify(mockLog, Mockito.never()).warn(Mockito.startsWith("jdeps failed for the batch"));
+    try (ZipIndex zip = ZipIndex.open(tempTargetDir.resolve("modules").resolve("snakeyaml-1.18.jar"))) {
+      assertEquals(zip.getEntry("META-INF/MANIFEST.MF").getDosTime(), zip.getEntry("module-info.class").getDosTime(),
+          "Time of module-info is not the time of the manifest!");
+    }
+
+    assertTrue(Files.exists(tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.run.zip")), "Missing result of jlink!");
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Test of exec with the OCI image. The second call links no jdk again and results in the same layers.
+   *
+   * @throws MojoExecutionException not expected to be thrown.
+   * @throws IOException            not expected to be thrown.
+   */
+  @Test
+  public void execYamlOci() throws MojoExecutionException, IOException {
+    Path tempDir = Paths.get("temp");
+    MavenProject mavenProject = yamlProject(tempDir);
+    Path tempTargetDir = tempDir.resolve("target");
+    Log mockLog = Mockito.mock(Log.class);
+
+    MavenProjectHelper helper = Mockito.mock(MavenProjectHelper.class);
+
+    JlinkMojo jlinkMojo = new JlinkMojo(mockLog, mavenProject, helper, CompressEnum.ZIP, true, false);
+    jlinkMojo.setImage(ImageEnum.Oci);
+    jlinkMojo.execute();
+    jlinkMojo.execute();
+    Mockito.verify(mockLog).info("Jdk of the image is up to date.");
+    String paramsKey = Files.readString(tempTargetDir.resolve("modules").resolve("jdk.params"));
+    assertTrue(paramsKey.startsWith("jdk: " + Runtime.version() + " " + System.getProperty("java.home") + "\n"),
+        "Jdk is not part of the params: " + paramsKey);
+    ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(mockLog, Mockito.atLeastOnce()).info(messages.capture());
+    List<String> images = messages.getAllValues().stream().filter(message -> message.startsWith("OCI image:"))
+        .collect(Collectors.toList());
+    assertEquals(2, images.size(), "Count of images is not as expected!");
+    assertEquals(images.get(0), images.get(1), "Layers are not reproducible!");
+
+    Path blobs = tempDir.resolve("target").resolve("modules").resolve("oci").resolve("blobs").resolve("sha256");
+    try (Stream<Path> files = Files.list(blobs)) {
+      assertEquals(5, files.count(), "Count of blobs is not as expected!");
+    }
+    assertTrue(Files.exists(tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.oci.tar")), "Missing OCI image!");
+    assertFalse(Files.exists(tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.run.zip")), "Found run zip!");
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Test of exec with the OCI image on another os than linux.
+   */
+  @Test
+  public void execOciNotLinux() {
+    MavenProject mavenProject = Mockito.mock(MavenProject.class);
+    Log mockLog = Mockito.mock(Log.class);
+    MavenProjectHelper helper = Mockito.mock(MavenProjectHelper.class);
+    JlinkMojo jlinkMojo = new JlinkMojo(mockLog, mavenProject, helper, CompressEnum.ZIP, true, false);
+    jlinkMojo.setImage(ImageEnum.ZipAndOci);
+
+    String osName = System.getProperty("os.name");
+    System.setProperty("os.name", "Windows 10");
+    try {
+      MojoExecutionException e = assertThrows(MojoExecutionException.class, jlinkMojo::execute,
+          "Expected Exception is not thrown!");
+      assertEquals("Unable to create the OCI image on Windows 10, the image is run on linux and contains the jdk of "
+          + "the build.", e.getMessage(), "Message is not as expected!");
+    } finally {
+      System.setProperty("os.name", osName);
+    }
+    Mockito.verifyZeroInteractions(mavenProject);
+  }
+
+  /**
+   * Test of exec with the startup preset FastStart. The lambda forms of the class list are generated, the classes of
+   * the class list are ordered first and not compressed and the vm options are added to the image.
+   *
+   * @throws MojoExecutionException not expected to be thrown.
+   * @throws IOException            not expected to be thrown.
+   */
+  @Test
+  public void execYamlFastStart() throws MojoExecutionException, IOException {
+    Path tempDir = Paths.get("temp");
+    MavenProject mavenProject = yamlProject(tempDir);
+    Path tempTargetDir = tempDir.resolve("target");
+    Files.writeString(tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.classlist"), "java/lang/Object id: 0\n"
+        + "@lambda-form-invoker [LF_RESOLVE] java.lang.invoke.DirectMethodHandle$Holder invokeStatic L_L (success)\n");
+    Log mockLog = Mockito.mock(Log.class);
+
+    MavenProjectHelper helper = Mockito.mock(MavenProjectHelper.class);
+
+    JlinkMojo jlinkMojo = new JlinkMojo(mockLog, mavenProject, helper, CompressEnum.ZIP, true, false);
+    jlinkMojo.setStartup(new JlinkStartup(PresetEnum.FastStart));
+    jlinkMojo.execute();
+
+    ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(mockLog, Mockito.atLeastOnce()).info(messages.capture());
+    String command = messages.getAllValues().stream().filter(message -> message.startsWith("command: jlink"))
+        .findFirst().orElse("");
+    assertTrue(command.contains("--generate-jli-classes=@"), "Missing jli classes: " + command);
+    assertTrue(command.contains("--dedup-legal-notices"), "Missing dedup of legal notices: " + command);
+    assertTrue(command.contains("--order-resources=@"), "Missing order of the resources: " + command);
+    assertTrue(command.contains("--compress=2:filter=@"), "Missing compress filter: " + command);
+    assertTrue(command.contains("--add-options=" + JlinkStartup.FAST_START_OPTIONS), "Missing options: " + command);
+
+    Path java = tempTargetDir.resolve("modules").resolve("run").resolve("bin").resolve("java");
+    CallResult result = ProcessRunner.run(mockLog, tempDir, 60, java.toAbsolutePath().toString(),
+        "-XX:+PrintCommandLineFlags", "-version");
+    assertEquals(0, result.getExitVal(), "Exit value is not as expected!");
+    assertTrue(result.getOutLines().stream().anyMatch(line -> line.contains("-XX:TieredStopAtLevel=1")),
+        "Options are not added to the image!");
+    assertTrue(Files.exists(tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.run.zip")), "Missing result of jlink!");
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Test of exec with the training run. The run is terminated when the main class is loaded and the archive is used
+   * by the launcher.
+   *
+   * @throws MojoExecutionException not expected to be thrown.
+   * @throws IOException            not expected to be thrown.
+   */
+  @Test
+  public void execYamlTraining() throws MojoExecutionException, IOException {
+    assumeTrue(Runtime.version().feature() >= 13, "Dynamic CDS archives need jdk 13!");
+    Path tempDir = Paths.get("temp");
+    MavenProject mavenProject = yamlProject(tempDir);
+    Path tempTargetDir = tempDir.resolve("target");
+    Log mockLog = Mockito.mock(Log.class);
+
+    MavenProjectHelper helper = Mockito.mock(MavenProjectHelper.class);
+
+    JlinkMojo jlinkMojo = new JlinkMojo(mockLog, mavenProject, helper, CompressEnum.ZIP, true, false,
+        "test=yaml.example/com.mt_ag.tools.config.gui.LinksDesktop");
+    jlinkMojo.setTraining(new JlinkTraining("com.mt_ag.tools.config.gui.LinksDesktop"));
+    jlinkMojo.execute();
+
+    Path runPath = tempTargetDir.resolve("modules").resolve("run");
+    Path archive = runPath.resolve("lib").resolve(Runtime.version().feature() >= 25 ? "app.aot" : "app.jsa");
+    assertTrue(Files.exists(archive), "Missing archive of the training run!");
+    String launcher = Files.readString(runPath.resolve("bin").resolve("test"));
+    assertTrue(launcher.contains("/../lib/" + archive.getFileName()), "Archive is not used by the launcher!");
+    assertTrue(Files.isDirectory(tempTargetDir.resolve("modules").resolve("training")), "Missing working dir!");
+    if (archive.getFileName().toString().endsWith(".jsa")) {
+      CallResult result = ProcessRunner.run(mockLog, runPath, 60,
+          runPath.resolve("bin").resolve("java").toAbsolutePath().toString(),
+          "-XX:SharedArchiveFile=" + archive.toAbsolutePath(), "-Xshare:on", "-version");
+      assertEquals(0, result.getExitVal(), "Archive is not usable!");
+    }
+    assertTrue(Files.exists(tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.run.zip")), "Missing result of jlink!");
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Test of exec with the module set. The image contains exactly the resolved modules and the added module, the
+   * required but unused java.sql is logged.
+   *
+   * @throws MojoExecutionException not expected to be thrown.
+   * @throws IOException            not expected to be thrown.
+   */
+  @Test
+  public void execYamlModuleSet() throws MojoExecutionException, IOException {
+    Path tempDir = Paths.get("temp");
+    MavenProject mavenProject = yamlProject(tempDir);
+    Path tempTargetDir = tempDir.resolve("target");
+    Log mockLog = Mockito.mock(Log.class);
+
+    MavenProjectHelper helper = Mockito.mock(MavenProjectHelper.class);
+
+    JlinkMojo jlinkMojo = new JlinkMojo(mockLog, mavenProject, helper, CompressEnum.ZIP, true, false);
+    jlinkMojo.setCheckRequires(true);
+    jlinkMojo.setBindServices(true);
+    jlinkMojo.setAddModules(List.of("jdk.zipfs"));
+    jlinkMojo.execute();
+
+    Mockito.verify(mockLog).warn("Required modules not used by the classes of yaml.example: java.sql");
+
+    Path java = tempTargetDir.resolve("modules").resolve("run").resolve("bin").resolve("java");
+    CallResult result = ProcessRunner.run(mockLog, tempDir, 60, java.toAbsolutePath().toString(), "--list-modules");
+    assertEquals(0, result.getExitVal(), "Exit value is not as expected!");
+    Set<String> modules = result.getOutLines().stream().map(line -> line.split("@")[0].trim())
+        .filter(line -> !line.isEmpty()).collect(Collectors.toSet());
+    assertTrue(modules.containsAll(Set.of("yaml.example", "java.sql", "java.desktop", "jdk.zipfs")),
+        "Missing modules: " + modules);
+    assertFalse(modules.contains("jdk.localedata"), "Unexpected module: " + modules);
+    ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(mockLog, Mockito.atLeastOnce()).info(messages.capture());
+    String moduleSet = messages.getAllValues().stream().filter(message -> message.startsWith("Module set: "))
+        .findFirst().orElse("Module set: ");
+    assertEquals(Set.of(moduleSet.substring("Module set: ".length()).split(",")), modules,
+        "Image does not contain exactly the module set!");
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Test of exec with the shrinking. The unreachable classes are removed from the linked modules and listed in the
+   * report, the classes of the main class and the kept classes are linked.
+   *
+   * @throws MojoExecutionException not expected to be thrown.
+   * @throws IOException            not expected to be thrown.
+   */
+  @Test
+  public void execYamlShrink() throws MojoExecutionException, IOException {
+    Path tempDir = Paths.get("temp");
+    MavenProject mavenProject = yamlProject(tempDir);
+    Path tempTargetDir = tempDir.resolve("target");
+    Log mockLog = Mockito.mock(Log.class);
+
+    MavenProjectHelper helper = Mockito.mock(MavenProjectHelper.class);
+
+    JlinkMojo jlinkMojo = new JlinkMojo(mockLog, mavenProject, helper, CompressEnum.ZIP, true, false,
+        "test=yaml.example/com.mt_ag.tools.config.gui.LinksDesktop");
+    jlinkMojo.setImage(ImageEnum.ZipAndOci);
+    jlinkMojo.setShrink(true, List.of("com.fasterxml.jackson.databind.ext.**"));
+    jlinkMojo.execute();
+
+    Path report = tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.shrink.txt");
+    List<String> lines = Files.readAllLines(report);
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith("module: com.fasterxml.jackson.databind removed: ")),
+        "Missing module in report: " + lines);
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith("  com.fasterxml.jackson.databind.")),
+        "No class of jackson-databind is removed: " + lines);
+    assertFalse(lines.contains("  com.mt_ag.tools.config.gui.LinksDesktop"), "Main class is removed!");
+    assertFalse(lines.stream().anyMatch(line -> line.startsWith("  com.fasterxml.jackson.databind.ext.")),
+        "Kept class is removed!");
+
+    Path shrunkJar = tempTargetDir.resolve("modules").resolve("shrunk").resolve("jackson-databind-2.9.3.jar");
+    assertTrue(Files.size(shrunkJar) < Files.size(YAML_DIR.resolve("jackson-databind-2.9.3.jar")),
+        "Jar is not shrunk!");
+    Path java = tempTargetDir.resolve("modules").resolve("run").resolve("bin").resolve("java");
+    CallResult result = ProcessRunner.run(mockLog, tempDir, 60, java.toAbsolutePath().toString(), "--describe-module",
+        "com.fasterxml.jackson.databind");
+    assertEquals(0, result.getExitVal(), "Exit value is not as expected!");
+    assertTrue(Files.exists(tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.run.zip")), "Missing result of jlink!");
+    assertTrue(Files.exists(tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.oci.tar")), "Missing OCI image!");
+    TestTools.deleteDir(tempDir);
+  }
+
   /**
    * Test of exec with all parameters set and openmodule=true results in an error.
    *
@@ -0,0 +1,97 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the module cache.
+ */
+@DisplayName("Module Cache Test")
+public class ModuleCacheTest {
+
+  /**
+   * Tests that the key depends on the neighbours and the openmodule flag.
+   *
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void key() throws MojoExecutionException {
+    Map<String, String> hashes = Map.of("a.jar", "01", "b.jar", "02");
+    Map<String, String> otherHashes = Map.of("a.jar", "01", "b.jar", "03");
+    String key = ModuleCache.key("a.jar", hashes, false);
+    assertEquals(key, ModuleCache.key("a.jar", Map.of("b.jar", "02", "a.jar", "01"), false), "Key is not stable!");
+    assertNotEquals(key, ModuleCache.key("a.jar", hashes, true), "Key ignores openmodule!");
+    assertNotEquals(key, ModuleCache.key("a.jar", otherHashes, false), "Key ignores the neighbours!");
+  }
+
+  /**
+   * Tests store and restore of an entry.
+   *
+   * @throws IOException not expected.
+   */
+  @Test
+  void storeAndRestore() throws IOException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Log mockLog = Mockito.mock(Log.class);
+    ModuleCache cache = new ModuleCache(tempDir.resolve("cache"), mockLog);
+    Path jar = tempDir.resolve("a.jar");
+    Files.write(jar, new byte[]{1, 2, 3});
+
+    assertFalse(cache.restore("abcd", jar), "Unexpected hit!");
+    cache.store("abcd", jar);
+    Files.write(jar, new byte[]{0});
+    assertTrue(cache.restore("abcd", jar), "Missing hit!");
+    assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(jar), "Restored jar is not as expected!");
+    assertEquals(1, cache.getHits(), "Wrong hit count!");
+    assertEquals(1, cache.getMisses(), "Wrong miss count!");
+
+    cache.logStatistics();
+    Mockito.verify(mockLog).info("Module cache: 1 hits, 1 misses");
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests that a failed store leaves no temp file in the cache.
+   *
+   * @throws IOException not expected.
+   */
+  @Test
+  @DisplayName("Failed store leaves no temp file")
+  void storeFailed() throws IOException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Log mockLog = Mockito.mock(Log.class);
+    Path cacheDir = tempDir.resolve("cache");
+    ModuleCache cache = new ModuleCache(cacheDir, mockLog);
+
+    cache.store("abcd", tempDir.resolve("missing.jar"));
+    try (Stream<Path> files = Files.list(cacheDir.resolve("ab"))) {
+      assertEquals(0, files.count(), "Temp file is left in the cache!");
+    }
+    assertFalse(cache.lookup("abcd"), "Unexpected hit!");
+    TestTools.deleteDir(tempDir);
+  }
+}
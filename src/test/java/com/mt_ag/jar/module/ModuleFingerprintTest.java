@@ -0,0 +1,82 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests the fingerprint of the modules dir.
+ */
+@DisplayName("Module Fingerprint Test")
+public class ModuleFingerprintTest {
+
+  /**
+   * Creates a fingerprint of three jars, c requires b and b requires a.
+   *
+   * @return the fingerprint.
+   */
+  private static ModuleFingerprint createPrint() {
+    ModuleFingerprint print = new ModuleFingerprint("config");
+    print.putJar("a.jar", "1", ModuleDescriptor.newModule("a").build());
+    print.putJar("b.jar", "2", ModuleDescriptor.newModule("b").requires("a").build());
+    print.putJar("c.jar", "3", ModuleDescriptor.newModule("c").requires("b").build());
+    print.putJar("d.jar", "4", ModuleDescriptor.newModule("d").build());
+    return print;
+  }
+
+  /**
+   * Tests the outdated jars.
+   */
+  @Test
+  void outdated() {
+    ModuleFingerprint print = createPrint();
+    assertEquals(Set.of(), print.outdated(Map.of("a.jar", "1", "b.jar", "2", "c.jar", "3", "d.jar", "4")),
+        "Unexpected outdated jars!");
+    assertEquals(Set.of("a.jar", "b.jar", "c.jar"),
+        print.outdated(Map.of("a.jar", "9", "b.jar", "2", "c.jar", "3", "d.jar", "4")),
+        "Missing the jars requiring a changed jar!");
+    assertEquals(Set.of("b.jar", "c.jar", "e.jar"),
+        print.outdated(Map.of("a.jar", "1", "c.jar", "3", "d.jar", "4", "e.jar", "5")),
+        "Missing the added or removed jars!");
+  }
+
+  /**
+   * Tests save and load.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void saveAndLoad() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    assertNull(ModuleFingerprint.load(tempDir), "Unexpected fingerprint!");
+
+    createPrint().save(tempDir);
+    ModuleFingerprint loaded = ModuleFingerprint.load(tempDir);
+    assertNotNull(loaded, "Missing fingerprint!");
+    assertEquals("config", loaded.getConfig(), "Config is not as expected!");
+    assertEquals(Set.of("a.jar", "b.jar", "c.jar", "d.jar"), loaded.getJarNames(), "Jars are not as expected!");
+    assertEquals(Set.of("c.jar"), loaded.outdated(Map.of("a.jar", "1", "b.jar", "2", "c.jar", "8", "d.jar", "4")),
+        "Outdated jars are not as expected!");
+
+    ModuleFingerprint.delete(tempDir);
+    assertNull(ModuleFingerprint.load(tempDir), "Fingerprint is not deleted!");
+    TestTools.deleteDir(tempDir);
+  }
+}
@@ -0,0 +1,178 @@
+package com.mt_ag.jar.module;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.module.ModuleDescriptor;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the writer of the module-info.class.
+ */
+@DisplayName("Module Info Writer Test")
+public class ModuleInfoWriterTest {
+
+  /**
+   * A module-info.java like the ones generated by jdeps.
+   */
+  private static final String SOURCE = "module com.example.test {\n"
+      + "    requires java.logging;\n"
+      + "\n"
+      + "    requires transitive java.sql;\n"
+      + "    requires static java.desktop;\n"
+      + "\n"
+      + "    exports com.example.test;\n"
+      + "    exports com.example.test.internal to java.base, java.sql;\n"
+      + "\n"
+      + "    uses com.example.test.Plugin;\n"
+      + "\n"
+      + "    provides com.example.test.Plugin with\n"
+      + "        com.example.test.internal.FirstPlugin,\n"
+      + "        com.example.test.internal.SecondPlugin;\n"
+      + "\n"
+      + "}\n";
+
+  /**
+   * Tests that a written module-info.class is read as the same descriptor.
+   */
+  @Test
+  void roundTrip() {
+    ModuleDescriptor generated = ModuleInfoWriter.readSource(SOURCE);
+    assertEquals("com.example.test", generated.name(), "Name is not as expected!");
+    assertEquals(4, generated.requires().size(), "Requires are not as expected!");
+
+    ModuleDescriptor.Builder builder = ModuleDescriptor.newModule(generated.name(), generated.modifiers());
+    generated.requires().forEach(builder::requires);
+    generated.exports().forEach(builder::exports);
+    generated.uses().forEach(builder::uses);
+    generated.provides().forEach(builder::provides);
+    builder.packages(Set.of("com.example.test.resources"));
+    builder.version("1.0");
+    builder.mainClass("com.example.test.Main");
+    ModuleDescriptor descriptor = builder.build();
+
+    ModuleDescriptor read = ModuleDescriptor.read(ByteBuffer.wrap(ModuleInfoWriter.write(descriptor)));
+    assertEquals(descriptor, read, "Read descriptor is not as expected!");
+    assertEquals(List.of("com.example.test.internal.FirstPlugin", "com.example.test.internal.SecondPlugin"),
+        read.provides().iterator().next().providers(), "Providers are not as expected!");
+  }
+
+  /**
+   * Tests the main class of a module-info.class compiled by javac.
+   *
+   * @throws IOException not expected.
+   */
+  @Test
+  void setMainClass() throws IOException {
+    byte[] moduleInfo;
+    try (ZipFile zip = new ZipFile(Paths.get("test-dir", "asm-7.1.jar").toFile());
+         InputStream in = zip.getInputStream(zip.getEntry("module-info.class"))) {
+      moduleInfo = in.readAllBytes();
+    }
+    ModuleDescriptor org = ModuleDescriptor.read(ByteBuffer.wrap(moduleInfo));
+    byte[] patched = ModuleInfoWriter.setMainClass(moduleInfo, "org.objectweb.asm.Main");
+    ModuleDescriptor read = ModuleDescriptor.read(ByteBuffer.wrap(patched));
+    assertEquals("org.objectweb.asm.Main", read.mainClass().orElse(null), "Main class is not as expected!");
+    assertEquals(org.exports(), read.exports(), "Exports are not as expected!");
+    assertEquals(org.rawVersion(), read.rawVersion(), "Version is not as expected!");
+
+    byte[] again = ModuleInfoWriter.setMainClass(patched, "org.objectweb.asm.Other");
+    assertEquals("org.objectweb.asm.Other", ModuleDescriptor.read(ByteBuffer.wrap(again)).mainClass().orElse(null),
+        "Replaced main class is not as expected!");
+  }
+
+  /**
+   * Tests an open module.
+   */
+  @Test
+  void openModule() {
+    ModuleDescriptor generated = ModuleInfoWriter.readSource("open module test.open {\n  requires java.xml;\n}\n");
+    assertTrue(generated.isOpen(), "Module is not open!");
+    ModuleDescriptor read = ModuleDescriptor.read(ByteBuffer.wrap(ModuleInfoWriter.write(generated)));
+    assertEquals(generated, read, "Read descriptor is not as expected!");
+  }
+
+  /**
+   * Tests a hand written module-info.java with comments, annotations, imports and all forms of the directives.
+   */
+  @Test
+  void readSourceForms() {
+    ModuleDescriptor read = ModuleInfoWriter.readSource("// header comment { ; }\n"
+        + "import java.lang.Deprecated;\n"
+        + "/** The module. @see \"x\" */\n"
+        + "@Deprecated(since = \"1.0 (old; }\", forRemoval = false)\n"
+        + "@java.lang.SuppressWarnings({\"module\", \")\"})\n"
+        + "open module com . example.forms {\n"
+        + "  requires transitive static java.sql; // both modifiers\n"
+        + "  requires static transitive java.xml;\n"
+        + "  requires /* inline */ java.logging;\n"
+        + "  requires transitive;\n"
+        + "  exports com.example.forms;;\n"
+        + "  exports com.example.forms.spi to\n"
+        + "      java.base, // first\n"
+        + "      java.desktop;\n"
+        + "  uses com.example.forms.spi.Service;\n"
+        + "  provides com.example.forms.spi.Service with com.example.forms.Impl;\n"
+        + "}\n");
+    Set<ModuleDescriptor.Requires.Modifier> both = Set.of(ModuleDescriptor.Requires.Modifier.STATIC,
+        ModuleDescriptor.Requires.Modifier.TRANSITIVE);
+    ModuleDescriptor expected = ModuleDescriptor.newOpenModule("com.example.forms")
+        .requires(both, "java.sql")
+        .requires(both, "java.xml")
+        .requires("java.logging")
+        .requires("transitive")
+        .exports("com.example.forms")
+        .exports("com.example.forms.spi", Set.of("java.base", "java.desktop"))
+        .uses("com.example.forms.spi.Service")
+        .provides("com.example.forms.spi.Service", List.of("com.example.forms.Impl"))
+        .build();
+    assertEquals(expected, read, "Read descriptor is not as expected!");
+  }
+
+  /**
+   * Tests qualified opens of a module.
+   */
+  @Test
+  void readSourceOpens() {
+    ModuleDescriptor read = ModuleInfoWriter.readSource("module test.opens {\n"
+        + "  opens test.opens.model to com.fasterxml.jackson.databind, java.xml.bind;\n"
+        + "  opens test.opens.view;\n"
+        + "}");
+    Set<ModuleDescriptor.Opens> opens = Set.of(
+        ModuleDescriptor.newModule("x").opens("test.opens.model",
+            Set.of("com.fasterxml.jackson.databind", "java.xml.bind")).build().opens().iterator().next(),
+        ModuleDescriptor.newModule("x").opens("test.opens.view").build().opens().iterator().next());
+    assertEquals(opens, read.opens(), "Opens are not as expected!");
+  }
+
+  /**
+   * Tests that an invalid module-info.java is not read.
+   */
+  @Test
+  void readSourceInvalid() {
+    for (String source : List.of(
+        "module a {",
+        "module a { requires; }",
+        "module a { requires final b; }",
+        "module a { exports b c; }",
+        "module a { provides b c; }",
+        "module a { /* unclosed }",
+        "@Deprecated(\"x) module a { }",
+        "open open module a { }",
+        "module a { module b { } }",
+        "module a { exports b# ; }")) {
+      assertThrows(IllegalArgumentException.class, () -> ModuleInfoWriter.readSource(source),
+          "Expected Exception is not thrown: " + source);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the module pipeline.
+ */
+@DisplayName("Module Pipeline Test")
+public class ModulePipelineTest {
+
+  /**
+   * Tests that the exception of a task is thrown.
+   */
+  @Test
+  void awaitAllError() {
+    try (ModulePipeline pipeline = new ModulePipeline(2)) {
+      assertThrows(MojoExecutionException.class, () -> ModulePipeline.awaitAll(List.of(
+          pipeline.submit(() -> "ok"),
+          pipeline.submit(() -> {
+            throw new MojoExecutionException("expected");
+          }))), "Expected Exception is not thrown!");
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the module set of an image.
+ */
+@DisplayName("Module Set Test")
+public class ModuleSetTest {
+
+  /**
+   * Tests the resolved modules with and without binding the services of the application modules.
+   *
+   * @throws IOException            not expected.
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void bindServices() throws IOException, MojoExecutionException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Path testDir = Paths.get("test-dir");
+    for (String jar : List.of("asm-test-1.0.jar", "asm-7.1.jar", "log4j-api-2.11.2.jar", "log4j-core-2.11.2.jar")) {
+      Files.copy(testDir.resolve(jar), tempDir.resolve(jar));
+    }
+
+    ModuleSet unbound = ModuleSet.of(tempDir, List.of("asm.test"), false);
+    assertEquals(Set.of("asm.test", "java.base", "org.apache.logging.log4j", "org.objectweb.asm"),
+        unbound.getModules(), "Modules are not as expected!");
+    assertEquals(Set.of("java.base"), unbound.getJdkModules(), "Jdk modules are not as expected!");
+
+    ModuleSet bound = ModuleSet.of(tempDir, List.of("asm.test"), true);
+    assertTrue(bound.getRoots().contains("org.apache.logging.log4j.core"), "Provider is not bound!");
+    assertTrue(bound.getModules().contains("org.apache.logging.log4j.core"), "Provider is not resolved!");
+    assertFalse(bound.getModules().contains("jdk.localedata"), "Service of the jdk is bound!");
+
+    TestTools.deleteDir(tempDir);
+  }
+
+  /**
+   * Tests the required modules not used by the classes.
+   */
+  @Test
+  void unusedRequires() {
+    ModuleDescriptor descriptor = ModuleDescriptor.newModule("a").requires("java.sql").requires("java.desktop")
+        .requires(Set.of(ModuleDescriptor.Requires.Modifier.STATIC), "java.xml").build();
+    assertEquals(Set.of("java.sql"), ModuleSet.unusedRequires(descriptor,
+        List.of("   java.base", "   java.desktop/sun.awt")),
+        "Unused modules are not as expected!");
+  }
+}
@@ -0,0 +1,95 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the process runner.
+ */
+@DisplayName("Process Runner Test")
+public class ProcessRunnerTest {
+
+  /**
+   * The timeout of the tests in seconds.
+   */
+  private static final long TIMEOUT = 60;
+
+  /**
+   * Tests the output of a process.
+   *
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void run() throws MojoExecutionException {
+    Log mockLogger = Mockito.mock(Log.class);
+    CallResult result = ProcessRunner.run(mockLogger, Paths.get("."), TIMEOUT, "java", "-version");
+    assertEquals(0, result.getExitVal(), "Exit value is not as expected!");
+    assertTrue(result.getOutLines().stream().anyMatch(line -> line.contains("version")), "Missing output!");
+    Mockito.verify(mockLogger).info("command: java -version");
+    Mockito.verify(mockLogger).info("exitVal: 0");
+  }
+
+  /**
+   * Tests that a process is destroyed after the timeout.
+   */
+  @Test
+  void timeout() {
+    Log mockLogger = Mockito.mock(Log.class);
+    long start = System.nanoTime();
+    assertThrows(MojoExecutionException.class, () -> ProcessRunner.run(mockLogger, Paths.get("."), 1,
+        "sleep", "30"), "Expected a timeout!");
+    assertTrue(System.nanoTime() - start < 20_000_000_000L, "Process is not destroyed after the timeout!");
+  }
+
+  /**
+   * Tests processes running in parallel.
+   */
+  @Test
+  void parallel() {
+    Log mockLogger = Mockito.mock(Log.class);
+    List<CompletableFuture<CallResult>> calls = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      calls.add(CompletableFuture.supplyAsync(() -> {
+        try {
+          return ProcessRunner.run(mockLogger, Paths.get("."), TIMEOUT, "java", "-version");
+        } catch (MojoExecutionException e) {
+          throw new IllegalStateException(e);
+        }
+      }));
+    }
+    for (CompletableFuture<CallResult> call : calls) {
+      assertEquals(0, call.join().getExitVal(), "Exit value is not as expected!");
+    }
+  }
+
+  /**
+   * Tests that the call ends, if a descendant keeps the output open after the end of the process. The process ends
+   * while the output is read, otherwise the runtime drains and closes the output itself.
+   *
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  @DisplayName("Output kept open by a descendant")
+  void outputKeptOpen() throws MojoExecutionException {
+    Log mockLogger = Mockito.mock(Log.class);
+    long start = System.nanoTime();
+    CallResult result = ProcessRunner.run(mockLogger, Paths.get("."), TIMEOUT, "sh", "-c",
+        "sleep 30 & echo started; sleep 1");
+    assertTrue(System.nanoTime() - start < 20_000_000_000L, "Call waits for the descendant!");
+    assertEquals(0, result.getExitVal(), "Exit value is not as expected!");
+    assertTrue(result.getOutLines().contains("started"), "Missing output!");
+    Mockito.verify(mockLogger).warn("The output of sh is still open after its end, stop reading it.");
+  }
+}
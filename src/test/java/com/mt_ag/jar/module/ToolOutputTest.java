@@ -0,0 +1,73 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the output of the tools.
+ */
+@DisplayName("Tool Output Test")
+public class ToolOutputTest {
+
+  /**
+   * Tests that the lines are logged when they are complete.
+   */
+  @Test
+  void streamed() {
+    Log mockLogger = Mockito.mock(Log.class);
+    ToolOutput out = new ToolOutput(mockLogger, OutputEnum.Info);
+    out.write("first\r\nsec".toCharArray(), 0, "first\r\nsec".length());
+    Mockito.verify(mockLogger).info("first");
+    Mockito.verify(mockLogger, Mockito.never()).info("sec");
+    out.write("ond\n\nthird".toCharArray(), 0, "ond\n\nthird".length());
+    Mockito.verify(mockLogger).info("second");
+    CallResult result = out.toResult(1);
+    Mockito.verify(mockLogger).info("third");
+    assertEquals(1, result.getExitVal(), "Exit value is not as expected!");
+    assertEquals(List.of("first", "second", "third"), result.getOutLines(), "Lines are not as expected!");
+    assertEquals(3, result.getLineCount(), "Count of lines is not as expected!");
+  }
+
+  /**
+   * Tests that only the last lines are kept.
+   */
+  @Test
+  void bounded() {
+    Log mockLogger = Mockito.mock(Log.class);
+    ToolOutput out = new ToolOutput(mockLogger, OutputEnum.Debug, 2);
+    for (int i = 0; i < 5; i++) {
+      String line = "line " + i + "\n";
+      out.write(line.toCharArray(), 0, line.length());
+    }
+    CallResult result = out.toResult(0);
+    Mockito.verify(mockLogger, Mockito.times(5)).debug(Mockito.startsWith("line "));
+    Mockito.verify(mockLogger, Mockito.never()).info(Mockito.anyString());
+    assertEquals(List.of("line 3", "line 4"), result.getOutLines(), "Lines are not as expected!");
+    assertEquals(5, result.getLineCount(), "Count of lines is not as expected!");
+  }
+
+  /**
+   * Tests that a line longer than the maximum is truncated and the rest of it is skipped.
+   */
+  @Test
+  void truncated() {
+    Log mockLogger = Mockito.mock(Log.class);
+    ToolOutput out = new ToolOutput(mockLogger, OutputEnum.Info);
+    char[] chunk = "x".repeat(ToolOutput.MAX_LINE_LENGTH / 2 + 1).toCharArray();
+    for (int i = 0; i < 5; i++) {
+      out.write(chunk, 0, chunk.length);
+    }
+    out.write("\nnext".toCharArray(), 0, "\nnext".length());
+    CallResult result = out.toResult(0);
+    String expected = "x".repeat(ToolOutput.MAX_LINE_LENGTH) + ToolOutput.TRUNCATED;
+    Mockito.verify(mockLogger).info(expected);
+    assertEquals(List.of(expected, "next"), result.getOutLines(), "Lines are not as expected!");
+    assertEquals(2, result.getLineCount(), "Count of lines is not as expected!");
+  }
+}
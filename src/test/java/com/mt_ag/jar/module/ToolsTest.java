@@ -36,6 +36,37 @@ public class ToolsTest {
     Mockito.verify(mockLogger).info("out:");
   }
 
+  /**
+   * Tests the method callTool in process.
+   *
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void callToolInProcess() throws MojoExecutionException {
+    Log mockLogger = Mockito.mock(Log.class);
+    CallResult result = Tools.callTool(mockLogger, ExecutionEnum.InProcess, Paths.get("."), "jlink", "--version");
+    assertEquals(0, result.getExitVal(), "exit value is not as expected!");
+    assertEquals(Runtime.version().feature(), Runtime.Version.parse(result.getOutLines().get(0)).feature(),
+        "version is not as expected!");
+    Mockito.verify(mockLogger).info("command: jlink --version");
+    Mockito.verify(mockLogger).info("exitVal: 0");
+    Mockito.verify(mockLogger).info("out:");
+  }
+
+  /**
+   * Tests the method callTool with a tool without ToolProvider.
+   *
+   * @throws MojoExecutionException not expected.
+   */
+  @Test
+  void callToolFork() throws MojoExecutionException {
+    Log mockLogger = Mockito.mock(Log.class);
+    CallResult result = Tools.callTool(mockLogger, ExecutionEnum.InProcess, Paths.get("."), "java", "-version");
+    assertEquals(0, result.getExitVal(), "exit value is not as expected!");
+    Mockito.verify(mockLogger).debug("No ToolProvider found for: java");
+    Mockito.verify(mockLogger).info("command: java -version");
+  }
+
   /**
    * Tests the method setModuleMain, with module jar, where main class is set in the manifest but not
    * in the module.
@@ -58,6 +89,8 @@ public class ToolsTest {
     assertEquals("com.mtag.tools.config.gui.LinksDesktop", mr.descriptor().mainClass().
         orElse(null), "main class is not as expected!");
     Mockito.verify(mockLogger).info("MainClass: com.mtag.tools.config.gui.LinksDesktop");
+    Mockito.verify(mockLogger).info("Appended module-info.class to: install-1.0.jar");
+    Files.delete(copyPath);
   }
 
   /**
@@ -69,8 +102,8 @@ public class ToolsTest {
 
     Path testPath = Paths.get("test-dir");
     Path copyPath = testPath.resolve("install-1.0.err.jar");
-    assertThrows(RuntimeException.class, () ->
-        Tools.setModuleMain(mockLogger, copyPath), "Expected to throw a RuntimeException!");
+    assertThrows(MojoExecutionException.class, () ->
+        Tools.setModuleMain(mockLogger, copyPath), "Expected to throw a MojoExecutionException!");
   }
 
   /**
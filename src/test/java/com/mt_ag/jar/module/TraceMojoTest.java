@@ -0,0 +1,111 @@
+package com.mt_ag.jar.module;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Class to test the goal trace and the order of the entries by the class list.
+ */
+@DisplayName("Trace Mojo Test")
+public class TraceMojoTest {
+
+  /**
+   * The timeout of the training run in seconds.
+   */
+  private static final long TIMEOUT = 120;
+
+  /**
+   * Tests the lines of the class list and the class load log.
+   */
+  @Test
+  void className() {
+    assertEquals("com/mt_ag/Main", ClassOrder.className("com/mt_ag/Main id: 12"));
+    assertEquals("com.mt_ag.Main", ClassOrder.className(
+        "[0.051s][info][class,load] com.mt_ag.Main source: file:/app/main.jar"));
+    assertEquals(null, ClassOrder.className("@lambda-proxy com/mt_ag/Main run ()V"));
+    assertEquals(null, ClassOrder.className("# NOTE: Do not modify this file."));
+  }
+
+  /**
+   * Tests the training run of the yaml example and the jar repacked in the order of the class list.
+   *
+   * @throws MojoExecutionException not expected to be thrown.
+   * @throws IOException            not expected to be thrown.
+   */
+  @Test
+  void traceYaml() throws MojoExecutionException, IOException {
+    Path tempDir = Paths.get("temp");
+    if (Files.exists(tempDir)) {
+      TestTools.deleteDir(tempDir);
+    }
+    Files.createDirectory(tempDir);
+    Path tempTargetDir = tempDir.resolve("target");
+    Files.createDirectory(tempTargetDir);
+
+    Path testDir = Paths.get("test-dir", "jackson-yaml");
+    Path srcTargetJar = testDir.resolve("yaml-example-1.0-SNAPSHOT.jar");
+    Path targetJar = tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.jar");
+    Files.copy(srcTargetJar, targetJar);
+
+    MavenProject mavenProject = Mockito.mock(MavenProject.class);
+    Artifact artifactMain = Mockito.mock(Artifact.class);
+    Mockito.when(artifactMain.getFile()).thenReturn(targetJar.toFile());
+    Mockito.when(mavenProject.getArtifact()).thenReturn(artifactMain);
+    Mockito.when(mavenProject.getBasedir()).thenReturn(tempDir.toFile());
+
+    Artifact artifactSnakeyaml = Mockito.mock(Artifact.class);
+    Mockito.when(artifactSnakeyaml.getFile()).thenReturn(testDir.resolve("snakeyaml-1.18.jar").toFile());
+    Artifact artifactJackson1 = Mockito.mock(Artifact.class);
+    Mockito.when(artifactJackson1.getFile()).thenReturn(testDir.resolve("jackson-annotations-2.9.0.jar").toFile());
+    Artifact artifactJackson2 = Mockito.mock(Artifact.class);
+    Mockito.when(artifactJackson2.getFile()).thenReturn(testDir.resolve("jackson-core-2.9.3.jar").toFile());
+    Artifact artifactJackson3 = Mockito.mock(Artifact.class);
+    Mockito.when(artifactJackson3.getFile()).thenReturn(testDir.resolve("jackson-databind-2.9.3.jar").toFile());
+    Artifact artifactJackson4 = Mockito.mock(Artifact.class);
+    Mockito.when(artifactJackson4.getFile()).thenReturn(testDir.resolve("jackson-dataformat-yaml-2.9.3.jar").toFile());
+    Set<Artifact> artifactSet = Set.of(artifactSnakeyaml, artifactJackson1, artifactJackson2, artifactJackson3,
+        artifactJackson4);
+    Mockito.when(mavenProject.getArtifacts()).thenReturn(artifactSet);
+
+    Path classList = tempTargetDir.resolve("yaml-example-1.0-SNAPSHOT.classlist");
+    Files.writeString(classList, "stale/Stale id: 0\n");
+    Log mockLog = Mockito.mock(Log.class);
+    new TraceMojo(mockLog, mavenProject, TIMEOUT).execute();
+
+    List<String> order = ClassOrder.read(classList);
+    assertFalse(order.contains("stale/Stale.class"), "Class list of the previous run is not deleted!");
+    assertTrue(order.contains("com/mt_ag/tools/config/gui/LinksDesktop.class"), "Missing main class!");
+
+    Path copyJar = tempTargetDir.resolve("yaml-example-1.0.jar");
+    Files.copy(srcTargetJar, copyJar);
+    CleanJarMojo cleanJarMojo = new CleanJarMojo(mockLog, false);
+    cleanJarMojo.setClassOrder(classList.toFile());
+    Path cleanJar = cleanJarMojo.exec(copyJar);
+    try (ZipFile zip = new ZipFile(cleanJar.toFile())) {
+      List<String> names = zip.stream().map(ZipEntry::getName).collect(Collectors.toList());
+      assertEquals("META-INF/MANIFEST.MF", names.get(0), "Manifest is not the first entry!");
+      List<String> loaded = order.stream().filter(names::contains).collect(Collectors.toList());
+      assertEquals(loaded, names.subList(1, loaded.size() + 1), "Entries are not in load order!");
+    }
+    TestTools.deleteDir(tempDir);
+  }
+}